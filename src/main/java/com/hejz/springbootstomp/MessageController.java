@@ -5,8 +5,10 @@ import com.hejz.springbootstomp.dto.Message;
 import com.hejz.springbootstomp.dto.PrivateMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.util.HtmlUtils;
 
@@ -28,7 +30,8 @@ import java.security.Principal;
  * <p>訊息流程：
  * <ol>
  *   <li>公共訊息：客戶端 → MessageController → Redis Pub/Sub → 所有節點的客戶端</li>
- *   <li>私信訊息：客戶端 → MessageController → 直接發送給目標用戶</li>
+ *   <li>私信訊息（接收者在本節點）：客戶端 → MessageController → 直接發送給目標用戶</li>
+ *   <li>私信訊息（接收者在其他節點）：客戶端 → MessageController → Redis Pub/Sub → 目標用戶所在節點</li>
  * </ol>
  * 
  * @see com.hejz.springbootstomp.MessageControllerTests
@@ -51,6 +54,21 @@ public class MessageController {
     @Autowired
     private com.hejz.springbootstomp.service.AgentService agentService;
 
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    /**
+     * 是否啟用私信本地直送（接收者連接在本節點時跳過 Redis），從配置檔案讀取
+     */
+    @Value("${chat.private.local-delivery.enabled:true}")
+    private boolean localDeliveryEnabled = true;
+
+    /**
+     * 公共訊息發布模式（separate 或 atomic），從配置檔案讀取
+     */
+    @Value("${chat.public.publish-mode:separate}")
+    private String publicPublishMode = "separate";
+
     /**
      * 處理公共聊天訊息
      * 
@@ -71,6 +89,14 @@ public class MessageController {
      *   <li>訊息通過 Redis Pub/Sub 機制實現跨節點同步</li>
      * </ul>
      * 
+     * <p>發布模式（chat.public.publish-mode）：
+     * <ul>
+     *   <li>separate（預設）：先 PUBLISH，再執行保存腳本，兩次往返</li>
+     *   <li>atomic：以單一 Lua 腳本同時保存並發布，一次往返且歷史順序與廣播順序一致
+     *       （僅 Pub/Sub 傳輸；Stream 模式下自動使用 separate）。訊息發布到 /raw/topic/chat，
+     *       舊版本節點沒有訂閱此頻道，需所有節點都已升級後才能啟用</li>
+     * </ul>
+     * 
      * @param message 客戶端發送的訊息物件，包含訊息內容（content）
      * @throws InterruptedException 如果執行緒被中斷（目前未使用，保留以備未來擴展）
      * 
@@ -87,11 +113,18 @@ public class MessageController {
         log.info("訊息內容: {}", escapedContent);
         log.info("發布到 Redis /topic/chat 頻道");
         
+        String senderId = principal != null ? principal.getName() : "system";
+        if ("atomic".equalsIgnoreCase(publicPublishMode) && !redisPublisher.isStreamMode()) {
+            // 單一腳本完成持久化與發布
+            chatMessageService.publishAndSavePublicMessage(senderId, null, escapedContent);
+            log.info("公共訊息已透過單一腳本持久化並發布");
+            return;
+        }
+        
         // 發布到 Redis，Redis 監聽器會轉發到所有節點的 WebSocket 客戶端
         redisPublisher.publish(escapedContent);
         
         // 持久化訊息到 Redis（使用 Lua 腳本確保原子性）
-        String senderId = principal != null ? principal.getName() : "system";
         chatMessageService.savePublicMessage(senderId, null, escapedContent);
         
         log.info("公共訊息已發布到 Redis 並持久化");
@@ -109,8 +142,8 @@ public class MessageController {
      *   <li>對訊息內容進行 HTML 轉義，防止 XSS 攻擊</li>
      *   <li>從訊息物件中提取接收者 ID（優先使用 id，其次使用 recipient）</li>
      *   <li>構建 PrivateMessage 物件，包含發送者、接收者和訊息內容</li>
-     *   <li>發布到 Redis /topic/privateMessage 頻道</li>
-     *   <li>Redis 監聽器接收後轉發給目標用戶（僅在目標用戶連接的節點）</li>
+     *   <li>接收者連接在本節點時，直接透過 SimpMessagingTemplate 發送</li>
+     *   <li>否則發布到 Redis /topic/privateMessage 頻道，由目標用戶連接的節點轉發</li>
      * </ol>
      * 
      * <p>接收者識別：
@@ -122,8 +155,8 @@ public class MessageController {
      * 
      * <p>多節點支援：
      * <ul>
-     *   <li>通過 Redis Pub/Sub 實現跨節點私信</li>
-     *   <li>所有節點都訂閱 /topic/privateMessage 頻道</li>
+     *   <li>先查詢本節點的 SimpUserRegistry，本地接收者不經過 Redis</li>
+     *   <li>遠端接收者通過 Redis Pub/Sub 實現跨節點私信</li>
      *   <li>只有目標用戶連接的節點才會轉發訊息</li>
      * </ul>
      * 
@@ -197,9 +230,8 @@ public class MessageController {
             privateMessage.setContent(escapedContent);
             privateMessage.setTimestamp(System.currentTimeMillis());
             
-            // 發布到 Redis /topic/privateMessage 頻道
-            redisPublisher.publishPrivateMessage(privateMessage);
-            log.info("私信已發布到 Redis /topic/privateMessage 頻道");
+            // 投遞私信（本地接收者直接發送，遠端接收者經由 Redis）
+            deliverPrivateMessage(privateMessage);
             
             // 持久化私信訊息到 Redis（使用 Lua 腳本確保原子性）
             chatMessageService.savePrivateMessage(principal.getName(), senderName, recipient, escapedContent);
@@ -211,4 +243,33 @@ public class MessageController {
         
         log.info("=== 私信處理完成 ===");
     }
+
+    /**
+     * 投遞私信訊息
+     * 
+     * <p>如果接收者在本節點的 SimpUserRegistry 中有會話，直接透過
+     * SimpMessagingTemplate 發送，省去一次 Redis 發布以及所有節點的反序列化；
+     * 只有接收者不在本節點時才發布到 Redis，由其他節點轉發。
+     * 
+     * <p>注意：同一用戶同時連接多個節點時，本地直送只會送達本節點的會話。
+     * 可透過 chat.private.local-delivery.enabled=false 關閉本地直送。
+     * 
+     * @param privateMessage 要投遞的私信訊息
+     */
+    private void deliverPrivateMessage(PrivateMessage privateMessage) {
+        String recipientId = privateMessage.getRecipientId();
+        if (localDeliveryEnabled && simpUserRegistry.getUser(recipientId) != null) {
+            messagingTemplate.convertAndSendToUser(
+                    recipientId,
+                    "/topic/privateMessage",
+                    privateMessage.toResponseMessage()
+            );
+            log.info("接收者連接在本節點，私信已直接投遞：{}", recipientId);
+            return;
+        }
+        
+        // 接收者不在本節點，發布到 Redis /topic/privateMessage 頻道
+        redisPublisher.publishPrivateMessage(privateMessage);
+        log.info("私信已發布到 Redis /topic/privateMessage 頻道");
+    }
 }
@@ -1,15 +1,22 @@
 package com.hejz.springbootstomp;
 
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
 import com.hejz.springbootstomp.dto.PrivateMessage;
 import com.hejz.springbootstomp.dto.ResponseMessage;
+import com.hejz.springbootstomp.service.AgentStatusRelay;
+import com.hejz.springbootstomp.service.PublicMessageHistoryCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Redis 訊息監聽器
  * 
@@ -54,7 +61,7 @@ import org.springframework.stereotype.Component;
  */
 @Slf4j
 @Component
-public class RedisMessageListener implements MessageListener {
+public class RedisMessageListener implements MessageListener, SubscriptionListener {
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
@@ -62,6 +69,18 @@ public class RedisMessageListener implements MessageListener {
     @Autowired
     private ObjectMapper objectMapper;
 
+    /**
+     * 公共訊息的記憶體歷史緩衝（僅 chat.history.cache.enabled=true 時存在）
+     */
+    @Autowired(required = false)
+    private PublicMessageHistoryCache historyCache;
+
+    /**
+     * 專員狀態轉發器，將其他節點發布的狀態轉發給本節點的訂閱者
+     */
+    @Autowired
+    private AgentStatusRelay agentStatusRelay;
+
     /**
      * 處理從 Redis Pub/Sub 頻道接收到的訊息
      * 
@@ -93,21 +112,65 @@ public class RedisMessageListener implements MessageListener {
     @Override
     public void onMessage(Message message, byte[] pattern) {
         // 提取 Redis 頻道名稱和訊息內容
-        String channel = new String(message.getChannel());
-        String body = new String(message.getBody());
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
         
         log.info("=== Redis 訊息接收 ===");
         log.info("Redis 頻道: {}", channel);
         log.info("訊息內容: {}", body);
         
+        dispatch(channel, body);
+    }
+
+    /**
+     * 頻道訂閱（或斷線後重新訂閱）完成的通知
+     * 
+     * <p>RedisMessageListenerContainer 只通知直接註冊、且實作 SubscriptionListener 的監聽器，
+     * 歷史記錄頻道因此不經過 MessageListenerAdapter 註冊。重新訂閱前發布的歷史訊息已遺失，
+     * 要求記憶體歷史緩衝重新預熱。
+     * 
+     * @param channel 頻道名稱
+     * @param count 目前連線訂閱的頻道數量
+     * 
+     * @see com.hejz.springbootstomp.config.RedisConfig#redisMessageListenerContainer
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        if (historyCache != null
+                && PublicMessageHistoryCache.HISTORY_CHANNEL.equals(new String(channel, StandardCharsets.UTF_8))) {
+            historyCache.requestRewarm();
+        }
+    }
+
+    /**
+     * 根據頻道類型分派訊息
+     * 
+     * <p>Pub/Sub 模式由 onMessage() 調用；Stream 模式由 RedisStreamMessageConsumer
+     * 對每筆 Stream 記錄調用，兩種傳輸共用同一套轉發邏輯。
+     * 
+     * @param channel 邏輯頻道名稱
+     * @param body JSON 字串格式的訊息內容
+     * 
+     * @see com.hejz.springbootstomp.RedisStreamMessageConsumer
+     */
+    public void dispatch(String channel, String body) {
         // 根據頻道類型處理不同的訊息
         try {
             if ("/topic/chat".equals(channel)) {
                 // 處理公共訊息
                 handlePublicMessage(body);
-            } else if ("/topic/privateMessage".equals(channel)) {
-                // 處理私信訊息
+            } else if ("/topic/privateMessage".equals(channel)
+                    || ClusterNodeIdentity.isNodePrivateMessageChannel(channel)) {
+                // 處理私信訊息（廣播頻道或本節點專屬頻道）
                 handlePrivateMessage(body);
+            } else if (PublicMessageHistoryCache.HISTORY_CHANNEL.equals(channel)) {
+                // 保存腳本發布的公共訊息，加入本節點的歷史緩衝
+                if (historyCache != null) {
+                    historyCache.append(body);
+                }
+            } else if (AgentStatusRelay.CHANNEL.equals(channel)) {
+                // 專員狀態更新，合併後轉發給本節點的訂閱者
+                agentStatusRelay.accept(readAgentStatus(body));
             } else {
                 log.warn("未知的 Redis 頻道: {}", channel);
             }
@@ -117,6 +180,24 @@ public class RedisMessageListener implements MessageListener {
         }
     }
 
+    /**
+     * 解析專員狀態訊息
+     * 
+     * <p>發布端以原始 JSON 位元組發布；舊版本節點經 GenericJackson2JsonRedisSerializer 發布時，
+     * JSON 會被包成字串（外層多一組引號），此時先解開字串再反序列化。
+     * 
+     * @param body 訊息內容
+     * @return 專員狀態訊息
+     * @throws Exception JSON 格式不正確時
+     */
+    private AgentStatusMessage readAgentStatus(String body) throws Exception {
+        String json = body.trim();
+        if (json.startsWith("\"")) {
+            json = objectMapper.readValue(json, String.class);
+        }
+        return objectMapper.readValue(json, AgentStatusMessage.class);
+    }
+
     /**
      * 處理公共訊息
      * 
@@ -151,9 +232,7 @@ public class RedisMessageListener implements MessageListener {
                     privateMessage.getSenderId(), privateMessage.getRecipientId());
             
             // 構建回應訊息，包含發送者資訊
-            String responseContent = privateMessage.getSenderName() + "：" + 
-                    privateMessage.getSenderId() + "發送的信息：" + privateMessage.getContent();
-            ResponseMessage responseMessage = new ResponseMessage(responseContent);
+            ResponseMessage responseMessage = privateMessage.toResponseMessage();
             
             // 轉發到目標用戶的 WebSocket 連接
             // 如果目標用戶未連接在本節點，Spring 會自動忽略，不會拋出異常
@@ -1,15 +1,29 @@
 package com.hejz.springbootstomp;
 
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
 import com.hejz.springbootstomp.dto.PrivateMessage;
 import com.hejz.springbootstomp.dto.ResponseMessage;
+import com.hejz.springbootstomp.service.AgentStatusRelay;
+import com.hejz.springbootstomp.service.ClusterUserRegistry;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Redis 訊息發布服務
  * 
@@ -32,6 +46,18 @@ import org.springframework.stereotype.Service;
  *   <li>Redis 監聽器接收並轉發給所有節點的客戶端</li>
  * </ol>
  * 
+ * <p>傳輸模式（chat.transport.mode）：
+ * <ul>
+ *   <li>pubsub（預設）：使用 Redis Pub/Sub，節點與 Redis 斷線期間的訊息會遺失</li>
+ *   <li>stream：使用 XADD 寫入 Redis Stream（MAXLEN 近似裁剪），由
+ *       RedisStreamMessageConsumer 從各節點的偏移量批次讀取，斷線重連後可續傳</li>
+ * </ul>
+ * 
+ * <p>pubsub 模式下啟用 chat.transport.raw-passthrough.enabled 時，公共訊息以
+ * writeValueAsBytes() 產生的位元組發布到 /raw/topic/chat，由 RedisRawMessageListener
+ * 原樣推送給 WebSocket 客戶端，全程只序列化一次。預設關閉：尚未升級的節點不會訂閱
+ * /raw/topic/chat，必須等叢集中所有節點都部署新版本後再啟用。
+ * 
  * <p>錯誤處理：
  * <ul>
  *   <li>如果 JSON 序列化失敗，會捕獲異常並記錄錯誤</li>
@@ -39,6 +65,7 @@ import org.springframework.stereotype.Service;
  * </ul>
  * 
  * @see com.hejz.springbootstomp.RedisMessagePublisherTests
+ * @see com.hejz.springbootstomp.RedisStreamMessageConsumer
  * @see com.hejz.springbootstomp.RedisMessageListener
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
@@ -53,6 +80,45 @@ public class RedisMessagePublisher {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ClusterUserRegistry clusterUserRegistry;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisTemplate<String, byte[]> rawRedisTemplate;
+
+    /**
+     * 是否以原始位元組發布公共訊息（pubsub 模式），從配置檔案讀取
+     */
+    @Value("${chat.transport.raw-passthrough.enabled:false}")
+    private boolean rawPassthroughEnabled = false;
+
+    /**
+     * 跨節點傳輸模式（pubsub 或 stream），從配置檔案讀取
+     */
+    @Value("${chat.transport.mode:pubsub}")
+    private String transportMode = RedisStreamMessageConsumer.TRANSPORT_MODE_PUBSUB;
+
+    /**
+     * Stream 模式使用的 Redis Stream key，從配置檔案讀取
+     */
+    @Value("${chat.transport.stream.key:chat:stream:fanout}")
+    private String streamKey = "chat:stream:fanout";
+
+    /**
+     * Stream 最大保留條數（近似裁剪），從配置檔案讀取
+     */
+    @Value("${chat.transport.stream.max-length:10000}")
+    private long streamMaxLength = 10000;
+
+    /**
+     * 是否啟用私信定向路由（只發送到接收者所在節點），從配置檔案讀取
+     */
+    @Value("${cluster.private-routing.enabled:true}")
+    private boolean privateRoutingEnabled = true;
+
     /** Redis Pub/Sub 頻道主題：/topic/chat */
     private final ChannelTopic topic = new ChannelTopic("/topic/chat");
     
@@ -85,11 +151,15 @@ public class RedisMessagePublisher {
      * @see com.hejz.springbootstomp.RedisMessagePublisherTests#testPublishHandlesJsonException()
      */
     public void publish(ResponseMessage message) {
+        if (rawPassthroughEnabled && !isStreamMode()) {
+            publishRaw(message);
+            return;
+        }
         try {
             // 將 ResponseMessage 序列化為 JSON 字串
             String jsonMessage = objectMapper.writeValueAsString(message);
             // 發布到 Redis /topic/chat 頻道
-            redisTemplate.convertAndSend(topic.getTopic(), jsonMessage);
+            send(topic.getTopic(), jsonMessage);
         } catch (JsonProcessingException e) {
             // 記錄錯誤，但不中斷執行
             // 使用 logger 記錄錯誤，避免在測試中打印堆棧跟踪
@@ -132,22 +202,22 @@ public class RedisMessagePublisher {
      * 發布私信訊息到 Redis 頻道
      * 
      * <p>此方法接收 PrivateMessage 物件，將其序列化為 JSON 字串後發布到
-     * Redis Pub/Sub 頻道。所有訂閱該頻道的節點都會收到此訊息，但只有
-     * 目標用戶連接的節點才會轉發給客戶端。
+     * 接收者所在節點的專屬頻道。如果無法確定接收者所在節點，則退回廣播到
+     * /topic/privateMessage 頻道，由所有節點各自判斷是否轉發。
      * 
      * <p>處理流程：
      * <ol>
      *   <li>使用 ObjectMapper 將 PrivateMessage 序列化為 JSON 字串</li>
-     *   <li>透過 RedisTemplate 發布到 /topic/privateMessage 頻道</li>
-     *   <li>Redis 監聽器接收後檢查目標用戶是否連接在本節點</li>
-     *   <li>如果連接，則轉發給目標用戶；否則忽略</li>
+     *   <li>從 ClusterUserRegistry 查詢接收者所在節點</li>
+     *   <li>找到節點時發布到 /node/{nodeId}/privateMessage 頻道</li>
+     *   <li>找不到節點時發布到 /topic/privateMessage 頻道（廣播）</li>
      * </ol>
      * 
      * <p>多節點支援：
      * <ul>
-     *   <li>所有節點都訂閱 /topic/privateMessage 頻道</li>
-     *   <li>每個節點檢查目標用戶是否連接在本節點</li>
-     *   <li>只有目標用戶連接的節點才會轉發訊息</li>
+     *   <li>每個節點只訂閱自己的 /node/{nodeId}/privateMessage 頻道和廣播頻道</li>
+     *   <li>定向發布時每則私信只由一個節點反序列化，成本為 O(1) 而非 O(節點數)</li>
+     *   <li>可透過 cluster.private-routing.enabled=false 關閉定向路由</li>
      * </ul>
      * 
      * <p>錯誤處理：
@@ -164,13 +234,107 @@ public class RedisMessagePublisher {
         try {
             // 將 PrivateMessage 序列化為 JSON 字串
             String jsonMessage = objectMapper.writeValueAsString(privateMessage);
-            // 發布到 Redis /topic/privateMessage 頻道
-            redisTemplate.convertAndSend(privateTopic.getTopic(), jsonMessage);
-            log.info("私信已發布到 Redis /topic/privateMessage 頻道，接收者: {}", privateMessage.getRecipientId());
+            // 發布到接收者所在節點的頻道，找不到時廣播到 /topic/privateMessage 頻道
+            String channel = resolvePrivateMessageChannel(privateMessage.getRecipientId());
+            send(channel, jsonMessage);
+            log.info("私信已發布到 Redis {} 頻道，接收者: {}", channel, privateMessage.getRecipientId());
         } catch (JsonProcessingException e) {
             // 記錄錯誤，但不中斷執行
             log.error("Redis 私信發布失敗: {}", e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * 發布專員狀態更新到跨節點匯流排
+     * 
+     * <p>發布到 /topic/agentStatus 頻道（或 Stream），每個節點的 AgentStatusRelay
+     * 收到後合併並轉發給本節點訂閱 /topic/agentStatus 的客戶端。
+     * 
+     * <p>pubsub 模式下以 rawRedisTemplate 發布 JSON 位元組，避免 GenericJackson2JsonRedisSerializer
+     * 把 JSON 字串再包一層引號，監聽端可以直接反序列化為 AgentStatusMessage。
+     * 
+     * @param message 專員狀態訊息
+     * 
+     * @see com.hejz.springbootstomp.service.AgentStatusRelay#accept(AgentStatusMessage)
+     */
+    public void publishAgentStatus(AgentStatusMessage message) {
+        try {
+            if (isStreamMode()) {
+                send(AgentStatusRelay.CHANNEL, objectMapper.writeValueAsString(message));
+            } else {
+                rawRedisTemplate.convertAndSend(AgentStatusRelay.CHANNEL, objectMapper.writeValueAsBytes(message));
+            }
+            log.info("專員狀態已發布到 Redis {} 頻道：agentType={}, status={}",
+                    AgentStatusRelay.CHANNEL, message.getAgentType(), message.getStatus());
+        } catch (JsonProcessingException e) {
+            log.error("Redis 專員狀態發布失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 決定私信要發布的 Redis 頻道
+     * 
+     * @param recipientId 接收者 ID
+     * @return 接收者所在節點的專屬頻道；無法確定時返回廣播頻道
+     */
+    private String resolvePrivateMessageChannel(String recipientId) {
+        if (privateRoutingEnabled) {
+            String nodeId = clusterUserRegistry.findNode(recipientId);
+            if (nodeId != null) {
+                return ClusterNodeIdentity.privateMessageChannel(nodeId);
+            }
+            log.debug("找不到接收者所在節點，改為廣播：recipientId={}", recipientId);
+        }
+        return privateTopic.getTopic();
+    }
+
+    /**
+     * 依傳輸模式將訊息送出
+     * 
+     * <p>stream 模式下訊息以 channel/payload 兩個欄位寫入 Redis Stream，並以
+     * MAXLEN ~ 近似裁剪控制長度；pubsub 模式下直接發布到對應頻道。
+     * 
+     * @param channel 邏輯頻道名稱（與 Pub/Sub 頻道名稱相同）
+     * @param jsonMessage JSON 字串格式的訊息內容
+     */
+    private void send(String channel, String jsonMessage) {
+        if (!isStreamMode()) {
+            redisTemplate.convertAndSend(channel, jsonMessage);
+            return;
+        }
+        Map<String, String> fields = new HashMap<>(4);
+        fields.put(RedisStreamMessageConsumer.FIELD_CHANNEL, channel);
+        fields.put(RedisStreamMessageConsumer.FIELD_PAYLOAD, jsonMessage);
+        XAddOptions options = XAddOptions.maxlen(streamMaxLength).approximateTrimming(true);
+        RecordId recordId = stringRedisTemplate.execute((RedisCallback<RecordId>) connection ->
+                ((StringRedisConnection) connection).xAdd(
+                        StreamRecords.string(fields).withStreamKey(streamKey), options));
+        log.debug("訊息已寫入 Redis Stream：key={}, channel={}, id={}", streamKey, channel, recordId);
+    }
+
+    /**
+     * 以原始位元組發布公共訊息
+     * 
+     * <p>直接序列化為 byte[]，透過 byteArray 序列化器的 RedisTemplate 發布，
+     * 不產生中間字串，也不會被 JSON 序列化器再包一層。
+     * 
+     * @param message 要發布的 ResponseMessage 物件
+     */
+    private void publishRaw(ResponseMessage message) {
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(message);
+            rawRedisTemplate.convertAndSend(RedisRawMessageListener.RAW_CHAT_CHANNEL, payload);
+        } catch (JsonProcessingException e) {
+            log.error("Redis 原始位元組訊息發布失敗: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 是否使用 Redis Stream 作為跨節點傳輸
+     * 
+     * @return true 如果 chat.transport.mode=stream
+     */
+    public boolean isStreamMode() {
+        return RedisStreamMessageConsumer.TRANSPORT_MODE_STREAM.equalsIgnoreCase(transportMode);
+    }
+}
@@ -0,0 +1,72 @@
+package com.hejz.springbootstomp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Redis 原始位元組訊息監聽器
+ * 
+ * <p>此監聽器訂閱 /raw/topic/chat 頻道，將 Redis 收到的訊息位元組直接作為 STOMP
+ * 訊息的 payload 推送到 WebSocket /topic/chat，不經過任何反序列化或字串轉換。
+ * 
+ * <p>與 RedisMessageListener 的差異：
+ * <ul>
+ *   <li>RedisMessageListener：new String(body) → readValue() → convertAndSend()（再次序列化）</li>
+ *   <li>RedisRawMessageListener：body（byte[]）→ send()，附帶 application/json content-type</li>
+ * </ul>
+ * 
+ * <p>payload 是發布端以 ObjectMapper.writeValueAsBytes() 產生的 ResponseMessage JSON，
+ * 因此客戶端收到的內容與原本的 /topic/chat 訊息格式相同。
+ * 
+ * @see com.hejz.springbootstomp.RedisMessagePublisher#publish(com.hejz.springbootstomp.dto.ResponseMessage)
+ * @see com.hejz.springbootstomp.config.RedisConfig#rawRedisTemplate(org.springframework.data.redis.connection.RedisConnectionFactory)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class RedisRawMessageListener implements MessageListener {
+
+    /** Redis Pub/Sub 頻道：公共訊息的原始位元組頻道 */
+    public static final String RAW_CHAT_CHANNEL = "/raw/topic/chat";
+
+    /** WebSocket 目標頻道 */
+    private static final String CHAT_DESTINATION = "/topic/chat";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    /**
+     * 將 Redis 訊息位元組原樣轉發到 WebSocket /topic/chat 頻道
+     * 
+     * @param message Redis 訊息物件，body 為 JSON 位元組
+     * @param pattern 訊息匹配模式（目前未使用）
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        byte[] body = message.getBody();
+        if (body == null || body.length == 0) {
+            return;
+        }
+        try {
+            // 使用可變的 header，讓 SimpMessagingTemplate 直接補上 destination，不再複製訊息
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setLeaveMutable(true);
+            messagingTemplate.send(CHAT_DESTINATION, MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+            if (log.isDebugEnabled()) {
+                log.debug("原始位元組訊息已轉發到 WebSocket {}，長度: {}", CHAT_DESTINATION, body.length);
+            }
+        } catch (Exception e) {
+            log.error("原始位元組訊息轉發失敗: {}", e.getMessage(), e);
+        }
+    }
+}
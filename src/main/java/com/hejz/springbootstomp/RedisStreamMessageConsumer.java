@@ -0,0 +1,234 @@
+package com.hejz.springbootstomp;
+
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis Stream 訊息消費者
+ * 
+ * <p>當 chat.transport.mode=stream 時啟用，取代 Pub/Sub 作為跨節點的訊息扇出傳輸。
+ * 每個節點以自己的偏移量獨立讀取同一條 Stream，斷線重連後從上次處理的位置繼續，
+ * 不會像 Pub/Sub 一樣遺失斷線期間發布的訊息。
+ * 
+ * <p>主要功能：
+ * <ul>
+ *   <li>使用阻塞式 XREAD（COUNT + BLOCK）批次讀取訊息</li>
+ *   <li>每批處理完成後將最後的記錄 ID 寫入 chat:stream:offset:{nodeId}</li>
+ *   <li>啟動時從已保存的偏移量續傳；沒有偏移量時從 Stream 目前的末端開始</li>
+ *   <li>Redis 連接失敗時退避重試，恢復後從記憶體中的偏移量繼續</li>
+ * </ul>
+ * 
+ * <p>Stream 記錄格式：
+ * <ul>
+ *   <li>channel：邏輯頻道名稱（與 Pub/Sub 頻道相同，如 /topic/chat）</li>
+ *   <li>payload：JSON 字串格式的訊息內容</li>
+ * </ul>
+ * 
+ * <p>注意：偏移量以節點 ID 區分，只有配置固定的 cluster.node-id 時，節點重啟後才能續傳。
+ * 
+ * @see com.hejz.springbootstomp.RedisMessagePublisher
+ * @see com.hejz.springbootstomp.RedisMessageListener#dispatch(String, String)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.transport.mode", havingValue = "stream")
+public class RedisStreamMessageConsumer implements SmartLifecycle {
+
+    /** 傳輸模式：Redis Pub/Sub */
+    public static final String TRANSPORT_MODE_PUBSUB = "pubsub";
+
+    /** 傳輸模式：Redis Stream */
+    public static final String TRANSPORT_MODE_STREAM = "stream";
+
+    /** Stream 記錄欄位：邏輯頻道名稱 */
+    public static final String FIELD_CHANNEL = "channel";
+
+    /** Stream 記錄欄位：訊息內容 */
+    public static final String FIELD_PAYLOAD = "payload";
+
+    /** Redis 鍵前綴：每個節點的消費偏移量 */
+    private static final String OFFSET_KEY_PREFIX = "chat:stream:offset:";
+
+    /** 讀取失敗後的重試等待時間（毫秒） */
+    private static final long RETRY_BACKOFF_MILLIS = 1000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListener redisMessageListener;
+
+    @Autowired
+    private ClusterNodeIdentity clusterNodeIdentity;
+
+    @Value("${chat.transport.stream.key:chat:stream:fanout}")
+    private String streamKey;
+
+    /**
+     * 每次 XREAD 最多讀取的記錄數，從配置檔案讀取
+     */
+    @Value("${chat.transport.stream.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * XREAD 阻塞等待時間（毫秒），必須小於 Redis 命令超時時間
+     */
+    @Value("${chat.transport.stream.block-timeout:2000}")
+    private long blockTimeout;
+
+    /**
+     * 節點偏移量的過期時間（毫秒），節點長期下線後自動清理
+     */
+    @Value("${chat.transport.stream.offset-ttl:86400000}")
+    private long offsetTtl;
+
+    private volatile boolean running;
+
+    private Thread consumerThread;
+
+    /**
+     * 目前已處理到的記錄 ID
+     */
+    private volatile String lastId;
+
+    @Override
+    public void start() {
+        running = true;
+        consumerThread = new Thread(this::pollLoop, "redis-stream-consumer");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+        log.info("Redis Stream 消費者已啟動：key={}, nodeId={}, batchSize={}",
+                streamKey, clusterNodeIdentity.getNodeId(), batchSize);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (consumerThread != null) {
+            consumerThread.interrupt();
+            try {
+                // 最多等待一次阻塞讀取的時間，讓最後一批處理完成並保存偏移量
+                consumerThread.join(blockTimeout + RETRY_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Redis Stream 消費者已停止：lastId={}", lastId);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 消費迴圈：批次讀取、分派、保存偏移量
+     */
+    private void pollLoop() {
+        StreamReadOptions readOptions = StreamReadOptions.empty()
+                .count(batchSize)
+                .block(Duration.ofMillis(blockTimeout));
+        while (running) {
+            try {
+                if (lastId == null) {
+                    lastId = resolveStartId();
+                    log.info("Redis Stream 消費起始位置：{}", lastId);
+                }
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                        .read(readOptions, StreamOffset.create(streamKey, ReadOffset.from(lastId)));
+                if (records == null || records.isEmpty()) {
+                    continue;
+                }
+                for (MapRecord<String, Object, Object> record : records) {
+                    handleRecord(record);
+                    lastId = record.getId().getValue();
+                }
+                saveOffset();
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Redis Stream 讀取失敗，{} 毫秒後從 {} 重試: {}", RETRY_BACKOFF_MILLIS, lastId, e.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_BACKOFF_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 處理單筆 Stream 記錄
+     * 
+     * <p>其他節點的專屬私信頻道會被略過，只處理公共頻道、私信廣播頻道和本節點的私信頻道。
+     * 
+     * @param record Stream 記錄
+     */
+    private void handleRecord(MapRecord<String, Object, Object> record) {
+        Object channel = record.getValue().get(FIELD_CHANNEL);
+        Object payload = record.getValue().get(FIELD_PAYLOAD);
+        if (channel == null || payload == null) {
+            log.warn("略過格式不正確的 Stream 記錄：id={}", record.getId());
+            return;
+        }
+        String channelName = channel.toString();
+        if (ClusterNodeIdentity.isNodePrivateMessageChannel(channelName)
+                && !channelName.equals(clusterNodeIdentity.getPrivateMessageChannel())) {
+            return;
+        }
+        redisMessageListener.dispatch(channelName, payload.toString());
+    }
+
+    /**
+     * 決定消費起始位置
+     * 
+     * @return 已保存的偏移量；沒有時返回 Stream 最後一筆記錄的 ID，Stream 為空時返回 0-0
+     */
+    private String resolveStartId() {
+        String saved = stringRedisTemplate.opsForValue().get(offsetKey());
+        if (saved != null) {
+            return saved;
+        }
+        List<MapRecord<String, Object, Object>> latest = stringRedisTemplate.opsForStream()
+                .reverseRange(streamKey, Range.unbounded(), Limit.limit().count(1));
+        if (latest != null && !latest.isEmpty()) {
+            return latest.get(0).getId().getValue();
+        }
+        return "0-0";
+    }
+
+    /**
+     * 保存目前節點的偏移量（每批一次）
+     */
+    private void saveOffset() {
+        try {
+            stringRedisTemplate.opsForValue().set(offsetKey(), lastId, offsetTtl, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("保存 Redis Stream 偏移量失敗：lastId={}, error={}", lastId, e.getMessage());
+        }
+    }
+
+    private String offsetKey() {
+        return OFFSET_KEY_PREFIX + clusterNodeIdentity.getNodeId();
+    }
+}
@@ -2,6 +2,7 @@ package com.hejz.springbootstomp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Spring Boot STOMP WebSocket 應用程式主類別
@@ -16,7 +17,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * 
  * <p>應用程式啟動後，可透過以下端點進行連接：
  * <ul>
- *   <li>WebSocket 端點：/our-websocket</li>
+ *   <li>WebSocket 端點：/our-websocket-native（原生 WebSocket）、/our-websocket（SockJS 備援）</li>
  *   <li>公共訊息頻道：/topic/chat</li>
  *   <li>私信頻道：/topic/privateMessage</li>
  * </ul>
@@ -26,6 +27,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * @version 1.0
  */
 @SpringBootApplication
+@EnableScheduling
 public class SpringBootStompApplication {
 
     /**
@@ -1,12 +1,18 @@
 package com.hejz.springbootstomp;
 
+import com.hejz.springbootstomp.config.InstrumentedChannelExecutor;
 import com.hejz.springbootstomp.config.WebSocketInterceptor;
+import com.hejz.springbootstomp.service.SessionActivityTracker;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 /**
@@ -27,15 +33,25 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  *   <li>WebSocket 端點：/our-websocket（支援 SockJS）</li>
  *   <li>訊息代理前綴：/topic（用於訂閱頻道）</li>
  *   <li>應用程式目標前綴：ws（用於發送訊息）</li>
+ *   <li>client.status.liveness.mode=stomp 時啟用簡單代理的 STOMP 原生心跳，
+ *       並由 SessionActivityTracker 依會話活動判斷在線狀態</li>
+ *   <li>clientInbound、clientOutbound 通道（以及 websocket.channel.broker.enabled=true 時的 broker 通道）
+ *       使用 InstrumentedChannelExecutor：執行緒數和佇列容量由 websocket.channel.* 設定，佇列有上限，
+ *       佇列滿時依 rejection-policy 處理；core-pool-size、max-pool-size 為 0 時依 CPU 核心數計算</li>
+ *   <li>每個會話的出站緩衝以 websocket.transport.* 限制：寫入時間或緩衝超過上限時，
+ *       /topic/chat 等可丟棄的目的地丟棄最舊的訊息，其他目的地剔除慢速客戶端</li>
  * </ul>
  * 
+ * <p>訊息代理由 WebSocketMessageBrokerConfig 啟用（取代 @EnableWebSocketMessageBroker），
+ * 本類別作為 WebSocketMessageBrokerConfigurer 提供各項設定。
+ * 
  * @see com.hejz.springbootstomp.WebSocketConfigTests
  * @see com.hejz.springbootstomp.Userhandshakehandler
+ * @see com.hejz.springbootstomp.config.WebSocketMessageBrokerConfig
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
     @Autowired
@@ -43,6 +59,98 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
     @Autowired
     private com.hejz.springbootstomp.service.AgentService agentService;
+
+    /**
+     * 會話活動追蹤器（僅 client.status.liveness.mode=stomp 時存在）
+     */
+    @Autowired(required = false)
+    private SessionActivityTracker sessionActivityTracker;
+
+    /**
+     * 簡單代理發送 STOMP 心跳所需的排程器（延遲注入，避免與 WebSocket 配置互相依賴）
+     */
+    @Autowired(required = false)
+    @Lazy
+    @Qualifier("messageBrokerTaskScheduler")
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    /**
+     * 在線狀態判斷模式：application（/ws/heartbeat 應用層心跳）或 stomp（STOMP 原生心跳 + 會話活動）
+     */
+    @Value("${client.status.liveness.mode:application}")
+    private String livenessMode = "application";
+
+    /**
+     * 伺服器發送心跳的間隔（毫秒）
+     */
+    @Value("${client.status.liveness.stomp.server-heartbeat:10000}")
+    private long serverHeartbeat = 10000;
+
+    /**
+     * 期望客戶端發送心跳的間隔（毫秒）
+     */
+    @Value("${client.status.liveness.stomp.client-heartbeat:10000}")
+    private long clientHeartbeat = 10000;
+
+    @Value("${websocket.channel.inbound.core-pool-size:0}")
+    private int inboundCorePoolSize = 0;
+
+    @Value("${websocket.channel.inbound.max-pool-size:0}")
+    private int inboundMaxPoolSize = 0;
+
+    @Value("${websocket.channel.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity = 10000;
+
+    @Value("${websocket.channel.inbound.rejection-policy:CALLER_RUNS}")
+    private InstrumentedChannelExecutor.RejectionPolicy inboundRejectionPolicy = InstrumentedChannelExecutor.RejectionPolicy.CALLER_RUNS;
+
+    @Value("${websocket.channel.outbound.core-pool-size:0}")
+    private int outboundCorePoolSize = 0;
+
+    @Value("${websocket.channel.outbound.max-pool-size:0}")
+    private int outboundMaxPoolSize = 0;
+
+    @Value("${websocket.channel.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity = 10000;
+
+    @Value("${websocket.channel.outbound.rejection-policy:CALLER_RUNS}")
+    private InstrumentedChannelExecutor.RejectionPolicy outboundRejectionPolicy = InstrumentedChannelExecutor.RejectionPolicy.CALLER_RUNS;
+
+    /**
+     * broker 通道是否使用執行緒池；預設為 false，與 Spring 相同在發送執行緒上同步處理
+     */
+    @Value("${websocket.channel.broker.enabled:false}")
+    private boolean brokerExecutorEnabled = false;
+
+    @Value("${websocket.channel.broker.core-pool-size:0}")
+    private int brokerCorePoolSize = 0;
+
+    @Value("${websocket.channel.broker.max-pool-size:0}")
+    private int brokerMaxPoolSize = 0;
+
+    @Value("${websocket.channel.broker.queue-capacity:10000}")
+    private int brokerQueueCapacity = 10000;
+
+    @Value("${websocket.channel.broker.rejection-policy:CALLER_RUNS}")
+    private InstrumentedChannelExecutor.RejectionPolicy brokerRejectionPolicy = InstrumentedChannelExecutor.RejectionPolicy.CALLER_RUNS;
+
+    /**
+     * 通道執行緒池閒置執行緒的存活時間（秒）
+     */
+    @Value("${websocket.channel.keep-alive-seconds:60}")
+    private int channelKeepAliveSeconds = 60;
+
+    /**
+     * 每個會話單次寫入的時間上限（毫秒）
+     */
+    @Value("${websocket.transport.send-time-limit:10000}")
+    private int sendTimeLimit = 10000;
+
+    /**
+     * 每個會話出站緩衝的大小上限（位元組）
+     */
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit = 512 * 1024;
     
     /**
      * 註冊 STOMP 端點
@@ -52,13 +160,17 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      * 
      * <p>配置說明：
      * <ul>
-     *   <li>端點路徑：/our-websocket</li>
-     *   <li>握手處理器：Userhandshakehandler（為每個連接生成唯一 ID）</li>
-     *   <li>SockJS 支援：啟用 SockJS，提供更好的瀏覽器兼容性</li>
+     *   <li>原生端點：/our-websocket-native，直接以 WebSocket 傳送 STOMP 框架，
+     *       沒有 SockJS 的 /info 請求、傳輸協商和框架包裝，支援 WebSocket 的瀏覽器優先使用</li>
+     *   <li>SockJS 端點：/our-websocket，作為無法建立 WebSocket 時（例如代理阻擋升級）的備援</li>
+     *   <li>握手處理器：兩個端點共用同一個 Userhandshakehandler（為每個連接生成唯一 ID）</li>
      * </ul>
      * 
      * <p>客戶端連接範例：
      * <pre>
+     * // 原生 WebSocket
+     * const stompClient = Stomp.client('ws://' + location.host + '/our-websocket-native');
+     * // SockJS 備援
      * const socket = new SockJS('/our-websocket');
      * const stompClient = Stomp.over(socket);
      * </pre>
@@ -75,10 +187,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         Userhandshakehandler handshakeHandler = new Userhandshakehandler();
         handshakeHandler.setAgentService(agentService);
         
+        // 原生 WebSocket 端點，不經過 SockJS
+        registry.addEndpoint("our-websocket-native")
+                .setHandshakeHandler(handshakeHandler);
+
         registry.addEndpoint("our-websocket")
                 // 添加自訂握手處理器，為每個連接分配唯一的使用者 ID
                 .setHandshakeHandler(handshakeHandler)
-                // 啟用 SockJS 支援，提供更好的瀏覽器兼容性
+                // 啟用 SockJS 支援，作為無法使用原生 WebSocket 時的備援
                 .withSockJS();
     }
 
@@ -119,7 +235,14 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // /topic 用於公共頻道（如 /topic/chat）
         // 注意：/user 前綴應該由 UserDestinationMessageHandler 處理，
         //       不應該同時在 enableSimpleBroker 中啟用，這會導致路由衝突
-        registry.enableSimpleBroker("/topic");
+        if ("stomp".equals(livenessMode)) {
+            // 啟用 STOMP 原生心跳：{伺服器發送間隔, 期望客戶端發送間隔}
+            registry.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[]{serverHeartbeat, clientHeartbeat})
+                    .setTaskScheduler(messageBrokerTaskScheduler);
+        } else {
+            registry.enableSimpleBroker("/topic");
+        }
         // 設定應用程式目標前綴，客戶端發送訊息時使用（如 /ws/message）
         // 注意：必須包含前導斜線，否則路由匹配會失敗
         registry.setApplicationDestinationPrefixes("/ws");
@@ -128,14 +251,67 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // 實際發送的路徑會是 /user/{userId}/topic/privateMessage
         // UserDestinationMessageHandler 會將此路徑轉換為實際的訂閱路徑
         registry.setUserDestinationPrefix("/user");
+        if (brokerExecutorEnabled) {
+            // broker 通道改為非同步處理，使用有上限的執行緒池
+            registry.configureBrokerChannel().taskExecutor(createChannelExecutor("brokerChannel",
+                    brokerCorePoolSize, brokerMaxPoolSize, brokerQueueCapacity, brokerRejectionPolicy));
+        }
     }
     
+    /**
+     * 配置 WebSocket 傳輸限制
+     * 
+     * <p>寫入時間和緩衝大小的上限由 SlowConsumerSubProtocolWebSocketHandler 套用到每個會話。
+     * 
+     * @param registration WebSocket 傳輸註冊表
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit);
+    }
+
     /**
      * 配置客戶端入站通道攔截器
      * 用於記錄所有從客戶端發送到伺服器的訊息
      */
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(webSocketInterceptor);
+        if (sessionActivityTracker != null) {
+            registration.interceptors(webSocketInterceptor, sessionActivityTracker);
+        } else {
+            registration.interceptors(webSocketInterceptor);
+        }
+        registration.taskExecutor(createChannelExecutor("clientInboundChannel",
+                inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity, inboundRejectionPolicy));
+    }
+
+    /**
+     * 配置客戶端出站通道的執行緒池
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(createChannelExecutor("clientOutboundChannel",
+                outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity, outboundRejectionPolicy));
+    }
+
+    /**
+     * 建立通道執行緒池
+     * 
+     * <p>核心執行緒數為 0 時使用 CPU 核心數 × 2（與 Spring 預設相同），最大執行緒數為 0 時使用核心執行緒數 × 2。
+     * 
+     * @param channelName 通道名稱
+     * @param corePoolSize 核心執行緒數（0 表示自動）
+     * @param maxPoolSize 最大執行緒數（0 表示自動）
+     * @param queueCapacity 佇列容量
+     * @param rejectionPolicy 佇列滿時的拒絕策略
+     * @return 通道執行緒池，由 Spring 以 {channelName}Executor bean 初始化和關閉
+     */
+    private InstrumentedChannelExecutor createChannelExecutor(String channelName, int corePoolSize, int maxPoolSize,
+                                                              int queueCapacity,
+                                                              InstrumentedChannelExecutor.RejectionPolicy rejectionPolicy) {
+        int core = corePoolSize > 0 ? corePoolSize : Runtime.getRuntime().availableProcessors() * 2;
+        int max = maxPoolSize > 0 ? maxPoolSize : core * 2;
+        return new InstrumentedChannelExecutor(channelName, core, max, queueCapacity, channelKeepAliveSeconds, rejectionPolicy);
     }
 }
@@ -0,0 +1,171 @@
+package com.hejz.springbootstomp.config;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 廣播訊息只編碼一次的 STOMP 編碼器
+ * 
+ * <p>簡單代理廣播 /topic/chat 時，對每個訂閱的會話各產生一則訊息，這些訊息共用同一個 payload 陣列，
+ * 只有 subscription 和 message-id 標頭不同；預設的 StompEncoder 會為每個會話重新編碼整個框架。
+ * 
+ * <p>本編碼器對 MESSAGE 框架：
+ * <ol>
+ *   <li>以 payload 陣列（同一實例）為鍵，將去掉 subscription、message-id 後的共用標頭和內容編碼一次並快取</li>
+ *   <li>每個會話只編碼自己的 subscription、message-id 標頭，再與共用部分拼接</li>
+ * </ol>
+ * 共用標頭不同（例如同一 payload 送到不同目的地）時重新編碼，並取代快取。
+ * 快取以 WeakHashMap 保存，payload 不再被引用時自動移除。
+ * 
+ * <p>其他框架（CONNECTED、RECEIPT、ERROR、心跳）使用 StompEncoder 的預設編碼。
+ * 
+ * @see com.hejz.springbootstomp.config.SlowConsumerSubProtocolWebSocketHandler
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+public class CachingStompEncoder extends StompEncoder {
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SUBSCRIPTION_HEADER = "subscription:".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] MESSAGE_ID_HEADER = "message-id:".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 一則廣播訊息的共用部分
+     */
+    private static final class SharedFrame {
+        final Map<String, List<String>> sharedHeaders;
+        final byte[] frame;
+
+        SharedFrame(Map<String, List<String>> sharedHeaders, byte[] frame) {
+            this.sharedHeaders = sharedHeaders;
+            this.frame = frame;
+        }
+    }
+
+    private final Map<byte[], SharedFrame> cache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        if (StompHeaderAccessor.getCommand(headers) != StompCommand.MESSAGE) {
+            return super.encode(headers, payload);
+        }
+        Map<String, List<String>> nativeHeaders =
+                (Map<String, List<String>>) headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        String subscription = singleValue(nativeHeaders, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+        String messageId = singleValue(nativeHeaders, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER);
+        if (subscription == null || messageId == null) {
+            return super.encode(headers, payload);
+        }
+
+        Map<String, List<String>> sharedHeaders = new LinkedHashMap<>(nativeHeaders);
+        sharedHeaders.remove(StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+        sharedHeaders.remove(StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER);
+
+        SharedFrame shared = cache.get(payload);
+        if (shared != null && shared.sharedHeaders.equals(sharedHeaders)) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+            Map<String, Object> sharedMessageHeaders = new LinkedHashMap<>(headers);
+            sharedMessageHeaders.put(NativeMessageHeaderAccessor.NATIVE_HEADERS, sharedHeaders);
+            shared = new SharedFrame(sharedHeaders, super.encode(sharedMessageHeaders, payload));
+            cache.put(payload, shared);
+        }
+        return splice(shared.frame, escape(subscription), escape(messageId));
+    }
+
+    /**
+     * 獲取共用部分的快取命中次數
+     * 
+     * @return 命中次數
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 獲取需要完整編碼的次數
+     * 
+     * @return 未命中次數
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 在共用框架的命令列之後插入本會話的 subscription、message-id 標頭
+     */
+    private static byte[] splice(byte[] frame, byte[] subscription, byte[] messageId) {
+        int perSession = SUBSCRIPTION_HEADER.length + subscription.length + 1 + MESSAGE_ID_HEADER.length + messageId.length + 1;
+        byte[] result = new byte[frame.length + perSession];
+        int position = 0;
+        System.arraycopy(MESSAGE_COMMAND, 0, result, position, MESSAGE_COMMAND.length);
+        position += MESSAGE_COMMAND.length;
+        position = writeHeader(result, position, SUBSCRIPTION_HEADER, subscription);
+        position = writeHeader(result, position, MESSAGE_ID_HEADER, messageId);
+        System.arraycopy(frame, MESSAGE_COMMAND.length, result, position, frame.length - MESSAGE_COMMAND.length);
+        return result;
+    }
+
+    private static int writeHeader(byte[] target, int position, byte[] key, byte[] value) {
+        System.arraycopy(key, 0, target, position, key.length);
+        position += key.length;
+        System.arraycopy(value, 0, target, position, value.length);
+        position += value.length;
+        target[position++] = '\n';
+        return position;
+    }
+
+    private static String singleValue(Map<String, List<String>> nativeHeaders, String name) {
+        if (nativeHeaders == null) {
+            return null;
+        }
+        List<String> values = nativeHeaders.get(name);
+        return values != null && values.size() == 1 ? values.get(0) : null;
+    }
+
+    /**
+     * 依 STOMP 1.2 規則跳脫標頭值（與 StompEncoder 相同）
+     */
+    private static byte[] escape(String value) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ':' -> "\\c";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 8).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+        return (escaped != null ? escaped.toString() : value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+package com.hejz.springbootstomp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * WebSocket 通道執行緒池的指標
+ * 
+ * <p>收集 WebSocketConfig 設定的 InstrumentedChannelExecutor（clientInbound、clientOutbound，
+ * 以及啟用時的 broker 通道），提供 getExecutors() 查詢，並定期記錄活動執行緒數、佇列長度、
+ * 佇列等待時間和拒絕次數，在飽和變成延遲之前就能看到。
+ * 
+ * @see com.hejz.springbootstomp.config.InstrumentedChannelExecutor
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ChannelExecutorMetrics {
+
+    @Autowired(required = false)
+    @Qualifier("clientInboundChannelExecutor")
+    private Executor clientInboundChannelExecutor;
+
+    @Autowired(required = false)
+    @Qualifier("clientOutboundChannelExecutor")
+    private Executor clientOutboundChannelExecutor;
+
+    @Autowired(required = false)
+    @Qualifier("brokerChannelExecutor")
+    private Executor brokerChannelExecutor;
+
+    /**
+     * 獲取帶有指標的通道執行緒池
+     * 
+     * @return 通道名稱 → 執行緒池；未使用 InstrumentedChannelExecutor 的通道不包含在內
+     */
+    public Map<String, InstrumentedChannelExecutor> getExecutors() {
+        Map<String, InstrumentedChannelExecutor> executors = new LinkedHashMap<>();
+        for (Executor executor : new Executor[]{clientInboundChannelExecutor, clientOutboundChannelExecutor, brokerChannelExecutor}) {
+            if (executor instanceof InstrumentedChannelExecutor) {
+                InstrumentedChannelExecutor instrumented = (InstrumentedChannelExecutor) executor;
+                executors.put(instrumented.getChannelName(), instrumented);
+            }
+        }
+        return executors;
+    }
+
+    /**
+     * 定期記錄各通道執行緒池的指標
+     */
+    @Scheduled(fixedDelayString = "${websocket.channel.metrics.log-interval:60000}")
+    public void logMetrics() {
+        for (InstrumentedChannelExecutor executor : getExecutors().values()) {
+            try {
+                log.info("WebSocket 通道執行緒池 {}：active={}, pool={}/{}, queue={}, completed={}, rejected={}, "
+                                + "avgQueueLatency={}ms, maxQueueLatency={}ms, avgExecution={}ms",
+                        executor.getChannelName(), executor.getActiveCount(), executor.getPoolSize(),
+                        executor.getMaxPoolSize(), executor.getQueueSize(), executor.getCompletedCount(),
+                        executor.getRejectedCount(), String.format("%.2f", executor.getAverageQueueLatencyMillis()),
+                        executor.getAndResetMaxQueueLatencyMillis(),
+                        String.format("%.2f", executor.getAverageExecutionMillis()));
+            } catch (IllegalStateException e) {
+                // 執行緒池尚未初始化
+                log.debug("WebSocket 通道執行緒池 {} 尚未初始化", executor.getChannelName());
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.hejz.springbootstomp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 叢集節點識別
+ * 
+ * <p>此元件為目前節點提供唯一的節點 ID，用於多節點部署時的定向路由，
+ * 例如用戶→節點註冊表和每個節點專屬的私信頻道。
+ * 
+ * <p>節點 ID 來源：
+ * <ul>
+ *   <li>優先使用配置 cluster.node-id（建議在固定部署中設置，重啟後保持不變）</li>
+ *   <li>未配置時在啟動時隨機生成</li>
+ * </ul>
+ * 
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class ClusterNodeIdentity {
+
+    /**
+     * 節點專屬頻道前綴
+     */
+    public static final String NODE_CHANNEL_PREFIX = "/node/";
+
+    /**
+     * 節點專屬私信頻道後綴
+     */
+    public static final String PRIVATE_MESSAGE_CHANNEL_SUFFIX = "/privateMessage";
+
+    private final String nodeId;
+
+    public ClusterNodeIdentity(@Value("${cluster.node-id:}") String configuredNodeId) {
+        if (configuredNodeId != null && !configuredNodeId.trim().isEmpty()) {
+            this.nodeId = configuredNodeId.trim();
+        } else {
+            this.nodeId = UUID.randomUUID().toString().replaceAll("-", "");
+        }
+        log.info("叢集節點 ID: {}", nodeId);
+    }
+
+    /**
+     * 獲取目前節點的 ID
+     * 
+     * @return 節點 ID
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 獲取目前節點專屬的私信頻道
+     * 
+     * @return 私信頻道名稱（如 /node/{nodeId}/privateMessage）
+     */
+    public String getPrivateMessageChannel() {
+        return privateMessageChannel(nodeId);
+    }
+
+    /**
+     * 獲取指定節點專屬的私信頻道
+     * 
+     * @param nodeId 節點 ID
+     * @return 私信頻道名稱（如 /node/{nodeId}/privateMessage）
+     */
+    public static String privateMessageChannel(String nodeId) {
+        return NODE_CHANNEL_PREFIX + nodeId + PRIVATE_MESSAGE_CHANNEL_SUFFIX;
+    }
+
+    /**
+     * 判斷頻道是否為節點專屬私信頻道
+     * 
+     * @param channel Redis 頻道名稱
+     * @return true 如果是 /node/{nodeId}/privateMessage 格式的頻道
+     */
+    public static boolean isNodePrivateMessageChannel(String channel) {
+        return channel != null
+                && channel.startsWith(NODE_CHANNEL_PREFIX)
+                && channel.endsWith(PRIVATE_MESSAGE_CHANNEL_SUFFIX);
+    }
+}
@@ -0,0 +1,295 @@
+package com.hejz.springbootstomp.config;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 以索引查詢訂閱的 SubscriptionRegistry，取代簡單代理預設的 DefaultSubscriptionRegistry
+ * 
+ * <p>DefaultSubscriptionRegistry 在快取未命中時要走訪所有會話的訂閱逐一比對，
+ * 快取上限（1024 個目的地）在每用戶、每房間的目的地越來越多時命中率下降。本類別改為：
+ * <ul>
+ *   <li>精確目的地（不含 *、?、{}）：以目的地為鍵的雜湊表，查詢 O(1)</li>
+ *   <li>萬用字元模式：依模式開頭不含萬用字元的路徑段建立前綴樹，查詢時只沿著目的地的路徑段往下走，
+ *       途經節點上的模式才以 AntPathMatcher 確認</li>
+ * </ul>
+ * 
+ * <p>並行：每個目的地（或模式）的訂閱保存在 ConcurrentHashMap（每個會話的訂閱 ID 列表不可變，變更時整個替換），
+ * 查詢返回它的唯讀視圖，不加鎖也不複製，5000 人的房間與單人目的地的查詢成本相同；
+ * 新增、移除訂閱時依目的地雜湊取得分段鎖，不同目的地的變更互不阻塞。
+ * 
+ * <p>不支援 DefaultSubscriptionRegistry 的 selector 標頭（本專案沒有使用）。
+ * 
+ * @see com.hejz.springbootstomp.config.WebSocketMessageBrokerConfig
+ * @see org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+public class IndexedSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    private static final String SEPARATOR = AntPathMatcher.DEFAULT_PATH_SEPARATOR;
+
+    private static final MultiValueMap<String, String> EMPTY_MAP =
+            CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    /**
+     * 一個目的地（或模式）的訂閱，sessionId 對應訂閱 ID 列表
+     */
+    private static final class Subscribers {
+        final ConcurrentMap<String, List<String>> sessions = new ConcurrentHashMap<>();
+        final MultiValueMap<String, String> view =
+                CollectionUtils.unmodifiableMultiValueMap(CollectionUtils.toMultiValueMap(sessions));
+    }
+
+    /**
+     * 前綴樹節點：子節點以路徑段為鍵，patterns 為前綴在此結束的模式
+     */
+    private static final class Node {
+        final ConcurrentMap<String, Node> children = new ConcurrentHashMap<>();
+        final ConcurrentMap<String, Subscribers> patterns = new ConcurrentHashMap<>();
+    }
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /** 精確目的地的索引 */
+    private final ConcurrentMap<String, Subscribers> destinations = new ConcurrentHashMap<>();
+
+    /** 萬用字元模式的前綴樹 */
+    private final Node root = new Node();
+
+    /** 每個會話的訂閱：subscriptionId 對應目的地，用於取消訂閱和斷線清理 */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> sessions = new ConcurrentHashMap<>();
+
+    private final Object[] locks;
+
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    public IndexedSubscriptionRegistry() {
+        this(64);
+    }
+
+    /**
+     * @param stripes 分段鎖的數量（會調整為 2 的冪次）
+     */
+    public IndexedSubscriptionRegistry(int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        locks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 獲取目前的訂閱總數
+     * 
+     * @return 訂閱數
+     */
+    public int getSubscriptionCount() {
+        return subscriptionCount.get();
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination, Message<?> message) {
+        ConcurrentMap<String, String> subscriptions = sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>());
+        String previous = subscriptions.put(subscriptionId, destination);
+        if (previous != null) {
+            // 同一個訂閱 ID 重新訂閱，先移除舊的目的地
+            remove(sessionId, subscriptionId, previous);
+        }
+        add(sessionId, subscriptionId, destination);
+        // 訂閱期間會話已斷線清理，撤銷這次新增
+        if (sessions.get(sessionId) != subscriptions) {
+            subscriptions.remove(subscriptionId, destination);
+            remove(sessionId, subscriptionId, destination);
+        }
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        ConcurrentMap<String, String> subscriptions = sessions.get(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        String destination = subscriptions.remove(subscriptionId);
+        if (destination != null) {
+            remove(sessionId, subscriptionId, destination);
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        ConcurrentMap<String, String> subscriptions = sessions.remove(sessionId);
+        if (subscriptions == null) {
+            return;
+        }
+        for (Map.Entry<String, String> entry : subscriptions.entrySet()) {
+            if (subscriptions.remove(entry.getKey(), entry.getValue())) {
+                remove(sessionId, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        Subscribers exact = destinations.get(destination);
+        MultiValueMap<String, String> result = exact != null ? exact.view : null;
+        List<MultiValueMap<String, String>> matched = null;
+
+        // 沿著目的地的路徑段走前綴樹，收集途經節點上符合的模式
+        String[] segments = tokenize(destination);
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            if (!node.patterns.isEmpty()) {
+                for (Map.Entry<String, Subscribers> entry : node.patterns.entrySet()) {
+                    MultiValueMap<String, String> view = entry.getValue().view;
+                    if (!view.isEmpty() && pathMatcher.match(entry.getKey(), destination)) {
+                        if (matched == null) {
+                            matched = new ArrayList<>(2);
+                        }
+                        matched.add(view);
+                    }
+                }
+            }
+            node = depth < segments.length ? node.children.get(segments[depth++]) : null;
+        }
+
+        if (matched == null) {
+            return result != null ? result : EMPTY_MAP;
+        }
+        if (result == null && matched.size() == 1) {
+            return matched.get(0);
+        }
+        // 同時符合多個來源時才合併，並去除重複的訂閱 ID
+        MultiValueMap<String, String> merged = new LinkedMultiValueMap<>();
+        if (result != null) {
+            merge(merged, result);
+        }
+        for (MultiValueMap<String, String> view : matched) {
+            merge(merged, view);
+        }
+        return merged;
+    }
+
+    private void add(String sessionId, String subscriptionId, String destination) {
+        synchronized (lockFor(destination)) {
+            Subscribers subscribers = subscribersFor(destination, true);
+            List<String> ids = subscribers.sessions.get(sessionId);
+            if (ids == null) {
+                subscribers.sessions.put(sessionId, List.of(subscriptionId));
+            } else if (!ids.contains(subscriptionId)) {
+                List<String> updated = new ArrayList<>(ids.size() + 1);
+                updated.addAll(ids);
+                updated.add(subscriptionId);
+                subscribers.sessions.put(sessionId, Collections.unmodifiableList(updated));
+            } else {
+                return;
+            }
+            subscriptionCount.incrementAndGet();
+        }
+    }
+
+    private void remove(String sessionId, String subscriptionId, String destination) {
+        synchronized (lockFor(destination)) {
+            Subscribers subscribers = subscribersFor(destination, false);
+            if (subscribers == null) {
+                return;
+            }
+            List<String> ids = subscribers.sessions.get(sessionId);
+            if (ids == null || !ids.contains(subscriptionId)) {
+                return;
+            }
+            if (ids.size() == 1) {
+                subscribers.sessions.remove(sessionId);
+            } else {
+                List<String> updated = new ArrayList<>(ids);
+                updated.remove(subscriptionId);
+                subscribers.sessions.put(sessionId, Collections.unmodifiableList(updated));
+            }
+            subscriptionCount.decrementAndGet();
+            if (subscribers.sessions.isEmpty()) {
+                removeSubscribers(destination, subscribers);
+            }
+        }
+    }
+
+    /**
+     * 取得目的地（或模式）的訂閱項目，需持有該目的地的分段鎖
+     */
+    private Subscribers subscribersFor(String destination, boolean create) {
+        if (!pathMatcher.isPattern(destination)) {
+            return create ? destinations.computeIfAbsent(destination, d -> new Subscribers()) : destinations.get(destination);
+        }
+        Node node = root;
+        for (String segment : tokenize(destination)) {
+            if (pathMatcher.isPattern(segment)) {
+                break;
+            }
+            node = create ? node.children.computeIfAbsent(segment, s -> new Node()) : node.children.get(segment);
+            if (node == null) {
+                return null;
+            }
+        }
+        return create ? node.patterns.computeIfAbsent(destination, d -> new Subscribers()) : node.patterns.get(destination);
+    }
+
+    /**
+     * 移除已沒有訂閱的目的地；前綴樹的節點保留，供之後的模式重複使用
+     */
+    private void removeSubscribers(String destination, Subscribers subscribers) {
+        if (!pathMatcher.isPattern(destination)) {
+            destinations.remove(destination, subscribers);
+            return;
+        }
+        Node node = root;
+        for (String segment : tokenize(destination)) {
+            if (pathMatcher.isPattern(segment)) {
+                break;
+            }
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+        }
+        node.patterns.remove(destination, subscribers);
+    }
+
+    private Object lockFor(String destination) {
+        int hash = destination.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (locks.length - 1)];
+    }
+
+    private static String[] tokenize(String destination) {
+        return StringUtils.tokenizeToStringArray(destination, SEPARATOR, false, true);
+    }
+
+    private static void merge(MultiValueMap<String, String> target, MultiValueMap<String, String> source) {
+        for (Map.Entry<String, List<String>> entry : source.entrySet()) {
+            List<String> ids = target.computeIfAbsent(entry.getKey(), id -> new ArrayList<>(entry.getValue().size()));
+            for (String id : entry.getValue()) {
+                if (!ids.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "IndexedSubscriptionRegistry[destinations=" + destinations.size() + ", sessions=" + sessions.size() +
+                ", subscriptions=" + subscriptionCount.get() + "]";
+    }
+}
@@ -0,0 +1,183 @@
+package com.hejz.springbootstomp.config;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帶有指標的 WebSocket 通道執行緒池
+ * 
+ * <p>取代 Spring 預設的通道執行緒池（佇列無上限、沒有可觀測性），用於 clientInbound、
+ * clientOutbound 和 broker 通道。佇列有上限，佇列滿且執行緒數達到上限時依 RejectionPolicy 處理。
+ * 
+ * <p>指標：
+ * <ul>
+ *   <li>getActiveCount()：正在執行任務的執行緒數</li>
+ *   <li>getQueueSize()：佇列中等待的任務數</li>
+ *   <li>佇列等待時間（提交到開始執行）和執行時間：平均值，以及上次讀取後的最大等待時間</li>
+ *   <li>getRejectedCount()：觸發拒絕策略的次數</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.WebSocketConfig
+ * @see com.hejz.springbootstomp.config.ChannelExecutorMetrics
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+public class InstrumentedChannelExecutor extends ThreadPoolTaskExecutor {
+
+    /**
+     * 佇列滿時的拒絕策略
+     */
+    public enum RejectionPolicy {
+        /** 由提交任務的執行緒直接執行，形成背壓 */
+        CALLER_RUNS,
+        /** 拋出 RejectedExecutionException，訊息發送失敗 */
+        ABORT,
+        /** 丟棄目前的任務 */
+        DISCARD,
+        /** 丟棄佇列中最舊的任務 */
+        DISCARD_OLDEST
+    }
+
+    private final String channelName;
+
+    private final RejectionPolicy rejectionPolicy;
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final AtomicLong totalQueueNanos = new AtomicLong();
+
+    private final AtomicLong totalExecutionNanos = new AtomicLong();
+
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+
+    /**
+     * 建立通道執行緒池
+     * 
+     * @param channelName 通道名稱，同時作為執行緒名稱前綴
+     * @param corePoolSize 核心執行緒數
+     * @param maxPoolSize 最大執行緒數
+     * @param queueCapacity 佇列容量
+     * @param keepAliveSeconds 閒置執行緒的存活時間（秒）
+     * @param rejectionPolicy 佇列滿時的拒絕策略
+     */
+    public InstrumentedChannelExecutor(String channelName, int corePoolSize, int maxPoolSize, int queueCapacity,
+                                       int keepAliveSeconds, RejectionPolicy rejectionPolicy) {
+        this.channelName = channelName;
+        this.rejectionPolicy = rejectionPolicy;
+        setThreadNamePrefix(channelName + "-");
+        setCorePoolSize(corePoolSize);
+        setMaxPoolSize(Math.max(corePoolSize, maxPoolSize));
+        setQueueCapacity(queueCapacity);
+        setKeepAliveSeconds(keepAliveSeconds);
+        // 與 Spring 預設的通道執行緒池相同，閒置時核心執行緒也會回收
+        setAllowCoreThreadTimeOut(true);
+        setTaskDecorator(this::instrument);
+        setRejectedExecutionHandler(countingHandler(rejectionPolicy));
+    }
+
+    public String getChannelName() {
+        return channelName;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * 獲取累計完成的任務數
+     * 
+     * @return 完成數
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * 獲取累計觸發拒絕策略的次數
+     * 
+     * @return 拒絕次數
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 獲取平均佇列等待時間
+     * 
+     * @return 平均等待時間（毫秒）
+     */
+    public double getAverageQueueLatencyMillis() {
+        return average(totalQueueNanos.get());
+    }
+
+    /**
+     * 獲取平均執行時間
+     * 
+     * @return 平均執行時間（毫秒）
+     */
+    public double getAverageExecutionMillis() {
+        return average(totalExecutionNanos.get());
+    }
+
+    /**
+     * 獲取上次讀取後的最大佇列等待時間，並重新開始計算
+     * 
+     * @return 最大等待時間（毫秒）
+     */
+    public long getAndResetMaxQueueLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueNanos.getAndSet(0));
+    }
+
+    /**
+     * 包裝任務，記錄佇列等待時間和執行時間
+     */
+    private Runnable instrument(Runnable task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            long waited = started - submitted;
+            totalQueueNanos.addAndGet(waited);
+            maxQueueNanos.accumulateAndGet(waited, Math::max);
+            try {
+                task.run();
+            } finally {
+                totalExecutionNanos.addAndGet(System.nanoTime() - started);
+                completedCount.incrementAndGet();
+            }
+        };
+    }
+
+    private RejectedExecutionHandler countingHandler(RejectionPolicy policy) {
+        RejectedExecutionHandler delegate;
+        switch (policy) {
+            case ABORT:
+                delegate = new ThreadPoolExecutor.AbortPolicy();
+                break;
+            case DISCARD:
+                delegate = new ThreadPoolExecutor.DiscardPolicy();
+                break;
+            case DISCARD_OLDEST:
+                delegate = new ThreadPoolExecutor.DiscardOldestPolicy();
+                break;
+            case CALLER_RUNS:
+            default:
+                delegate = new ThreadPoolExecutor.CallerRunsPolicy();
+                break;
+        }
+        return (task, executor) -> {
+            rejectedCount.incrementAndGet();
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    private double average(long totalNanos) {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : totalNanos / (double) completed / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
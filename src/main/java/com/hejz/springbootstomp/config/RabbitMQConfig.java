@@ -7,6 +7,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -21,6 +22,7 @@ import org.springframework.context.annotation.Configuration;
  *   <li>定義客戶端狀態檢查佇列</li>
  *   <li>配置訊息轉換器（JSON）</li>
  *   <li>配置 RabbitTemplate</li>
+ *   <li>配置客戶端狀態檢查的批次監聽容器工廠（client.status.check.consumer.batch.enabled=true）</li>
  * </ul>
  * 
  * @author Spring Boot STOMP WebSocket Team
@@ -74,6 +76,26 @@ public class RabbitMQConfig {
      */
     public static final String AGENT_ID_CHANGE_ROUTING_KEY = "agent.id.change";
 
+    /**
+     * 客戶端狀態檢查批次監聽容器工廠的 Bean 名稱
+     */
+    public static final String CLIENT_STATUS_CHECK_BATCH_FACTORY = "clientStatusCheckBatchContainerFactory";
+
+    @Value("${client.status.check.consumer.batch-size:100}")
+    private int checkBatchSize;
+
+    @Value("${client.status.check.consumer.batch-receive-timeout:200}")
+    private long checkBatchReceiveTimeout;
+
+    @Value("${client.status.check.consumer.concurrency:2}")
+    private int checkConcurrency;
+
+    @Value("${client.status.check.consumer.max-concurrency:8}")
+    private int checkMaxConcurrency;
+
+    @Value("${client.status.check.consumer.prefetch:250}")
+    private int checkPrefetch;
+
     /**
      * 配置 JSON 訊息轉換器
      * 
@@ -111,6 +133,39 @@ public class RabbitMQConfig {
         return factory;
     }
 
+    /**
+     * 配置客戶端狀態檢查的批次監聽容器工廠
+     * 
+     * <p>每個消費者一次取出最多 batch-size 則訊息（或等待 batch-receive-timeout 毫秒後取出已到達的部分），
+     * 以 List 交給監聽方法處理，並由監聽方法以一次 multiple ACK 確認整批訊息。
+     * 
+     * <p>配置說明：
+     * <ul>
+     *   <li>concurrency / max-concurrency: 消費者數量，佇列積壓時自動增加到 max-concurrency</li>
+     *   <li>prefetch: 每個消費者未確認訊息的上限，應不小於 batch-size，才能湊滿一批</li>
+     *   <li>acknowledge-mode: MANUAL，由監聽方法確認</li>
+     * </ul>
+     * 
+     * @param connectionFactory RabbitMQ 連接工廠
+     * @return SimpleRabbitListenerContainerFactory 實例
+     */
+    @Bean(CLIENT_STATUS_CHECK_BATCH_FACTORY)
+    @ConditionalOnProperty(name = "client.status.check.consumer.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory clientStatusCheckBatchContainerFactory(ConnectionFactory connectionFactory) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(checkBatchSize);
+        factory.setBatchReceiveTimeout(checkBatchReceiveTimeout);
+        factory.setConcurrentConsumers(checkConcurrency);
+        factory.setMaxConcurrentConsumers(Math.max(checkConcurrency, checkMaxConcurrency));
+        factory.setPrefetchCount(Math.max(checkPrefetch, checkBatchSize));
+        return factory;
+    }
+
     /**
      * 定義客戶端狀態檢查死信交換器
      * 
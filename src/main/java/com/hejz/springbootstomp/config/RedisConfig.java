@@ -1,6 +1,9 @@
 package com.hejz.springbootstomp.config;
 
 import com.hejz.springbootstomp.RedisMessageListener;
+import com.hejz.springbootstomp.RedisRawMessageListener;
+import com.hejz.springbootstomp.service.AgentStatusRelay;
+import com.hejz.springbootstomp.service.PublicMessageHistoryCache;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,10 +23,12 @@ import io.lettuce.core.protocol.ProtocolVersion;
 // Redis 5.0 不需要 RedisURI，直接使用 RedisStandaloneConfiguration
 // import io.lettuce.core.RedisURI;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.net.InetAddress;
@@ -38,6 +43,8 @@ import java.util.concurrent.Executor;
  * <p>此配置類別負責配置 Redis 相關的 Bean，包括：
  * <ul>
  *   <li>RedisTemplate：用於 Redis 資料操作和訊息發布</li>
+ *   <li>StringRedisTemplate：用於純字串操作（如 Redis Stream 傳輸）</li>
+ *   <li>rawRedisTemplate：用於發布原始位元組訊息（不經過 JSON 序列化器）</li>
  *   <li>ObjectMapper：用於 JSON 序列化和反序列化</li>
  *   <li>RedisMessageListenerContainer：用於監聽 Redis Pub/Sub 頻道</li>
  * </ul>
@@ -225,6 +232,50 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * 配置 StringRedisTemplate Bean
+     * 
+     * <p>key 和 value 都使用 String 序列化器，寫入 Redis 的內容就是原始字串，
+     * 不會像 RedisTemplate 的 JSON 序列化器一樣額外加上引號。
+     * 
+     * <p>使用場景：
+     * <ul>
+     *   <li>Redis Stream 傳輸：XADD 寫入 channel/payload 欄位、XREAD 批次讀取</li>
+     *   <li>Stream 消費偏移量的讀寫</li>
+     * </ul>
+     * 
+     * @param connectionFactory Redis 連接工廠
+     * @return 配置完成的 StringRedisTemplate 實例
+     */
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(@Qualifier("redisConnectionFactory") RedisConnectionFactory connectionFactory) {
+        return new StringRedisTemplate(connectionFactory);
+    }
+
+    /**
+     * 配置原始位元組 RedisTemplate Bean
+     * 
+     * <p>value 使用 byteArray 序列化器，發布的 byte[] 會原樣送到 Redis，
+     * 不會像 GenericJackson2JsonRedisSerializer 一樣把已經是 JSON 的內容再包一層。
+     * 
+     * <p>使用場景：
+     * <ul>
+     *   <li>RedisMessagePublisher 發布公共訊息到 /raw/topic/chat 頻道</li>
+     * </ul>
+     * 
+     * @param connectionFactory Redis 連接工廠
+     * @return 配置完成的 RedisTemplate 實例
+     */
+    @Bean
+    public RedisTemplate<String, byte[]> rawRedisTemplate(@Qualifier("redisConnectionFactory") RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return template;
+    }
+
     /**
      * 配置 ObjectMapper Bean
      * 
@@ -325,8 +376,9 @@ public class RedisConfig {
      * 
      * <p>配置說明：
      * <ul>
-     *   <li>訂閱頻道：/topic/chat</li>
+     *   <li>訂閱頻道：/topic/chat、/topic/privateMessage、/node/{nodeId}/privateMessage、/topic/agentStatus</li>
      *   <li>監聽器方法：RedisMessageListener.onMessage()</li>
+     *   <li>原始位元組頻道：/raw/topic/chat 由 RedisRawMessageListener 直接處理</li>
      *   <li>連接工廠：使用專用的非池化連接工廠</li>
      * </ul>
      * 
@@ -340,6 +392,8 @@ public class RedisConfig {
      * 
      * @param subscriptionConnectionFactory Redis 連接工廠（專用，非池化）
      * @param redisMessageListener Redis 訊息監聽器
+     * @param clusterNodeIdentity 目前節點識別，用於訂閱本節點專屬的私信頻道
+     * @param redisRawMessageListener 原始位元組訊息監聽器
      * @return 配置完成的 RedisMessageListenerContainer 實例
      * 
      * @see com.hejz.springbootstomp.RedisConfigTests#testRedisMessageListenerContainer()
@@ -348,7 +402,9 @@ public class RedisConfig {
     @Bean
     public RedisMessageListenerContainer redisMessageListenerContainer(
             @Qualifier("subscriptionConnectionFactory") RedisConnectionFactory subscriptionConnectionFactory,
-            RedisMessageListener redisMessageListener) {
+            RedisMessageListener redisMessageListener,
+            ClusterNodeIdentity clusterNodeIdentity,
+            RedisRawMessageListener redisRawMessageListener) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(subscriptionConnectionFactory);
         
@@ -366,9 +422,21 @@ public class RedisConfig {
         MessageListenerAdapter listenerAdapter = new MessageListenerAdapter(redisMessageListener, "onMessage");
         // 訂閱 /topic/chat 頻道（公共訊息）
         container.addMessageListener(listenerAdapter, new ChannelTopic("/topic/chat"));
-        // 訂閱 /topic/privateMessage 頻道（私信訊息）
+        // 訂閱 /topic/privateMessage 頻道（私信訊息，無法確定接收者節點時的廣播頻道）
         container.addMessageListener(listenerAdapter, new ChannelTopic("/topic/privateMessage"));
-        log.info("已訂閱 Redis 頻道: /topic/chat, /topic/privateMessage");
+        // 訂閱本節點專屬的私信頻道（定向路由）
+        String nodePrivateChannel = clusterNodeIdentity.getPrivateMessageChannel();
+        container.addMessageListener(listenerAdapter, new ChannelTopic(nodePrivateChannel));
+        // 訂閱原始位元組頻道，直接註冊監聽器（不經過 MessageListenerAdapter 的反射與轉換）
+        container.addMessageListener(redisRawMessageListener, new ChannelTopic(RedisRawMessageListener.RAW_CHAT_CHANNEL));
+        // 訂閱公共訊息的歷史記錄頻道（保存腳本寫入後發布，供記憶體歷史緩衝使用）
+        // 直接註冊監聽器，重新訂閱時才會收到 onChannelSubscribed() 通知，由緩衝重新預熱
+        container.addMessageListener(redisMessageListener, new ChannelTopic(PublicMessageHistoryCache.HISTORY_CHANNEL));
+        // 訂閱專員狀態頻道（狀態改變時由各節點發布，轉發給本節點的訂閱者）
+        container.addMessageListener(listenerAdapter, new ChannelTopic(AgentStatusRelay.CHANNEL));
+        log.info("已訂閱 Redis 頻道: /topic/chat, /topic/privateMessage, {}, {}, {}, {}",
+                nodePrivateChannel, RedisRawMessageListener.RAW_CHAT_CHANNEL, PublicMessageHistoryCache.HISTORY_CHANNEL,
+                AgentStatusRelay.CHANNEL);
         
         // 設置錯誤處理：當連接失敗時，降低日誌級別，避免大量錯誤日誌
         // 注意：RedisMessageListenerContainer 會自動重試連接，這是正常行為
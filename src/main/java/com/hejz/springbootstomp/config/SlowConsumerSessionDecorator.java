@@ -0,0 +1,311 @@
+package com.hejz.springbootstomp.config;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 依目的地處理緩衝溢出的 WebSocket 會話裝飾器
+ * 
+ * <p>與 Spring 的 ConcurrentWebSocketSessionDecorator 相同：同一時間只有一條執行緒寫入會話，
+ * 其他執行緒發送的訊息先放入緩衝；寫入時間超過 sendTimeLimit 或緩衝超過 bufferSizeLimit 時處理溢出。
+ * 差別在於溢出策略依 STOMP 目的地決定：
+ * <ul>
+ *   <li>目的地屬於 dropOldestDestinations（例如 /topic/chat）的訊息：丟棄緩衝中最舊的這類訊息，
+ *       直到緩衝回到上限以內；慢速客戶端只會少收到部分廣播</li>
+ *   <li>其他訊息（私信、狀態、回應等）無法丟棄：緩衝仍超過上限時拋出 SessionLimitExceededException，
+ *       由 SubProtocolWebSocketHandler 以 SESSION_NOT_RELIABLE 關閉會話（剔除慢速客戶端）</li>
+ *   <li>單次寫入超過 sendTimeLimit：同樣剔除</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.config.SlowConsumerSubProtocolWebSocketHandler
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+public class SlowConsumerSessionDecorator extends WebSocketSessionDecorator {
+
+    /**
+     * 溢出事件的回呼
+     */
+    public interface OverflowListener {
+
+        /**
+         * 丟棄了緩衝中的訊息
+         * 
+         * @param session 會話
+         * @param count 丟棄的訊息數
+         */
+        void onDropped(WebSocketSession session, int count);
+
+        /**
+         * 會話因為超過限制而被剔除
+         * 
+         * @param session 會話
+         * @param reason 原因
+         */
+        void onEvicted(WebSocketSession session, String reason);
+    }
+
+    /**
+     * 緩衝中的一則訊息
+     */
+    private static final class BufferedMessage {
+        final WebSocketMessage<?> message;
+        final boolean droppable;
+
+        BufferedMessage(WebSocketMessage<?> message, boolean droppable) {
+            this.message = message;
+            this.droppable = droppable;
+        }
+    }
+
+    private static final byte[] DESTINATION_HEADER = "\ndestination:".getBytes(StandardCharsets.UTF_8);
+
+    private final int sendTimeLimit;
+
+    private final int bufferSizeLimit;
+
+    private final Set<String> dropOldestDestinations;
+
+    private final OverflowListener listener;
+
+    private final Queue<BufferedMessage> buffer = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger bufferSize = new AtomicInteger();
+
+    private volatile long sendStartTime;
+
+    private volatile boolean limitExceeded;
+
+    private volatile boolean closeInProgress;
+
+    private final Lock flushLock = new ReentrantLock();
+
+    private final Lock closeLock = new ReentrantLock();
+
+    /**
+     * 建立會話裝飾器
+     * 
+     * @param delegate 原始會話
+     * @param sendTimeLimit 單次寫入的時間上限（毫秒）
+     * @param bufferSizeLimit 緩衝大小上限（位元組）
+     * @param dropOldestDestinations 溢出時可以丟棄最舊訊息的 STOMP 目的地
+     * @param listener 溢出事件的回呼
+     */
+    public SlowConsumerSessionDecorator(WebSocketSession delegate, int sendTimeLimit, int bufferSizeLimit,
+                                        Set<String> dropOldestDestinations, OverflowListener listener) {
+        super(delegate);
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.dropOldestDestinations = dropOldestDestinations;
+        this.listener = listener;
+    }
+
+    /**
+     * 獲取緩衝中尚未寫入的位元組數
+     * 
+     * @return 緩衝大小
+     */
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    /**
+     * 獲取目前這次寫入已經進行的時間
+     * 
+     * @return 毫秒；沒有正在進行的寫入時為 0
+     */
+    public long getTimeSinceSendStarted() {
+        long start = sendStartTime;
+        return start > 0 ? System.currentTimeMillis() - start : 0;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (shouldNotSend()) {
+            return;
+        }
+        buffer.add(new BufferedMessage(message, isDroppable(message)));
+        bufferSize.addAndGet(message.getPayloadLength());
+        do {
+            if (!tryFlushMessageBuffer()) {
+                checkSessionLimits();
+                break;
+            }
+        } while (!buffer.isEmpty() && !shouldNotSend());
+    }
+
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        closeLock.lock();
+        try {
+            if (closeInProgress) {
+                return;
+            }
+            if (!CloseStatus.SESSION_NOT_RELIABLE.equals(status)) {
+                try {
+                    checkSessionLimits();
+                } catch (SessionLimitExceededException ex) {
+                    // 以 SESSION_NOT_RELIABLE 關閉
+                }
+                if (limitExceeded) {
+                    status = CloseStatus.SESSION_NOT_RELIABLE;
+                }
+            }
+            closeInProgress = true;
+            super.close(status);
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    private boolean shouldNotSend() {
+        return limitExceeded || closeInProgress;
+    }
+
+    private boolean tryFlushMessageBuffer() throws IOException {
+        if (!flushLock.tryLock()) {
+            return false;
+        }
+        try {
+            while (true) {
+                BufferedMessage buffered = buffer.poll();
+                if (buffered == null || shouldNotSend()) {
+                    break;
+                }
+                bufferSize.addAndGet(-buffered.message.getPayloadLength());
+                sendStartTime = System.currentTimeMillis();
+                getDelegate().sendMessage(buffered.message);
+                sendStartTime = 0;
+            }
+        } finally {
+            sendStartTime = 0;
+            flushLock.unlock();
+        }
+        return true;
+    }
+
+    private void checkSessionLimits() {
+        if (shouldNotSend() || !closeLock.tryLock()) {
+            return;
+        }
+        try {
+            if (getTimeSinceSendStarted() > sendTimeLimit) {
+                evict("寫入時間超過 " + sendTimeLimit + "ms");
+            } else if (bufferSize.get() > bufferSizeLimit) {
+                int dropped = dropOldest();
+                if (dropped > 0) {
+                    listener.onDropped(this, dropped);
+                }
+                if (bufferSize.get() > bufferSizeLimit) {
+                    evict("緩衝大小 " + bufferSize.get() + " 超過上限 " + bufferSizeLimit);
+                }
+            }
+        } finally {
+            closeLock.unlock();
+        }
+    }
+
+    /**
+     * 由舊到新丟棄可丟棄的訊息，直到緩衝回到上限以內
+     * 
+     * <p>寫入執行緒可能同時以 poll() 取走同一則訊息：以 buffer.remove() 的結果確認這次確實移除了它，
+     * 才扣除緩衝大小並計入丟棄數，避免同一則訊息被扣除兩次。
+     * 
+     * @return 丟棄的訊息數
+     */
+    private int dropOldest() {
+        int dropped = 0;
+        Iterator<BufferedMessage> iterator = buffer.iterator();
+        while (bufferSize.get() > bufferSizeLimit && iterator.hasNext()) {
+            BufferedMessage buffered = iterator.next();
+            if (buffered.droppable && buffer.remove(buffered)) {
+                bufferSize.addAndGet(-buffered.message.getPayloadLength());
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private void evict(String reason) {
+        limitExceeded = true;
+        listener.onEvicted(this, reason);
+        throw new SessionLimitExceededException(reason + "，會話 " + getId(), CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    /**
+     * 判斷訊息的 STOMP 目的地是否屬於可丟棄的目的地
+     */
+    private boolean isDroppable(WebSocketMessage<?> message) {
+        if (dropOldestDestinations.isEmpty()) {
+            return false;
+        }
+        String destination = null;
+        if (message instanceof TextMessage) {
+            destination = findDestination(((TextMessage) message).asBytes());
+        } else if (message instanceof BinaryMessage) {
+            ByteBuffer payload = ((BinaryMessage) message).getPayload();
+            if (payload.hasArray()) {
+                destination = findDestination(payload.array(), payload.arrayOffset() + payload.position(),
+                        payload.remaining());
+            }
+        }
+        return destination != null && dropOldestDestinations.contains(destination);
+    }
+
+    static String findDestination(byte[] frame) {
+        return findDestination(frame, 0, frame.length);
+    }
+
+    /**
+     * 從 STOMP 框架的標頭區（第一個空行之前）找出 destination 標頭
+     */
+    static String findDestination(byte[] frame, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (frame[i] != '\n') {
+                continue;
+            }
+            if (i + 1 < end && (frame[i + 1] == '\n' || (frame[i + 1] == '\r' && i + 2 < end && frame[i + 2] == '\n'))) {
+                // 標頭結束
+                return null;
+            }
+            if (matches(frame, i, end, DESTINATION_HEADER)) {
+                int start = i + DESTINATION_HEADER.length;
+                int stop = start;
+                while (stop < end && frame[stop] != '\n' && frame[stop] != '\r') {
+                    stop++;
+                }
+                return new String(frame, start, stop - start, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(byte[] frame, int index, int end, byte[] token) {
+        if (index + token.length > end) {
+            return false;
+        }
+        for (int j = 0; j < token.length; j++) {
+            if (frame[index + j] != token[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
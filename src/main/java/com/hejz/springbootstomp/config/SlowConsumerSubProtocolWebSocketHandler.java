@@ -0,0 +1,120 @@
+package com.hejz.springbootstomp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 處理慢速客戶端的 SubProtocolWebSocketHandler
+ * 
+ * <p>以 SlowConsumerSessionDecorator 取代預設的 ConcurrentWebSocketSessionDecorator：
+ * 寫入時間和緩衝大小的上限沿用 configureWebSocketTransport() 的設定，
+ * 溢出時可丟棄的目的地由 websocket.transport.drop-oldest-destinations 設定。
+ * 
+ * <p>設置 stompEncoder 時（例如 CachingStompEncoder），註冊的 StompSubProtocolHandler 會改用該編碼器。
+ * 
+ * <p>指標（本節點累計）：getEvictedCount()（被剔除的慢速客戶端數）、getDroppedCount()（丟棄的訊息數）。
+ * 
+ * @see com.hejz.springbootstomp.config.SlowConsumerSessionDecorator
+ * @see com.hejz.springbootstomp.config.CachingStompEncoder
+ * @see com.hejz.springbootstomp.config.WebSocketMessageBrokerConfig
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+public class SlowConsumerSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler
+        implements SlowConsumerSessionDecorator.OverflowListener {
+
+    private Set<String> dropOldestDestinations = Collections.emptySet();
+
+    private StompEncoder stompEncoder;
+
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    public SlowConsumerSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+                                                   SubscribableChannel clientOutboundChannel) {
+        super(clientInboundChannel, clientOutboundChannel);
+    }
+
+    /**
+     * 設置溢出時可以丟棄最舊訊息的 STOMP 目的地
+     * 
+     * @param dropOldestDestinations 目的地（例如 /topic/chat）
+     */
+    public void setDropOldestDestinations(Set<String> dropOldestDestinations) {
+        this.dropOldestDestinations = Collections.unmodifiableSet(new LinkedHashSet<>(dropOldestDestinations));
+    }
+
+    public Set<String> getDropOldestDestinations() {
+        return dropOldestDestinations;
+    }
+
+    /**
+     * 設置 STOMP 子協議處理器使用的編碼器，需在註冊協議處理器之前設置
+     * 
+     * @param stompEncoder STOMP 編碼器；為 null 時使用預設的 StompEncoder
+     */
+    public void setStompEncoder(StompEncoder stompEncoder) {
+        this.stompEncoder = stompEncoder;
+    }
+
+    public StompEncoder getStompEncoder() {
+        return stompEncoder;
+    }
+
+    @Override
+    public void addProtocolHandler(SubProtocolHandler handler) {
+        if (stompEncoder != null && handler instanceof StompSubProtocolHandler stompHandler) {
+            stompHandler.setEncoder(stompEncoder);
+        }
+        super.addProtocolHandler(handler);
+    }
+
+    /**
+     * 獲取本節點累計剔除的慢速客戶端數
+     * 
+     * @return 剔除數
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * 獲取本節點累計因緩衝溢出而丟棄的訊息數
+     * 
+     * @return 丟棄數
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        return new SlowConsumerSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit(),
+                dropOldestDestinations, this);
+    }
+
+    @Override
+    public void onDropped(WebSocketSession session, int count) {
+        long total = droppedCount.addAndGet(count);
+        log.debug("慢速客戶端緩衝溢出，丟棄最舊的訊息：sessionId={}, dropped={}, 累計={}", session.getId(), count, total);
+    }
+
+    @Override
+    public void onEvicted(WebSocketSession session, String reason) {
+        long total = evictedCount.incrementAndGet();
+        log.warn("剔除慢速客戶端：sessionId={}, reason={}, 本節點累計剔除={}", session.getId(), reason, total);
+    }
+}
@@ -0,0 +1,83 @@
+package com.hejz.springbootstomp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.UserDestinationResolver;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * WebSocket 訊息代理的基礎配置
+ * 
+ * <p>取代 @EnableWebSocketMessageBroker（兩者匯入的是同一個 DelegatingWebSocketMessageBrokerConfiguration），
+ * 各項設定仍由 WebSocketConfig 等 WebSocketMessageBrokerConfigurer 提供。
+ * 唯一的差別是 subProtocolWebSocketHandler 改用 SlowConsumerSubProtocolWebSocketHandler，
+ * 以目的地決定慢速客戶端的緩衝溢出策略，並在 websocket.stomp.encode-cache.enabled=true 時
+ * 讓 STOMP 子協議處理器使用 CachingStompEncoder，廣播訊息只編碼一次。
+ * websocket.broker.subscription-registry=indexed 時，簡單代理改用 IndexedSubscriptionRegistry 查詢訂閱。
+ * 
+ * @see com.hejz.springbootstomp.WebSocketConfig
+ * @see com.hejz.springbootstomp.config.SlowConsumerSubProtocolWebSocketHandler
+ * @see com.hejz.springbootstomp.config.CachingStompEncoder
+ * @see com.hejz.springbootstomp.config.IndexedSubscriptionRegistry
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Configuration
+public class WebSocketMessageBrokerConfig extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    /**
+     * 緩衝溢出時可以丟棄最舊訊息的 STOMP 目的地，其他目的地溢出時剔除客戶端
+     */
+    @Value("${websocket.transport.drop-oldest-destinations:/topic/chat}")
+    private List<String> dropOldestDestinations = List.of("/topic/chat");
+
+    /**
+     * 廣播訊息是否只編碼一次，各會話只拼接自己的 subscription、message-id 標頭
+     */
+    @Value("${websocket.stomp.encode-cache.enabled:true}")
+    private boolean encodeCacheEnabled = true;
+
+    /**
+     * 簡單代理的訂閱查詢方式：indexed（IndexedSubscriptionRegistry）或 default（DefaultSubscriptionRegistry）
+     */
+    @Value("${websocket.broker.subscription-registry:indexed}")
+    private String subscriptionRegistry = "indexed";
+
+    @Bean
+    @Nullable
+    @Override
+    public AbstractBrokerMessageHandler simpleBrokerMessageHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                                   AbstractSubscribableChannel clientOutboundChannel,
+                                                                   AbstractSubscribableChannel brokerChannel,
+                                                                   UserDestinationResolver userDestinationResolver) {
+        AbstractBrokerMessageHandler handler = super.simpleBrokerMessageHandler(
+                clientInboundChannel, clientOutboundChannel, brokerChannel, userDestinationResolver);
+        if (handler instanceof SimpleBrokerMessageHandler simpleBroker && "indexed".equalsIgnoreCase(subscriptionRegistry)) {
+            simpleBroker.setSubscriptionRegistry(new IndexedSubscriptionRegistry());
+        }
+        return handler;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(AbstractSubscribableChannel clientInboundChannel,
+                                                        AbstractSubscribableChannel clientOutboundChannel) {
+        SlowConsumerSubProtocolWebSocketHandler handler =
+                new SlowConsumerSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel);
+        handler.setPhase(getPhase());
+        handler.setDropOldestDestinations(new LinkedHashSet<>(dropOldestDestinations));
+        if (encodeCacheEnabled) {
+            handler.setStompEncoder(new CachingStompEncoder());
+        }
+        return handler;
+    }
+}
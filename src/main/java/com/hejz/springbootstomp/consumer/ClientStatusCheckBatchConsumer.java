@@ -0,0 +1,89 @@
+package com.hejz.springbootstomp.consumer;
+
+import com.hejz.springbootstomp.config.RabbitMQConfig;
+import com.hejz.springbootstomp.dto.ClientStatusCheckMessage;
+import com.hejz.springbootstomp.service.ClientStatusService;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 客戶端狀態檢查訊息的批次消費者
+ * 
+ * <p>當 client.status.check.consumer.batch.enabled=true 時取代 ClientStatusCheckConsumer。
+ * 重新連線風暴時檢查佇列會快速累積，逐則處理（每則一次 Redis 讀取、一次 ACK）跟不上；
+ * 批次模式下每批訊息只需：
+ * <ol>
+ *   <li>一次 MGET 讀取所有客戶端的最後心跳時間</li>
+ *   <li>一次 Pipeline 將超時的客戶端更新為 OFFLINE</li>
+ *   <li>一次 basicAck(最後一則的 deliveryTag, multiple=true) 確認整批訊息</li>
+ * </ol>
+ * 
+ * <p>批次大小、消費者數量和 prefetch 由 RabbitMQConfig#clientStatusCheckBatchContainerFactory 配置。
+ * 
+ * @see com.hejz.springbootstomp.config.RabbitMQConfig#clientStatusCheckBatchContainerFactory
+ * @see com.hejz.springbootstomp.service.ClientStatusService#checkClientTimeouts(List)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "client.status.check.consumer.batch.enabled", havingValue = "true")
+public class ClientStatusCheckBatchConsumer {
+
+    @Autowired
+    private ClientStatusService clientStatusService;
+
+    /**
+     * 批次監聽客戶端狀態檢查佇列
+     * 
+     * <p>同一個消費者的訊息在其頻道上的 deliveryTag 嚴格遞增，
+     * 因此以批次中最大的 deliveryTag 搭配 multiple=true 即可確認整批訊息。
+     * 處理失敗時以同樣方式拒絕並丟棄整批訊息（與逐則處理時相同，避免無限重試）。
+     * 
+     * @param messages 一批客戶端狀態檢查訊息（包含 deliveryTag 標頭）
+     * @param channel RabbitMQ 頻道，用於手動確認或拒絕訊息
+     */
+    @RabbitListener(queues = RabbitMQConfig.CLIENT_STATUS_CHECK_QUEUE,
+            containerFactory = RabbitMQConfig.CLIENT_STATUS_CHECK_BATCH_FACTORY)
+    public void handleClientStatusChecks(List<Message<ClientStatusCheckMessage>> messages, Channel channel) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long lastDeliveryTag = 0;
+        List<ClientStatusCheckMessage> payloads = new ArrayList<>(messages.size());
+        for (Message<ClientStatusCheckMessage> message : messages) {
+            payloads.add(message.getPayload());
+            Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+            if (deliveryTag != null && deliveryTag > lastDeliveryTag) {
+                lastDeliveryTag = deliveryTag;
+            }
+        }
+
+        try {
+            List<String> timedOut = clientStatusService.checkClientTimeouts(payloads);
+            log.debug("批次處理客戶端狀態檢查：size={}, timedOut={}", payloads.size(), timedOut.size());
+
+            // 一次確認整批訊息
+            channel.basicAck(lastDeliveryTag, true);
+
+        } catch (Exception e) {
+            log.error("批次處理客戶端狀態檢查時發生錯誤：size={}, error={}", payloads.size(), e.getMessage(), e);
+
+            try {
+                // 拒絕整批訊息並丟棄（避免無限重試）
+                channel.basicNack(lastDeliveryTag, true, false);
+            } catch (Exception ex) {
+                log.error("拒絕訊息時發生錯誤：{}", ex.getMessage(), ex);
+            }
+        }
+    }
+}
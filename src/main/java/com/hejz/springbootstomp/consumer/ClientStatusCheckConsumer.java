@@ -8,6 +8,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
@@ -24,11 +25,15 @@ import org.springframework.stereotype.Component;
      *   <li>如果超時，更新客戶端狀態為「未連接」</li>
      * </ol>
  * 
+ * <p>client.status.check.consumer.batch.enabled=true 時改由 ClientStatusCheckBatchConsumer 批次處理。
+ * 
+ * @see com.hejz.springbootstomp.consumer.ClientStatusCheckBatchConsumer
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "client.status.check.consumer.batch.enabled", havingValue = "false", matchIfMissing = true)
 public class ClientStatusCheckConsumer {
 
     @Autowired
@@ -77,7 +82,8 @@ public class ClientStatusCheckConsumer {
                     clientId, expectedLastHeartbeatTime);
             
             // 檢查客戶端是否超時
-            boolean isTimeout = clientStatusService.checkClientTimeout(clientId, expectedLastHeartbeatTime);
+            boolean isTimeout = clientStatusService.checkClientTimeout(clientId, expectedLastHeartbeatTime,
+                    message.getHeartbeatInterval());
             
             if (isTimeout) {
                 log.info("客戶端已超時，狀態已更新為離線：clientId={}", clientId);
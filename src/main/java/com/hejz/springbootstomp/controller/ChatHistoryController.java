@@ -1,13 +1,21 @@
 package com.hejz.springbootstomp.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hejz.springbootstomp.dto.ChatMessage;
+import com.hejz.springbootstomp.dto.ChatMessagePage;
 import com.hejz.springbootstomp.service.ChatMessageService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,8 +28,9 @@ import java.util.Map;
  * <p>主要功能：
  * <ul>
  *   <li>查詢公共訊息歷史記錄</li>
- *   <li>查詢私信歷史記錄</li>
- *   <li>支援分頁查詢</li>
+ *   <li>查詢私信歷史記錄（可依對話篩選）</li>
+ *   <li>支援分頁查詢：offset（相容舊版）和 cursor（游標分頁，翻頁成本固定且結果不會位移）</li>
+ *   <li>串流查詢（/stream）：將存儲的 JSON 原樣寫入回應，不建立 ChatMessage 和 Map</li>
  * </ul>
  * 
  * @author Spring Boot STOMP WebSocket Team
@@ -35,6 +44,15 @@ public class ChatHistoryController {
     @Autowired
     private ChatMessageService chatMessageService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 串流查詢的最大數量（不經過物件轉換，可以比一般查詢的 100 更大）
+     */
+    @Value("${chat.history.stream.max-limit:1000}")
+    private int streamMaxLimit = 1000;
+
     /**
      * 獲取公共訊息歷史記錄
      * 
@@ -42,21 +60,28 @@ public class ChatHistoryController {
      * <ul>
      *   <li>limit: 獲取數量（預設 50，最大 100）</li>
      *   <li>offset: 偏移量（預設 0，從最新開始）</li>
+     *   <li>cursor: 游標（可選，傳入時改用游標分頁並忽略 offset；空字串表示第一頁）</li>
      * </ul>
      * 
      * <p>範例請求：
      * <pre>
      * GET /api/chat/public?limit=20&offset=0
+     * GET /api/chat/public?limit=20&cursor=
+     * GET /api/chat/public?limit=20&cursor=1700000000000_3f2a...
      * </pre>
      * 
+     * <p>游標分頁的回應會包含 nextCursor，沒有更多訊息時為 null。
+     * 
      * @param limit 獲取數量
      * @param offset 偏移量
+     * @param cursor 游標（可選）
      * @return 訊息列表（最新的在前）
      */
     @GetMapping("/public")
     public ResponseEntity<Map<String, Object>> getPublicMessages(
             @RequestParam(defaultValue = "50") int limit,
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor) {
         
         try {
             // 限制最大查詢數量
@@ -70,6 +95,12 @@ public class ChatHistoryController {
                 offset = 0;
             }
 
+            if (cursor != null) {
+                ChatMessagePage page = chatMessageService.getPublicMessagesByCursor(cursor, limit);
+                log.info("以游標查詢公共訊息歷史記錄：limit={}, cursor={}, count={}", limit, cursor, page.getMessages().size());
+                return ResponseEntity.ok(cursorResponse(page, limit));
+            }
+
             List<ChatMessage> messages = chatMessageService.getPublicMessages(limit, offset);
             
             Map<String, Object> response = new HashMap<>();
@@ -82,6 +113,8 @@ public class ChatHistoryController {
             log.info("查詢公共訊息歷史記錄：limit={}, offset={}, count={}", limit, offset, messages.size());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
         } catch (Exception e) {
             log.error("查詢公共訊息歷史記錄失敗: {}", e.getMessage(), e);
             
@@ -99,25 +132,33 @@ public class ChatHistoryController {
      * <p>查詢參數：
      * <ul>
      *   <li>userId: 用戶 ID（必填）</li>
+     *   <li>peerId: 對話另一方的用戶 ID（可選，指定時只返回與該用戶的對話）</li>
      *   <li>limit: 獲取數量（預設 50，最大 100）</li>
      *   <li>offset: 偏移量（預設 0，從最新開始）</li>
+     *   <li>cursor: 游標（可選，僅指定 peerId 時支援，傳入時改用游標分頁並忽略 offset）</li>
      * </ul>
      * 
      * <p>範例請求：
      * <pre>
      * GET /api/chat/private?userId=user123&limit=20&offset=0
+     * GET /api/chat/private?userId=user123&peerId=user456&limit=20&offset=0
+     * GET /api/chat/private?userId=user123&peerId=user456&limit=20&cursor=
      * </pre>
      * 
      * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID（可選）
      * @param limit 獲取數量
      * @param offset 偏移量
+     * @param cursor 游標（可選）
      * @return 訊息列表（最新的在前）
      */
     @GetMapping("/private")
     public ResponseEntity<Map<String, Object>> getPrivateMessages(
             @RequestParam String userId,
+            @RequestParam(required = false) String peerId,
             @RequestParam(defaultValue = "50") int limit,
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor) {
         
         try {
             if (userId == null || userId.trim().isEmpty()) {
@@ -138,7 +179,23 @@ public class ChatHistoryController {
                 offset = 0;
             }
 
-            List<ChatMessage> messages = chatMessageService.getPrivateMessages(userId, limit, offset);
+            boolean byConversation = peerId != null && !peerId.trim().isEmpty();
+            if (cursor != null) {
+                if (!byConversation) {
+                    return badRequest("游標分頁需要指定 peerId");
+                }
+                ChatMessagePage page = chatMessageService.getConversationMessagesByCursor(userId, peerId, cursor, limit);
+                log.info("以游標查詢私信歷史記錄：userId={}, peerId={}, limit={}, cursor={}, count={}",
+                        userId, peerId, limit, cursor, page.getMessages().size());
+                Map<String, Object> response = cursorResponse(page, limit);
+                response.put("userId", userId);
+                response.put("peerId", peerId);
+                return ResponseEntity.ok(response);
+            }
+
+            List<ChatMessage> messages = byConversation
+                    ? chatMessageService.getConversationMessages(userId, peerId, limit, offset)
+                    : chatMessageService.getPrivateMessages(userId, limit, offset);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -147,10 +204,16 @@ public class ChatHistoryController {
             response.put("limit", limit);
             response.put("offset", offset);
             response.put("userId", userId);
+            if (byConversation) {
+                response.put("peerId", peerId);
+            }
             
-            log.info("查詢私信歷史記錄：userId={}, limit={}, offset={}, count={}", userId, limit, offset, messages.size());
+            log.info("查詢私信歷史記錄：userId={}, peerId={}, limit={}, offset={}, count={}",
+                    userId, peerId, limit, offset, messages.size());
             
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
         } catch (Exception e) {
             log.error("查詢私信歷史記錄失敗: userId={}, error={}", userId, e.getMessage(), e);
             
@@ -161,13 +224,158 @@ public class ChatHistoryController {
             return ResponseEntity.status(500).body(response);
         }
     }
-}
 
+    /**
+     * 建立游標分頁的回應
+     * 
+     * @param page 游標分頁結果
+     * @param limit 獲取數量
+     * @return 回應內容
+     */
+    private Map<String, Object> cursorResponse(ChatMessagePage page, int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("messages", page.getMessages());
+        response.put("count", page.getMessages().size());
+        response.put("limit", limit);
+        response.put("nextCursor", page.getNextCursor());
+        return response;
+    }
 
+    private ResponseEntity<Map<String, Object>> badRequest(String error) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", error);
+        return ResponseEntity.badRequest().body(response);
+    }
 
+    /**
+     * 以串流方式獲取公共訊息歷史記錄
+     * 
+     * <p>與 /public 的 offset 分頁相同，但存儲的 JSON 直接以 JsonGenerator.writeRawValue()
+     * 寫入回應的 messages 陣列，不反序列化為 ChatMessage，也不建立回應 Map。
+     * 
+     * <p>範例請求：
+     * <pre>
+     * GET /api/chat/public/stream?limit=500&offset=0
+     * </pre>
+     * 
+     * @param limit 獲取數量（預設 50，最大 chat.history.stream.max-limit）
+     * @param offset 偏移量
+     * @return JSON 回應：success、limit、offset、messages、count
+     */
+    @GetMapping("/public/stream")
+    public ResponseEntity<?> streamPublicMessages(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+        try {
+            limit = normalizeStreamLimit(limit);
+            offset = Math.max(offset, 0);
 
+            List<String> messageJsons = chatMessageService.getPublicMessageJsons(limit, offset);
+            log.info("串流查詢公共訊息歷史記錄：limit={}, offset={}, count={}", limit, offset, messageJsons.size());
 
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("success", true);
+            fields.put("limit", limit);
+            fields.put("offset", offset);
+            return streamResponse(fields, messageJsons);
+        } catch (Exception e) {
+            log.error("串流查詢公共訊息歷史記錄失敗: {}", e.getMessage(), e);
+            return serverError(e.getMessage());
+        }
+    }
 
+    /**
+     * 以串流方式獲取私信歷史記錄
+     * 
+     * <p>參數與 /private 的 offset 分頁相同，回應格式與 /public/stream 相同，另附 userId 和 peerId。
+     * 
+     * <p>範例請求：
+     * <pre>
+     * GET /api/chat/private/stream?userId=user123&peerId=user456&limit=500
+     * </pre>
+     * 
+     * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID（可選）
+     * @param limit 獲取數量（預設 50，最大 chat.history.stream.max-limit）
+     * @param offset 偏移量
+     * @return JSON 回應：success、limit、offset、userId、peerId、messages、count
+     */
+    @GetMapping("/private/stream")
+    public ResponseEntity<?> streamPrivateMessages(
+            @RequestParam String userId,
+            @RequestParam(required = false) String peerId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                return badRequest("userId 參數必填");
+            }
+            limit = normalizeStreamLimit(limit);
+            offset = Math.max(offset, 0);
 
+            boolean byConversation = peerId != null && !peerId.trim().isEmpty();
+            List<String> messageJsons = byConversation
+                    ? chatMessageService.getConversationMessageJsons(userId, peerId, limit, offset)
+                    : chatMessageService.getPrivateMessageJsons(userId, limit, offset);
+            log.info("串流查詢私信歷史記錄：userId={}, peerId={}, limit={}, offset={}, count={}",
+                    userId, peerId, limit, offset, messageJsons.size());
 
+            Map<String, Object> fields = new LinkedHashMap<>();
+            fields.put("success", true);
+            fields.put("limit", limit);
+            fields.put("offset", offset);
+            fields.put("userId", userId);
+            if (byConversation) {
+                fields.put("peerId", peerId);
+            }
+            return streamResponse(fields, messageJsons);
+        } catch (Exception e) {
+            log.error("串流查詢私信歷史記錄失敗: userId={}, error={}", userId, e.getMessage(), e);
+            return serverError(e.getMessage());
+        }
+    }
+
+    private int normalizeStreamLimit(int limit) {
+        if (limit < 1) {
+            return 50;
+        }
+        return Math.min(limit, streamMaxLimit);
+    }
+
+    /**
+     * 建立串流回應：先寫入一般欄位，再將每則訊息 JSON 原樣寫入 messages 陣列
+     * 
+     * <p>Redis 查詢在請求執行緒上完成，查詢失敗仍能返回錯誤狀態碼；只有寫入回應的部分以串流進行。
+     * 
+     * @param fields 訊息陣列之前的欄位
+     * @param messageJsons 存儲的訊息 JSON（最新的在前）
+     * @return 串流回應
+     */
+    private ResponseEntity<StreamingResponseBody> streamResponse(Map<String, Object> fields, List<String> messageJsons) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream, JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                for (Map.Entry<String, Object> field : fields.entrySet()) {
+                    generator.writeObjectField(field.getKey(), field.getValue());
+                }
+                generator.writeArrayFieldStart("messages");
+                for (String json : messageJsons) {
+                    generator.writeRawValue(json);
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("count", messageJsons.size());
+                generator.writeEndObject();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
+    private ResponseEntity<Map<String, Object>> serverError(String error) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", error);
+        return ResponseEntity.status(500).body(response);
+    }
+}
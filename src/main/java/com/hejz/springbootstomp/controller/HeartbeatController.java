@@ -3,8 +3,10 @@ package com.hejz.springbootstomp.controller;
 import com.hejz.springbootstomp.config.RabbitMQConfig;
 import com.hejz.springbootstomp.dto.ClientStatusCheckMessage;
 import com.hejz.springbootstomp.dto.HeartbeatMessage;
-import com.hejz.springbootstomp.dto.ResponseMessage;
+import com.hejz.springbootstomp.dto.HeartbeatResponseMessage;
+import com.hejz.springbootstomp.service.AdaptiveHeartbeatService;
 import com.hejz.springbootstomp.service.ClientStatusService;
+import com.hejz.springbootstomp.service.HeartbeatTimingWheel;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessagePostProcessor;
@@ -26,10 +28,20 @@ import java.security.Principal;
  * <ol>
  *   <li>接收客戶端心跳請求（透過 WebSocket 私信）</li>
  *   <li>記錄最後訪問時間到 Redis</li>
- *   <li>發送延遲訊息到 RabbitMQ（延遲時間 > 心跳間隔）</li>
+ *   <li>排程逾時檢查（延遲時間 > 心跳間隔）</li>
  *   <li>返回心跳確認訊息給客戶端</li>
  * </ol>
  * 
+ * <p>逾時檢查模式（client.status.timeout.mode）：
+ * <ul>
+ *   <li>rabbitmq（預設）：每次心跳發送一則 TTL 延遲訊息，由 ClientStatusCheckConsumer 檢查</li>
+ *   <li>wheel：在 HeartbeatTimingWheel 上重新排程，不產生任何 RabbitMQ 訊息</li>
+ *   <li>sweeper：心跳寫入叢集共用的 client:heartbeats 索引，由 HeartbeatSweeper 批次清掃，不需排程</li>
+ * </ul>
+ * 
+ * <p>啟用 AdaptiveHeartbeatService 時，心跳確認訊息帶有依節點負載建議的心跳間隔，
+ * 逾時檢查的延遲和容許間隔也依此間隔延長。
+ * 
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
@@ -44,16 +56,22 @@ public class HeartbeatController {
     private RabbitTemplate rabbitTemplate;
 
     /**
-     * 心跳間隔時間（毫秒），從配置檔案讀取
+     * 心跳逾時時間輪（僅 client.status.timeout.mode=wheel 時存在）
      */
-    @Value("${client.status.heartbeat.interval:30000}")
-    private long heartbeatInterval;
+    @Autowired(required = false)
+    private HeartbeatTimingWheel heartbeatTimingWheel;
+
+    /**
+     * 自適應心跳間隔服務（僅 client.status.heartbeat.adaptive.enabled=true 時存在）
+     */
+    @Autowired(required = false)
+    private AdaptiveHeartbeatService adaptiveHeartbeatService;
 
     /**
-     * 檢查延遲時間（毫秒），從配置檔案讀取
+     * 心跳間隔時間（毫秒），從配置檔案讀取
      */
-    @Value("${client.status.check.delay:60000}")
-    private long checkDelay;
+    @Value("${client.status.heartbeat.interval:30000}")
+    private long heartbeatInterval;
 
     /**
      * 處理客戶端心跳請求
@@ -62,7 +80,7 @@ public class HeartbeatController {
      * <ol>
      *   <li>記錄客戶端最後訪問時間到 Redis</li>
      *   <li>發送延遲訊息到 RabbitMQ，用於檢查客戶端是否超時</li>
-     *   <li>返回心跳確認訊息給客戶端</li>
+     *   <li>返回心跳確認訊息和建議的心跳間隔給客戶端</li>
      * </ol>
      * 
      * <p>訊息路由：
@@ -73,11 +91,11 @@ public class HeartbeatController {
      * 
      * @param principal 客戶端身份資訊（包含客戶端 ID）
      * @param heartbeatMessage 心跳訊息（可選，如果為 null 則使用 principal 的 ID）
-     * @return 心跳確認訊息
+     * @return 心跳確認訊息（包含建議的心跳間隔）
      */
     @MessageMapping("/heartbeat")
     @SendToUser("/topic/heartbeat")
-    public ResponseMessage handleHeartbeat(Principal principal, HeartbeatMessage heartbeatMessage) {
+    public HeartbeatResponseMessage handleHeartbeat(Principal principal, HeartbeatMessage heartbeatMessage) {
         // 獲取客戶端 ID（優先使用訊息中的 ID，否則使用 principal 的 ID）
         String clientId = (heartbeatMessage != null && heartbeatMessage.getClientId() != null) 
                 ? heartbeatMessage.getClientId() 
@@ -85,15 +103,24 @@ public class HeartbeatController {
         
         log.debug("收到客戶端心跳：clientId={}", clientId);
         
+        // 依節點負載決定建議給客戶端的心跳間隔
+        long interval = adaptiveHeartbeatService != null
+                ? adaptiveHeartbeatService.getRecommendedInterval()
+                : heartbeatInterval;
+        
         // 記錄客戶端心跳到 Redis
-        Long lastHeartbeatTime = clientStatusService.recordHeartbeat(clientId);
+        Long lastHeartbeatTime = clientStatusService.recordHeartbeat(clientId, interval);
         
-        // 發送延遲訊息到 RabbitMQ，用於檢查客戶端是否超時
-        // 延遲時間設定為檢查延遲時間（預設 60 秒）
-        sendDelayedStatusCheck(clientId, lastHeartbeatTime);
+        // 排程逾時檢查，延遲時間為檢查延遲時間（預設 60 秒，依心跳間隔等比例延長）
+        long delay = clientStatusService.getCheckDelay(interval);
+        if (heartbeatTimingWheel != null) {
+            heartbeatTimingWheel.schedule(clientId, lastHeartbeatTime, delay, interval);
+        } else if (!clientStatusService.isSweeperMode()) {
+            sendDelayedStatusCheck(clientId, lastHeartbeatTime, interval, delay);
+        }
         
         // 返回心跳確認訊息
-        return new ResponseMessage("心跳已接收，最後心跳時間：" + lastHeartbeatTime);
+        return new HeartbeatResponseMessage("心跳已接收，最後心跳時間：" + lastHeartbeatTime, lastHeartbeatTime, interval);
     }
 
     /**
@@ -117,12 +144,15 @@ public class HeartbeatController {
      * 
      * @param clientId 客戶端 ID
      * @param expectedLastHeartbeatTime 預期的最後心跳時間
+     * @param interval 建議給客戶端的心跳間隔（毫秒）
+     * @param delay 檢查延遲時間（毫秒）
      */
-    private void sendDelayedStatusCheck(String clientId, Long expectedLastHeartbeatTime) {
+    private void sendDelayedStatusCheck(String clientId, Long expectedLastHeartbeatTime, long interval, long delay) {
         ClientStatusCheckMessage checkMessage = new ClientStatusCheckMessage(
                 clientId,
                 expectedLastHeartbeatTime,
-                System.currentTimeMillis()
+                System.currentTimeMillis(),
+                interval
         );
         
         // 建立訊息後處理器，設定 TTL（延遲時間）
@@ -130,7 +160,7 @@ public class HeartbeatController {
             @Override
             public Message postProcessMessage(Message message) {
                 // 設定訊息過期時間（TTL），單位：毫秒
-                message.getMessageProperties().setExpiration(String.valueOf(checkDelay));
+                message.getMessageProperties().setExpiration(String.valueOf(delay));
                 return message;
             }
         };
@@ -144,7 +174,7 @@ public class HeartbeatController {
         );
         
         log.debug("發送延遲客戶端狀態檢查訊息：clientId={}, delay={}ms, expectedLastHeartbeatTime={}", 
-                clientId, checkDelay, expectedLastHeartbeatTime);
+                clientId, delay, expectedLastHeartbeatTime);
     }
 }
 
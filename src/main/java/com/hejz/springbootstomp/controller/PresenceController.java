@@ -0,0 +1,118 @@
+package com.hejz.springbootstomp.controller;
+
+import com.hejz.springbootstomp.dto.PresenceQuery;
+import com.hejz.springbootstomp.dto.PresenceSnapshot;
+import com.hejz.springbootstomp.service.PresenceService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批次在線狀態控制器
+ * 
+ * <p>一次返回多位專員和多個客戶端的在線狀態，供監控畫面取代逐一呼叫
+ * /api/agent/{type}、/api/agent/{type}/status 的輪詢。
+ * 
+ * <p>提供方式：
+ * <ul>
+ *   <li>GET /api/presence?agentTypes=a,b&clientIds=c1,c2</li>
+ *   <li>POST /api/presence，請求內容為 PresenceQuery（客戶端數量較多時使用）</li>
+ *   <li>STOMP 訂閱 /ws/presence：以 agentTypes、clientIds 標頭（逗號分隔）指定查詢對象，
+ *       訂閱時直接返回一次快照，之後的狀態變化由 /topic/agentStatus 推送</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.service.PresenceService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+
+    @Autowired
+    private PresenceService presenceService;
+
+    /**
+     * 以查詢參數獲取在線狀態快照
+     * 
+     * <p>範例請求：
+     * <pre>
+     * GET /api/presence?agentTypes=a,b&clientIds=client1,client2
+     * </pre>
+     * 
+     * @param agentTypes 專員類型（可選，預設全部專員）
+     * @param clientIds 客戶端 ID（可選）
+     * @return JSON 回應：success、agents、clients、timestamp
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getPresence(
+            @RequestParam(required = false) List<String> agentTypes,
+            @RequestParam(required = false) List<String> clientIds) {
+        return presenceResponse(agentTypes, clientIds);
+    }
+
+    /**
+     * 以請求內容獲取在線狀態快照
+     * 
+     * @param query 查詢對象
+     * @return JSON 回應：success、agents、clients、timestamp
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> queryPresence(@RequestBody PresenceQuery query) {
+        return presenceResponse(query.getAgentTypes(), query.getClientIds());
+    }
+
+    /**
+     * 訂閱 /ws/presence 時返回在線狀態快照
+     * 
+     * @param agentTypes 專員類型（逗號分隔，可選）
+     * @param clientIds 客戶端 ID（逗號分隔，可選）
+     * @return 在線狀態快照，只發送給這個訂閱
+     */
+    @SubscribeMapping("/presence")
+    public PresenceSnapshot subscribePresence(
+            @Header(name = "agentTypes", required = false) String agentTypes,
+            @Header(name = "clientIds", required = false) String clientIds) {
+        return presenceService.getSnapshot(split(agentTypes), split(clientIds));
+    }
+
+    private ResponseEntity<Map<String, Object>> presenceResponse(List<String> agentTypes, List<String> clientIds) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            PresenceSnapshot snapshot = presenceService.getSnapshot(agentTypes, clientIds);
+            response.put("success", true);
+            response.put("agents", snapshot.getAgents());
+            response.put("clients", snapshot.getClients());
+            response.put("timestamp", snapshot.getTimestamp());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("批次查詢在線狀態失敗: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "查詢在線狀態時發生錯誤: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    private static List<String> split(String value) {
+        return StringUtils.hasText(value) ? Arrays.asList(StringUtils.commaDelimitedListToStringArray(value)) : null;
+    }
+}
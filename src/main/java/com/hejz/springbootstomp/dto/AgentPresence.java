@@ -0,0 +1,40 @@
+package com.hejz.springbootstomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 專員在線狀態 DTO
+ * 
+ * <p>欄位與 /api/agent/{type} 和 /api/agent/{type}/status 的回應相同，用於批次在線狀態查詢。
+ * 
+ * @see com.hejz.springbootstomp.dto.PresenceSnapshot
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgentPresence {
+
+    /**
+     * 專員類型（"a" 或 "b"）
+     */
+    private String agentType;
+
+    /**
+     * 專員名稱（"專員A" 或 "專員B"）
+     */
+    private String agentName;
+
+    /**
+     * 專員ID，尚未連接時為 null
+     */
+    private String agentId;
+
+    /**
+     * 狀態（"ONLINE" 或 "OFFLINE"）
+     */
+    private String status;
+}
@@ -35,6 +35,11 @@ public class AgentStatusMessage {
      * 時間戳（毫秒）
      */
     private long timestamp = System.currentTimeMillis();
+
+    /**
+     * 狀態版本號（Redis 中每次狀態改變時遞增，跨節點以此判斷先後；0 表示未知）
+     */
+    private long version;
 }
 
 
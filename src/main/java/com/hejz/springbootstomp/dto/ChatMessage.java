@@ -20,6 +20,7 @@ import java.io.Serializable;
  *   <li>timestamp: 訊息時間戳（毫秒）</li>
  *   <li>type: 訊息類型（public=公共訊息，private=私信）</li>
  *   <li>recipientId: 接收者 ID（僅私信時使用）</li>
+ *   <li>messageId: 訊息唯一 ID（與 timestamp 組成游標分頁的排序鍵）</li>
  * </ul>
  * 
  * @author Spring Boot STOMP WebSocket Team
@@ -67,6 +68,12 @@ public class ChatMessage implements Serializable {
      */
     @JsonProperty("recipientId")
     private String recipientId;
+    
+    /**
+     * 訊息唯一 ID，同一時間戳的訊息依此排序，用於游標分頁
+     */
+    @JsonProperty("messageId")
+    private String messageId;
 }
 
 
@@ -0,0 +1,38 @@
+package com.hejz.springbootstomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 聊天訊息分頁結果 DTO
+ * 
+ * <p>用於游標分頁查詢，包含本頁訊息和下一頁的游標。
+ * 
+ * <p>欄位說明：
+ * <ul>
+ *   <li>messages: 本頁訊息（最新的在前）</li>
+ *   <li>nextCursor: 下一頁的游標，沒有更多訊息時為 null</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.service.ChatMessageService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessagePage {
+
+    /**
+     * 本頁訊息（最新的在前）
+     */
+    private List<ChatMessage> messages;
+
+    /**
+     * 下一頁的游標（格式：{timestamp}_{messageId}），沒有更多訊息時為 null
+     */
+    private String nextCursor;
+}
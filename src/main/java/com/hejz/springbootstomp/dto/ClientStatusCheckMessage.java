@@ -30,6 +30,11 @@ public class ClientStatusCheckMessage {
      * 檢查時間戳
      */
     private Long checkTimestamp;
+
+    /**
+     * 發送心跳時建議給客戶端的心跳間隔（毫秒），為 null 時使用 client.status.heartbeat.interval
+     */
+    private Long heartbeatInterval;
 }
 
 
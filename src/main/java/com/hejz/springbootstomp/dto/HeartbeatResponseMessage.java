@@ -0,0 +1,44 @@
+package com.hejz.springbootstomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 心跳確認訊息 DTO
+ * 
+ * <p>回應 /user/topic/heartbeat，除了確認內容外，還帶有伺服器依目前負載建議的心跳間隔，
+ * 客戶端應以此間隔排程下一次心跳。
+ * 
+ * <p>欄位說明：
+ * <ul>
+ *   <li>content: 確認內容（與 ResponseMessage 相同）</li>
+ *   <li>lastHeartbeatTime: 伺服器記錄的心跳時間（毫秒）</li>
+ *   <li>heartbeatInterval: 建議的心跳間隔（毫秒）</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.controller.HeartbeatController
+ * @see com.hejz.springbootstomp.service.AdaptiveHeartbeatService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HeartbeatResponseMessage {
+
+    /**
+     * 確認內容
+     */
+    private String content;
+
+    /**
+     * 伺服器記錄的心跳時間（毫秒）
+     */
+    private Long lastHeartbeatTime;
+
+    /**
+     * 建議的心跳間隔（毫秒）
+     */
+    private Long heartbeatInterval;
+}
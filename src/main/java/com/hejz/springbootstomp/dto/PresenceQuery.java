@@ -0,0 +1,38 @@
+package com.hejz.springbootstomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批次在線狀態查詢 DTO
+ * 
+ * <p>POST /api/presence 的請求內容；客戶端數量較多、不適合放在 URL 參數時使用。
+ * 
+ * <p>欄位說明：
+ * <ul>
+ *   <li>agentTypes: 要查詢的專員類型（"a"、"b"），為空時查詢全部專員</li>
+ *   <li>clientIds: 要查詢的客戶端 ID</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.controller.PresenceController
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceQuery {
+
+    /**
+     * 要查詢的專員類型
+     */
+    private List<String> agentTypes;
+
+    /**
+     * 要查詢的客戶端 ID
+     */
+    private List<String> clientIds;
+}
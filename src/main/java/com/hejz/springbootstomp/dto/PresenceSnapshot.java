@@ -0,0 +1,44 @@
+package com.hejz.springbootstomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 批次在線狀態快照 DTO
+ * 
+ * <p>由 REST（/api/presence）和 STOMP 訂閱（/ws/presence）返回。
+ * 
+ * <p>欄位說明：
+ * <ul>
+ *   <li>agents: 專員類型 → 專員在線狀態</li>
+ *   <li>clients: 客戶端 ID → 狀態（ONLINE 或 OFFLINE，沒有記錄時為 OFFLINE）</li>
+ *   <li>timestamp: 快照時間（毫秒）</li>
+ * </ul>
+ * 
+ * @see com.hejz.springbootstomp.service.PresenceService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceSnapshot {
+
+    /**
+     * 專員類型 → 專員在線狀態
+     */
+    private Map<String, AgentPresence> agents;
+
+    /**
+     * 客戶端 ID → 狀態
+     */
+    private Map<String, String> clients;
+
+    /**
+     * 快照時間（毫秒）
+     */
+    private long timestamp;
+}
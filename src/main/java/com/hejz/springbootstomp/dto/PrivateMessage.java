@@ -57,5 +57,16 @@ public class PrivateMessage implements Serializable {
     
     /** 訊息時間戳（毫秒，可選） */
     private Long timestamp;
+
+    /**
+     * 轉換為推送給接收者的回應訊息
+     * 
+     * <p>本地直送與 Redis 跨節點轉發共用此格式，確保接收者看到的內容一致。
+     * 
+     * @return 包含發送者資訊的 ResponseMessage
+     */
+    public ResponseMessage toResponseMessage() {
+        return new ResponseMessage(senderName + "：" + senderId + "發送的信息：" + content);
+    }
 }
 
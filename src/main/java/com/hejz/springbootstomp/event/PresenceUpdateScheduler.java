@@ -0,0 +1,216 @@
+package com.hejz.springbootstomp.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 專員狀態更新的延遲排程器
+ * 
+ * <p>WebSocket 連接和訂閱事件需要稍後（等 Redis 中的專員ID設定完成）才更新專員狀態。
+ * 以固定數量執行緒的 ScheduledThreadPoolExecutor 排程延遲任務，取代每個事件建立一條
+ * 執行緒再 Thread.sleep() 的做法，重新連線風暴時不會耗盡原生執行緒。
+ * 
+ * <p>限制：
+ * <ul>
+ *   <li>同一個 key（例如同一用戶的上線更新）已有任務等待時不重複排程，等待中的任務保留原本的延遲</li>
+ *   <li>等待中的任務可以以 cancel() 取消（例如用戶在上線更新執行前就斷線）</li>
+ *   <li>等待中的任務達到 capacity 時丟棄新任務並計數</li>
+ * </ul>
+ * 
+ * <p>指標：getQueuedCount()（等待中的任務數）、getDroppedCount()（累計丟棄數）、
+ * getCancelledCount()（累計取消數）、getCompletedCount()（累計完成數），並每分鐘記錄一次日誌。
+ * 
+ * @see com.hejz.springbootstomp.event.WebSocketEventListener
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class PresenceUpdateScheduler {
+
+    @Value("${agent.status.executor.threads:2}")
+    private int threads = 2;
+
+    @Value("${agent.status.executor.capacity:10000}")
+    private int capacity = 10000;
+
+    /**
+     * 一個等待中的任務；執行和取消都先從 pendingTasks 移除它，只有成功移除的一方會處理
+     */
+    private static final class PendingTask {
+        volatile ScheduledFuture<?> future;
+    }
+
+    private ScheduledThreadPoolExecutor executor;
+
+    /** 已排程但尚未執行的任務 */
+    private final Map<String, PendingTask> pendingTasks = new ConcurrentHashMap<>();
+
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "presence-update-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        log.info("專員狀態更新排程器已建立：threads={}, capacity={}", threads, capacity);
+    }
+
+    /**
+     * 關閉排程器，不再執行尚未到期的任務
+     */
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+        log.info("專員狀態更新排程器已停止：queued={}, dropped={}, completed={}",
+                queuedCount.get(), droppedCount.get(), completedCount.get());
+    }
+
+    /**
+     * 排程一個延遲執行的狀態更新任務
+     * 
+     * @param key 任務的 key，同一個 key 已有任務等待時不重複排程
+     * @param task 要執行的任務
+     * @param delay 延遲時間（毫秒）
+     * @return true 如果已排程或已有相同 key 的任務等待中，false 如果因容量已滿而丟棄
+     */
+    public boolean schedule(String key, Runnable task, long delay) {
+        PendingTask pending = new PendingTask();
+        if (pendingTasks.putIfAbsent(key, pending) != null) {
+            deduplicatedCount.incrementAndGet();
+            return true;
+        }
+        if (queuedCount.incrementAndGet() > capacity) {
+            queuedCount.decrementAndGet();
+            pendingTasks.remove(key, pending);
+            long dropped = droppedCount.incrementAndGet();
+            log.warn("專員狀態更新任務已滿，丟棄任務：key={}, capacity={}, 累計丟棄={}", key, capacity, dropped);
+            return false;
+        }
+        try {
+            pending.future = executor.schedule(() -> run(key, pending, task), delay, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (Exception e) {
+            if (pendingTasks.remove(key, pending)) {
+                queuedCount.decrementAndGet();
+            }
+            droppedCount.incrementAndGet();
+            log.error("排程專員狀態更新任務失敗：key={}, error={}", key, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 取消等待中的任務
+     * 
+     * @param key 任務的 key
+     * @return true 如果有等待中的任務被取消，false 如果沒有等待中的任務或任務已開始執行
+     */
+    public boolean cancel(String key) {
+        PendingTask pending = pendingTasks.remove(key);
+        if (pending == null) {
+            return false;
+        }
+        queuedCount.decrementAndGet();
+        cancelledCount.incrementAndGet();
+        ScheduledFuture<?> future = pending.future;
+        if (future != null) {
+            // 從執行器的佇列移除（setRemoveOnCancelPolicy）；已到期的任務在 run() 中發現已被取消而略過
+            future.cancel(false);
+        }
+        return true;
+    }
+
+    private void run(String key, PendingTask pending, Runnable task) {
+        // 先移除 key，執行期間收到的新事件可以再排程一次；已被 cancel() 移除時不執行
+        if (!pendingTasks.remove(key, pending)) {
+            return;
+        }
+        queuedCount.decrementAndGet();
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("執行專員狀態更新任務失敗：key={}, error={}", key, e.getMessage(), e);
+        } finally {
+            completedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 定期記錄排程器的指標
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void logMetrics() {
+        log.info("專員狀態更新排程器：queued={}, dropped={}, deduplicated={}, cancelled={}, completed={}",
+                queuedCount.get(), droppedCount.get(), deduplicatedCount.get(), cancelledCount.get(), completedCount.get());
+    }
+
+    /**
+     * 獲取等待中的任務數量
+     * 
+     * @return 任務數量
+     */
+    public int getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * 獲取累計丟棄的任務數量
+     * 
+     * @return 丟棄數量
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 獲取因相同 key 已在等待而略過的任務數量
+     * 
+     * @return 略過數量
+     */
+    public long getDeduplicatedCount() {
+        return deduplicatedCount.get();
+    }
+
+    /**
+     * 獲取累計取消的任務數量
+     * 
+     * @return 取消數量
+     */
+    public long getCancelledCount() {
+        return cancelledCount.get();
+    }
+
+    /**
+     * 獲取累計完成的任務數量
+     * 
+     * @return 完成數量
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+}
@@ -1,8 +1,10 @@
 package com.hejz.springbootstomp.event;
 
 import com.hejz.springbootstomp.service.AgentStatusService;
+import com.hejz.springbootstomp.service.ClusterUserRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
@@ -20,8 +22,11 @@ import org.springframework.web.socket.messaging.SessionSubscribeEvent;
  * <ul>
  *   <li>監聽連接事件：當專員連接時，標記為在線並廣播狀態</li>
  *   <li>監聽斷開事件：當專員斷開時，標記為離線並廣播狀態</li>
+ *   <li>維護叢集用戶註冊表：記錄用戶所在節點，供私信定向路由使用</li>
  * </ul>
  * 
+ * <p>連接和訂閱後的延遲狀態更新交給 PresenceUpdateScheduler 排程，不在事件中建立執行緒。
+ * 
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
@@ -32,6 +37,27 @@ public class WebSocketEventListener {
     @Autowired
     private AgentStatusService agentStatusService;
 
+    @Autowired
+    private ClusterUserRegistry clusterUserRegistry;
+
+    @Autowired
+    private PresenceUpdateScheduler presenceUpdateScheduler;
+
+    /**
+     * 連接後延遲更新狀態的時間（毫秒），確保Redis中的ID已經設置
+     */
+    @Value("${agent.status.connect-delay:200}")
+    private long connectDelay;
+
+    /**
+     * 訂閱後延遲更新狀態的時間（毫秒）
+     * 
+     * <p>只在用戶沒有等待中的上線更新時生效：連接後的上線更新尚未執行時，訂閱不會重新排程，
+     * 更新仍依 connect-delay 執行。實際作用於連接更新執行之後的訂閱（例如重新訂閱頻道）。
+     */
+    @Value("${agent.status.subscribe-delay:300}")
+    private long subscribeDelay;
+
     /**
      * 處理 WebSocket 連接事件
      * 
@@ -56,22 +82,13 @@ public class WebSocketEventListener {
             String userId = headerAccessor.getUser().getName();
             log.info("✓ 找到用戶 Principal，用戶ID: {}", userId);
             
+            // 記錄用戶所在節點，供私信定向路由使用
+            clusterUserRegistry.registerSession(sessionId, userId);
+            
             // 延遲一點時間再更新狀態，確保Redis中的ID已經設置
-            // 使用異步方式，避免阻塞
-            new Thread(() -> {
-                try {
-                    log.info("等待200毫秒後更新專員狀態，用戶ID: {}", userId);
-                    Thread.sleep(200); // 增加等待時間到200毫秒
-                    log.info("開始更新專員狀態為在線，用戶ID: {}", userId);
-                    agentStatusService.setAgentOnline(userId);
-                    log.info("專員狀態更新完成，用戶ID: {}", userId);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.error("更新專員狀態時被中斷，用戶ID: {}", userId, e);
-                } catch (Exception e) {
-                    log.error("更新專員狀態時發生錯誤，用戶ID: {}", userId, e);
-                }
-            }).start();
+            // 交給排程器延遲執行，避免阻塞
+            log.info("{}毫秒後更新專員狀態，用戶ID: {}", connectDelay, userId);
+            scheduleOnline(userId, connectDelay);
         } else {
             log.warn("⚠ 連接事件中沒有找到用戶 Principal，會話ID: {}", sessionId);
             log.warn("所有標頭內容: {}", headerAccessor.toMap());
@@ -93,11 +110,16 @@ public class WebSocketEventListener {
         
         log.info("收到 WebSocket 斷開事件，會話ID: {}", sessionId);
         
+        // 移除用戶所在節點記錄（同一會話重複觸發時不會重複處理）
+        clusterUserRegistry.unregisterSession(sessionId);
+        
         // 從 Principal 獲取用戶ID
         if (headerAccessor.getUser() != null) {
             String userId = headerAccessor.getUser().getName();
             log.info("用戶已斷開: {}", userId);
             
+            // 取消尚未執行的上線更新，避免它在離線之後才執行而把專員改回在線
+            presenceUpdateScheduler.cancel(onlineTaskKey(userId));
             // 更新專員狀態為離線
             agentStatusService.setAgentOffline(userId);
         } else {
@@ -132,24 +154,35 @@ public class WebSocketEventListener {
             if (destination != null && destination.startsWith("/topic/")) {
                 log.info("檢測到公共頻道訂閱，嘗試更新專員狀態，用戶ID: {}", userId);
                 // 延遲更新狀態，確保Redis中的ID已經設置
-                new Thread(() -> {
-                    try {
-                        log.info("等待300毫秒後更新專員狀態（訂閱事件），用戶ID: {}", userId);
-                        Thread.sleep(300);
-                        log.info("開始更新專員狀態為在線（訂閱事件），用戶ID: {}", userId);
-                        agentStatusService.setAgentOnline(userId);
-                        log.info("專員狀態更新完成（訂閱事件），用戶ID: {}", userId);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        log.error("更新專員狀態時被中斷（訂閱事件），用戶ID: {}", userId, e);
-                    } catch (Exception e) {
-                        log.error("更新專員狀態時發生錯誤（訂閱事件），用戶ID: {}", userId, e);
-                    }
-                }).start();
+                scheduleOnline(userId, subscribeDelay);
             }
         } else {
             log.warn("訂閱事件中沒有找到用戶 Principal，會話ID: {}", sessionId);
         }
     }
-}
 
+    /**
+     * 排程延遲更新專員狀態為在線
+     * 
+     * <p>同一用戶已有等待中的上線更新時不重複排程（例如連接後立即訂閱多個頻道）。
+     * 
+     * @param userId 用戶ID
+     * @param delay 延遲時間（毫秒）
+     */
+    private void scheduleOnline(String userId, long delay) {
+        boolean scheduled = presenceUpdateScheduler.schedule(onlineTaskKey(userId), () -> {
+            log.info("開始更新專員狀態為在線，用戶ID: {}", userId);
+            agentStatusService.setAgentOnline(userId);
+        }, delay);
+        if (!scheduled) {
+            log.warn("專員狀態更新任務已滿，略過本次上線更新，用戶ID: {}", userId);
+        }
+    }
+
+    /**
+     * 上線更新任務在排程器中的 key
+     */
+    private static String onlineTaskKey(String userId) {
+        return "online:" + userId;
+    }
+}
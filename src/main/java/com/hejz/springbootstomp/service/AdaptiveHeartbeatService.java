@@ -0,0 +1,147 @@
+package com.hejz.springbootstomp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自適應心跳間隔服務
+ * 
+ * <p>當 client.status.heartbeat.adaptive.enabled=true 時啟用。依節點目前的負載計算建議的心跳間隔，
+ * 由 HeartbeatController 在心跳確認訊息中回傳給客戶端；節點過載時心跳流量自動減少，而不是加重負載。
+ * 
+ * <p>負載指標（每 evaluate-interval 毫秒取樣一次），各自除以對應的門檻得到負載比例：
+ * <ul>
+ *   <li>入站通道（clientInboundChannel）執行緒池的佇列長度 / queue-threshold</li>
+ *   <li>目前的 WebSocket 會話數量 / session-threshold</li>
+ *   <li>Redis PING 的往返時間 / redis-latency-threshold；PING 失敗時視為達到門檻</li>
+ * </ul>
+ * 
+ * <p>建議間隔：最大的負載比例不超過 1 時為 client.status.heartbeat.interval，
+ * 超過時依比例延長，最多 max-interval。
+ * 
+ * @see com.hejz.springbootstomp.controller.HeartbeatController
+ * @see com.hejz.springbootstomp.service.ClientStatusService#checkClientTimeout(String, Long, Long)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "client.status.heartbeat.adaptive.enabled", havingValue = "true")
+public class AdaptiveHeartbeatService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    /**
+     * STOMP 入站通道的執行緒池，用於讀取佇列長度
+     */
+    @Autowired(required = false)
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor clientInboundChannelExecutor;
+
+    @Value("${client.status.heartbeat.interval:30000}")
+    private long baseInterval = 30000;
+
+    @Value("${client.status.heartbeat.adaptive.max-interval:120000}")
+    private long maxInterval = 120000;
+
+    @Value("${client.status.heartbeat.adaptive.queue-threshold:1000}")
+    private int queueThreshold = 1000;
+
+    @Value("${client.status.heartbeat.adaptive.session-threshold:10000}")
+    private int sessionThreshold = 10000;
+
+    @Value("${client.status.heartbeat.adaptive.redis-latency-threshold:50}")
+    private long redisLatencyThreshold = 50;
+
+    /**
+     * 最近一次計算的建議間隔，尚未計算時為 0（使用 client.status.heartbeat.interval）
+     */
+    private volatile long recommendedInterval;
+
+    /**
+     * 取樣負載並重新計算建議的心跳間隔
+     */
+    @Scheduled(fixedDelayString = "${client.status.heartbeat.adaptive.evaluate-interval:5000}")
+    public void evaluate() {
+        int queueDepth = getInboundQueueDepth();
+        int sessionCount = getSessionCount();
+        long redisLatency = measureRedisLatency();
+
+        double load = Math.max(ratio(queueDepth, queueThreshold),
+                Math.max(ratio(sessionCount, sessionThreshold), ratio(redisLatency, redisLatencyThreshold)));
+        long interval = load <= 1 ? baseInterval : Math.min(maxInterval, Math.round(baseInterval * load));
+
+        long previous = getRecommendedInterval();
+        recommendedInterval = interval;
+        if (interval != previous) {
+            log.info("建議心跳間隔已調整：{}ms → {}ms（queueDepth={}, sessions={}, redisLatency={}ms）",
+                    previous, interval, queueDepth, sessionCount, redisLatency);
+        }
+    }
+
+    /**
+     * 獲取目前建議的心跳間隔
+     * 
+     * @return 心跳間隔（毫秒）
+     */
+    public long getRecommendedInterval() {
+        return Math.max(baseInterval, recommendedInterval);
+    }
+
+    private int getInboundQueueDepth() {
+        if (clientInboundChannelExecutor == null) {
+            return 0;
+        }
+        try {
+            return clientInboundChannelExecutor.getQueueSize();
+        } catch (IllegalStateException e) {
+            // 執行緒池尚未初始化
+            return 0;
+        }
+    }
+
+    private int getSessionCount() {
+        int sessions = 0;
+        for (SimpUser user : simpUserRegistry.getUsers()) {
+            sessions += user.getSessions().size();
+        }
+        return sessions;
+    }
+
+    /**
+     * 量測 Redis PING 的往返時間
+     * 
+     * @return 往返時間（毫秒）；失敗時返回門檻值
+     */
+    private long measureRedisLatency() {
+        long start = System.nanoTime();
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } catch (Exception e) {
+            log.warn("量測 Redis 延遲失敗: {}", e.getMessage());
+            return redisLatencyThreshold;
+        }
+    }
+
+    private static double ratio(long value, long threshold) {
+        return threshold > 0 ? (double) value / threshold : 0;
+    }
+}
@@ -257,5 +257,19 @@ public class AgentService {
         }
         return null;
     }
-}
 
+    /**
+     * 獲取專員ID的 Redis key
+     * 
+     * @param agentType 專員類型（"a" 或 "b"）
+     * @return Redis key，專員類型不正確時返回 null
+     */
+    static String getAgentIdKey(String agentType) {
+        if ("a".equalsIgnoreCase(agentType)) {
+            return AGENT_A_KEY;
+        } else if ("b".equalsIgnoreCase(agentType)) {
+            return AGENT_B_KEY;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 專員狀態的跨節點轉發器
+ * 
+ * <p>專員狀態改變時由 AgentStatusService 發布到跨節點匯流排（Redis /topic/agentStatus 頻道或 Stream），
+ * 每個節點的 RedisMessageListener 收到後交給本元件，再轉發給本節點訂閱 /topic/agentStatus 的客戶端。
+ * 
+ * <p>轉發規則：
+ * <ul>
+ *   <li>以專員類型為鍵，版本號較新的狀態覆蓋較舊的（版本號由 Redis 在狀態改變時遞增，
+ *       不受各節點時鐘誤差影響；版本號較舊的狀態直接丟棄），
+ *       每 agent.status.relay.conflation-window 毫秒只轉發每位專員最新的一筆</li>
+ *   <li>客戶端訂閱 /topic/agentStatus 時，立即只對該訂閱發送目前每位專員的狀態（快照），
+ *       不需要再輪詢 /api/agent/{type}/status</li>
+ * </ul>
+ * 
+ * <p>local 模式下狀態改變直接由 AgentStatusService 廣播，不經過本元件，
+ * 因此快照每次都從 Redis 讀取，不使用本節點保存的狀態。
+ * 
+ * @see com.hejz.springbootstomp.service.AgentStatusService
+ * @see com.hejz.springbootstomp.RedisMessageListener#dispatch(String, String)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class AgentStatusRelay {
+
+    /** 跨節點頻道名稱，同時也是 WebSocket 的廣播頻道 */
+    public static final String CHANNEL = "/topic/agentStatus";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private AgentStatusService agentStatusService;
+
+    /**
+     * WebSocket 出站通道，用於只對單一訂閱發送快照
+     */
+    @Autowired
+    @Qualifier("clientOutboundChannel")
+    private MessageChannel clientOutboundChannel;
+
+    private SimpMessagingTemplate outboundTemplate;
+
+    /**
+     * 專員狀態的廣播模式，只有 cluster 模式下才會收到狀態並保存
+     */
+    @Value("${agent.status.broadcast.mode:local}")
+    private String broadcastMode = AgentStatusService.BROADCAST_MODE_LOCAL;
+
+    /** 每位專員目前的狀態（最新收到的一筆） */
+    private final Map<String, AgentStatusMessage> latest = new ConcurrentHashMap<>();
+
+    /** 尚未轉發的狀態：專員類型 → 最新的一筆 */
+    private final ConcurrentHashMap<String, AgentStatusMessage> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        outboundTemplate = new SimpMessagingTemplate(clientOutboundChannel);
+        outboundTemplate.setMessageConverter(messagingTemplate.getMessageConverter());
+    }
+
+    /**
+     * 接收跨節點匯流排上的專員狀態
+     * 
+     * @param message 專員狀態訊息
+     */
+    public void accept(AgentStatusMessage message) {
+        if (message == null || message.getAgentType() == null) {
+            return;
+        }
+        AgentStatusMessage current = latest.merge(message.getAgentType(), message,
+                (previous, incoming) -> incoming.getVersion() >= previous.getVersion() ? incoming : previous);
+        if (current != message) {
+            log.debug("丟棄較舊的專員狀態：agentType={}, status={}", message.getAgentType(), message.getStatus());
+            return;
+        }
+        pending.put(message.getAgentType(), message);
+    }
+
+    /**
+     * 轉發每位專員最新的狀態給本節點的訂閱者
+     */
+    @Scheduled(fixedDelayString = "${agent.status.relay.conflation-window:100}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, AgentStatusMessage> entry : pending.entrySet()) {
+            AgentStatusMessage message = entry.getValue();
+            if (!pending.remove(entry.getKey(), message)) {
+                // 期間收到更新的狀態，留到下一次
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSend(CHANNEL, message);
+                log.info("✓ 已轉發專員狀態到 {}: agentType={}, status={}", CHANNEL, message.getAgentType(), message.getStatus());
+            } catch (Exception e) {
+                log.error("✗ 轉發專員狀態失敗: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 客戶端訂閱 /topic/agentStatus 時發送目前的狀態快照
+     * 
+     * @param event WebSocket 訂閱事件
+     */
+    @EventListener
+    public void handleSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor headerAccessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (!CHANNEL.equals(headerAccessor.getDestination())) {
+            return;
+        }
+        String sessionId = headerAccessor.getSessionId();
+        String subscriptionId = headerAccessor.getSubscriptionId();
+        for (AgentStatusMessage message : snapshot()) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId(subscriptionId);
+            accessor.setLeaveMutable(true);
+            outboundTemplate.convertAndSend(CHANNEL, message, accessor.getMessageHeaders());
+        }
+        log.debug("已發送專員狀態快照：sessionId={}, subscriptionId={}", sessionId, subscriptionId);
+    }
+
+    /**
+     * 獲取每位專員目前的狀態
+     * 
+     * <p>cluster 模式下本節點尚未收到某位專員的狀態時（例如剛啟動），從 Redis 讀取；
+     * local 模式下每次都從 Redis 讀取。
+     * 
+     * @return 專員狀態列表
+     */
+    public List<AgentStatusMessage> snapshot() {
+        boolean cluster = AgentStatusService.BROADCAST_MODE_CLUSTER.equalsIgnoreCase(broadcastMode);
+        List<AgentStatusMessage> snapshot = new ArrayList<>(2);
+        for (String agentType : new String[]{"a", "b"}) {
+            AgentStatusMessage message = cluster ? latest.get(agentType) : null;
+            if (message == null) {
+                message = loadStatus(agentType, cluster);
+            }
+            if (message != null) {
+                snapshot.add(message);
+            }
+        }
+        return snapshot;
+    }
+
+    private AgentStatusMessage loadStatus(String agentType, boolean cache) {
+        try {
+            String status = agentStatusService.getAgentStatus(agentType);
+            if (status == null) {
+                return null;
+            }
+            AgentStatusMessage message = new AgentStatusMessage(agentType,
+                    "a".equals(agentType) ? "專員A" : "專員B", status, System.currentTimeMillis(), 0L);
+            if (cache) {
+                // 以版本號 0 保存，之後收到的任何更新都會覆蓋
+                latest.putIfAbsent(agentType, message);
+            }
+            return message;
+        } catch (Exception e) {
+            log.warn("讀取專員狀態失敗：agentType={}, error={}", agentType, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,13 +1,26 @@
 package com.hejz.springbootstomp.service;
 
+import com.hejz.springbootstomp.RedisMessagePublisher;
 import com.hejz.springbootstomp.dto.AgentStatusMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
-import java.util.concurrent.TimeUnit;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 專員狀態管理服務
@@ -19,6 +32,19 @@ import java.util.concurrent.TimeUnit;
  *   <li>提供查詢專員狀態的API</li>
  * </ul>
  * 
+ * <p>狀態以狀態機處理：寫入 Redis 時以 Lua 腳本一次完成 GET + SET，
+ * 只有先前的狀態與新狀態不同（ONLINE ↔ OFFLINE，或狀態已過期）時才廣播到 /topic/agentStatus；
+ * 重複的上線通知（例如連接後訂閱多個頻道）只延長狀態的過期時間。
+ * 狀態改變時腳本同時遞增該專員的版本號，隨狀態訊息發送，供 AgentStatusRelay 判斷先後。
+ * 
+ * <p>agent.status.coalesce.enabled=true 時，狀態更新先放入以用戶ID為鍵的緩衝（只保留最後一次），
+ * 每 agent.status.coalesce.window 毫秒處理一次；重新連線時短時間內的離線、上線和多次訂閱
+ * 只會寫入最後的狀態，最多產生一次廣播。
+ * 
+ * <p>agent.status.broadcast.mode=cluster 時，狀態改變不直接廣播到本節點，而是發布到跨節點匯流排，
+ * 由每個節點的 AgentStatusRelay 合併後轉發，所有節點的訂閱者都會收到一致的狀態。
+ * 
+ * @see com.hejz.springbootstomp.service.AgentStatusRelay
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
@@ -35,85 +61,155 @@ public class AgentStatusService {
     @Autowired
     private AgentService agentService;
 
+    @Autowired
+    private RedisMessagePublisher redisMessagePublisher;
+
     // Redis key 前綴
     private static final String AGENT_A_STATUS_KEY = "agent:a:status";
     private static final String AGENT_B_STATUS_KEY = "agent:b:status";
+
+    // 狀態版本號 key 的後綴
+    private static final String VERSION_KEY_SUFFIX = ":version";
     
     // 狀態值
     private static final String STATUS_ONLINE = "ONLINE";
     private static final String STATUS_OFFLINE = "OFFLINE";
     
     // 狀態過期時間（秒）- 如果專員斷開連接，狀態會在30秒後過期
-    private static final long STATUS_EXPIRE_SECONDS = 30;
+    private static final int STATUS_EXPIRE_SECONDS = 30;
+
+    /** 廣播模式：只廣播到本節點 */
+    public static final String BROADCAST_MODE_LOCAL = "local";
+
+    /** 廣播模式：發布到跨節點匯流排 */
+    public static final String BROADCAST_MODE_CLUSTER = "cluster";
+
+    /**
+     * 狀態更新的廣播模式（local 或 cluster）
+     */
+    @Value("${agent.status.broadcast.mode:local}")
+    private String broadcastMode = BROADCAST_MODE_LOCAL;
+
+    /**
+     * 是否合併短時間內的狀態更新
+     */
+    @Value("${agent.status.coalesce.enabled:false}")
+    private boolean coalesceEnabled;
+
+    /**
+     * 尚未處理的狀態更新：用戶ID → 最後的狀態
+     */
+    private final ConcurrentHashMap<String, String> pendingStatuses = new ConcurrentHashMap<>();
+
+    private DefaultRedisScript<List> setAgentStatusScript;
+
+    @PostConstruct
+    public void init() {
+        try {
+            ClassPathResource resource = new ClassPathResource("lua/set_agent_status.lua");
+            String script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            setAgentStatusScript = new DefaultRedisScript<>(script, List.class);
+        } catch (Exception e) {
+            log.error("載入 set_agent_status.lua 腳本失敗: {}", e.getMessage(), e);
+        }
+    }
 
     /**
      * 設置專員為在線狀態
      * 
-     * <p>當專員連接時，將狀態標記為在線，並廣播狀態更新給對方。
+     * <p>當專員連接時，將狀態標記為在線；先前不是在線時才廣播狀態更新給對方。
      * 
      * @param userId 專員的用戶ID
      */
     public void setAgentOnline(String userId) {
-        log.info("=== 設置專員為在線狀態 ===");
-        log.info("用戶ID: {}", userId);
-        
-        String agentType = determineAgentType(userId);
-        log.info("確定的專員類型: {}", agentType);
-        
-        if (agentType == null) {
-            log.warn("⚠ 無法確定專員類型，用戶ID: {}", userId);
-            // 嘗試從Redis獲取專員ID進行調試
-            String agentAId = agentService.getAgentAId();
-            String agentBId = agentService.getAgentBId();
-            log.warn("當前Redis中的專員A ID: {}", agentAId);
-            log.warn("當前Redis中的專員B ID: {}", agentBId);
+        updateStatus(userId, STATUS_ONLINE);
+    }
+
+    /**
+     * 設置專員為離線狀態
+     * 
+     * <p>當專員斷開連接時，將狀態標記為離線；先前不是離線時才廣播狀態更新給對方。
+     * 
+     * @param userId 專員的用戶ID
+     */
+    public void setAgentOffline(String userId) {
+        updateStatus(userId, STATUS_OFFLINE);
+    }
+
+    /**
+     * 處理緩衝中的狀態更新
+     * 
+     * <p>處理後只移除狀態未再變動的項目，處理期間收到的新狀態會留到下一次。
+     */
+    @Scheduled(fixedDelayString = "${agent.status.coalesce.window:200}")
+    public void flushStatuses() {
+        if (pendingStatuses.isEmpty()) {
             return;
         }
+        Map<String, String> batch = new HashMap<>(pendingStatuses);
+        batch.forEach((userId, status) -> {
+            applyStatus(userId, status);
+            pendingStatuses.remove(userId, status);
+        });
+    }
 
-        String statusKey = getStatusKey(agentType);
-        String agentName = "a".equals(agentType) ? "專員A" : "專員B";
-        log.info("專員名稱: {}, 狀態Key: {}", agentName, statusKey);
-        
-        try {
-            // 更新 Redis 中的狀態
-            redisTemplate.opsForValue().set(statusKey, STATUS_ONLINE, STATUS_EXPIRE_SECONDS, TimeUnit.SECONDS);
-            log.info("✓ {} 狀態已更新到Redis: ONLINE，用戶ID: {}", agentName, userId);
-            
-            // 驗證狀態是否成功寫入
-            Object savedStatus = redisTemplate.opsForValue().get(statusKey);
-            log.info("驗證Redis中的狀態: {}", savedStatus);
-            
-            // 廣播狀態更新給對方
-            log.info("準備廣播{}狀態更新...", agentName);
-            broadcastStatusUpdate(agentType, agentName, STATUS_ONLINE);
-        } catch (Exception e) {
-            log.error("更新專員狀態到Redis時發生錯誤: {}", e.getMessage(), e);
+    /**
+     * 關閉前處理緩衝中剩餘的狀態更新
+     */
+    @PreDestroy
+    public void destroy() {
+        flushStatuses();
+    }
+
+    private void updateStatus(String userId, String status) {
+        if (userId == null) {
+            log.warn("⚠ 用戶ID為null，忽略狀態更新: {}", status);
+            return;
         }
+        if (coalesceEnabled) {
+            pendingStatuses.put(userId, status);
+            return;
+        }
+        applyStatus(userId, status);
     }
 
     /**
-     * 設置專員為離線狀態
-     * 
-     * <p>當專員斷開連接時，將狀態標記為離線，並廣播狀態更新給對方。
+     * 寫入專員狀態，只有狀態改變時才廣播
      * 
      * @param userId 專員的用戶ID
+     * @param status 狀態（ONLINE 或 OFFLINE）
      */
-    public void setAgentOffline(String userId) {
+    private void applyStatus(String userId, String status) {
         String agentType = determineAgentType(userId);
         if (agentType == null) {
-            log.warn("無法確定專員類型，用戶ID: {}", userId);
+            log.warn("⚠ 無法確定專員類型，用戶ID: {}, 狀態: {}", userId, status);
             return;
         }
 
         String statusKey = getStatusKey(agentType);
         String agentName = "a".equals(agentType) ? "專員A" : "專員B";
         
-        // 更新 Redis 中的狀態
-        redisTemplate.opsForValue().set(statusKey, STATUS_OFFLINE, STATUS_EXPIRE_SECONDS, TimeUnit.SECONDS);
-        log.info("{} 已離線，用戶ID: {}", agentName, userId);
-        
-        // 廣播狀態更新給對方
-        broadcastStatusUpdate(agentType, agentName, STATUS_OFFLINE);
+        try {
+            // 更新 Redis 中的狀態，同時取得先前的狀態和目前的版本號
+            List<?> result = redisTemplate.execute(setAgentStatusScript,
+                    Arrays.asList(statusKey, statusKey + VERSION_KEY_SUFFIX), status, STATUS_EXPIRE_SECONDS);
+            if (result == null || result.size() < 2) {
+                log.warn("⚠ 更新{}狀態沒有返回結果，用戶ID: {}", agentName, userId);
+                return;
+            }
+            Object previous = result.get(0);
+            
+            if (status.equals(previous)) {
+                log.debug("{} 狀態未改變（{}），不廣播，用戶ID: {}", agentName, status, userId);
+                return;
+            }
+            log.info("✓ {} 狀態已更新: {} → {}，用戶ID: {}", agentName, previous, status, userId);
+            
+            // 廣播狀態更新給對方
+            broadcastStatusUpdate(agentType, agentName, status, ((Number) result.get(1)).longValue());
+        } catch (Exception e) {
+            log.error("更新專員狀態到Redis時發生錯誤: {}", e.getMessage(), e);
+        }
     }
 
     /**
@@ -149,23 +245,30 @@ public class AgentStatusService {
     /**
      * 廣播狀態更新給對方
      * 
-     * <p>當專員狀態改變時，通過 WebSocket 廣播狀態更新給對方。
+     * <p>當專員狀態改變時，通過 WebSocket 廣播狀態更新給對方；cluster 模式下發布到跨節點匯流排。
      * 
      * @param agentType 專員類型（"a" 或 "b"）
      * @param agentName 專員名稱（"專員A" 或 "專員B"）
      * @param status 狀態（ONLINE 或 OFFLINE）
+     * @param version 狀態版本號
      */
-    private void broadcastStatusUpdate(String agentType, String agentName, String status) {
+    private void broadcastStatusUpdate(String agentType, String agentName, String status, long version) {
         try {
             log.info("=== 廣播專員狀態更新 ===");
             log.info("專員類型: {}, 專員名稱: {}, 狀態: {}", agentType, agentName, status);
             
-            AgentStatusMessage message = new AgentStatusMessage(agentType, agentName, status, System.currentTimeMillis());
-            log.info("創建的狀態訊息: agentType={}, agentName={}, status={}, timestamp={}", 
-                    message.getAgentType(), message.getAgentName(), message.getStatus(), message.getTimestamp());
+            AgentStatusMessage message = new AgentStatusMessage(agentType, agentName, status, System.currentTimeMillis(), version);
+            log.info("創建的狀態訊息: agentType={}, agentName={}, status={}, timestamp={}, version={}", 
+                    message.getAgentType(), message.getAgentName(), message.getStatus(), message.getTimestamp(), message.getVersion());
+            
+            if (BROADCAST_MODE_CLUSTER.equalsIgnoreCase(broadcastMode)) {
+                // 由各節點的 AgentStatusRelay 轉發給各自的訂閱者
+                redisMessagePublisher.publishAgentStatus(message);
+                return;
+            }
             
             // 廣播到公共頻道，所有連接的客戶端都能收到
-            String destination = "/topic/agentStatus";
+            String destination = AgentStatusRelay.CHANNEL;
             log.info("準備發送到頻道: {}", destination);
             messagingTemplate.convertAndSend(destination, message);
             
@@ -219,7 +322,7 @@ public class AgentStatusService {
      * @param agentType 專員類型（"a" 或 "b"）
      * @return Redis key
      */
-    private String getStatusKey(String agentType) {
+    static String getStatusKey(String agentType) {
         return "a".equalsIgnoreCase(agentType) ? AGENT_A_STATUS_KEY : AGENT_B_STATUS_KEY;
     }
 }
@@ -1,18 +1,30 @@
 package com.hejz.springbootstomp.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hejz.springbootstomp.RedisRawMessageListener;
 import com.hejz.springbootstomp.dto.ChatMessage;
+import com.hejz.springbootstomp.dto.ChatMessagePage;
+import com.hejz.springbootstomp.dto.ResponseMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StreamUtils;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -25,14 +37,23 @@ import java.util.stream.Collectors;
  * <ul>
  *   <li>保存公共訊息到 Redis</li>
  *   <li>保存私信訊息到 Redis</li>
- *   <li>查詢歷史訊息（支援分頁）</li>
+ *   <li>保存公共訊息並同時發布到 Redis Pub/Sub（單一腳本）</li>
+ *   <li>查詢歷史訊息（支援偏移量分頁和游標分頁，私信可依對話篩選）</li>
+ *   <li>查詢歷史訊息的原始 JSON（不解析為 ChatMessage，供串流回應直接輸出）</li>
  *   <li>自動清理舊訊息（保留最近 N 條）</li>
  * </ul>
  * 
  * <p>存儲結構：
  * <ul>
  *   <li>公共訊息：chat:messages:public（Sorted Set）</li>
- *   <li>私信訊息：chat:messages:private:{userId}（Sorted Set）</li>
+ *   <li>私信訊息：chat:conversation:{userA 長度}:{userA}:{userB}（Sorted Set，每個對話一份，兩個 ID 依字典序排列）</li>
+ *   <li>對話索引：chat:conversations:{userId}（Sorted Set，成員為對方 ID，分數為最後活動時間）</li>
+ * </ul>
+ * 
+ * <p>寫入模式（chat.persistence.mode）：
+ * <ul>
+ *   <li>sync（預設）：在呼叫執行緒上同步執行 Lua 腳本</li>
+ *   <li>write-behind：放入 ChatMessageWriteBehindBuffer 的有界佇列，由背景執行緒以 Pipeline 批次寫入</li>
  * </ul>
  * 
  * @author Spring Boot STOMP WebSocket Team
@@ -42,8 +63,23 @@ import java.util.stream.Collectors;
 @Service
 public class ChatMessageService {
 
+    /**
+     * 使用 String 序列化器，腳本參數（分數、數量）才能以原始字串傳給 Lua
+     */
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Write-Behind 寫入緩衝（僅 chat.persistence.mode=write-behind 時存在）
+     */
+    @Autowired(required = false)
+    private ChatMessageWriteBehindBuffer writeBehindBuffer;
+
+    /**
+     * 公共訊息的記憶體歷史緩衝（僅 chat.history.cache.enabled=true 時存在）
+     */
+    @Autowired(required = false)
+    private PublicMessageHistoryCache historyCache;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -51,12 +87,22 @@ public class ChatMessageService {
     /**
      * 公共訊息列表的 Redis Key
      */
-    private static final String PUBLIC_MESSAGES_KEY = "chat:messages:public";
+    static final String PUBLIC_MESSAGES_KEY = "chat:messages:public";
 
     /**
-     * 私信訊息列表的 Redis Key 前綴
+     * 對話訊息列表的 Redis Key 前綴
      */
-    private static final String PRIVATE_MESSAGES_KEY_PREFIX = "chat:messages:private:";
+    private static final String CONVERSATION_KEY_PREFIX = "chat:conversation:";
+
+    /**
+     * 用戶對話索引的 Redis Key 前綴
+     */
+    private static final String CONVERSATION_INDEX_KEY_PREFIX = "chat:conversations:";
+
+    /**
+     * 查詢用戶全部私信時，最多合併的最近對話數量
+     */
+    private static final int MAX_MERGED_CONVERSATIONS = 50;
 
     /**
      * 最大保留訊息數量（每種類型）
@@ -72,7 +118,10 @@ public class ChatMessageService {
      * 載入 Lua 腳本
      */
     private DefaultRedisScript<Long> saveMessageScript;
+    private DefaultRedisScript<Long> publishAndSaveMessageScript;
+    private DefaultRedisScript<Long> savePrivateMessageScript;
     private DefaultRedisScript<List> getMessagesScript;
+    private DefaultRedisScript<List> getMessagesByCursorScript;
 
     /**
      * 初始化 Lua 腳本
@@ -85,11 +134,26 @@ public class ChatMessageService {
             saveMessageScript = new DefaultRedisScript<>(saveScript, Long.class);
             saveMessageScript.setResultType(Long.class);
 
+            // 載入保存並發布訊息的 Lua 腳本
+            ClassPathResource publishAndSaveResource = new ClassPathResource("lua/publish_and_save_message.lua");
+            String publishAndSaveScript = StreamUtils.copyToString(publishAndSaveResource.getInputStream(), StandardCharsets.UTF_8);
+            publishAndSaveMessageScript = new DefaultRedisScript<>(publishAndSaveScript, Long.class);
+
+            // 載入保存私信訊息的 Lua 腳本
+            ClassPathResource savePrivateResource = new ClassPathResource("lua/save_private_message.lua");
+            String savePrivateScript = StreamUtils.copyToString(savePrivateResource.getInputStream(), StandardCharsets.UTF_8);
+            savePrivateMessageScript = new DefaultRedisScript<>(savePrivateScript, Long.class);
+
             // 載入獲取訊息的 Lua 腳本
             ClassPathResource getScriptResource = new ClassPathResource("lua/get_messages.lua");
             String getScript = StreamUtils.copyToString(getScriptResource.getInputStream(), StandardCharsets.UTF_8);
             getMessagesScript = new DefaultRedisScript<>(getScript, List.class);
             getMessagesScript.setResultType(List.class);
+
+            // 載入以游標獲取訊息的 Lua 腳本
+            ClassPathResource cursorScriptResource = new ClassPathResource("lua/get_messages_by_cursor.lua");
+            String cursorScript = StreamUtils.copyToString(cursorScriptResource.getInputStream(), StandardCharsets.UTF_8);
+            getMessagesByCursorScript = new DefaultRedisScript<>(cursorScript, List.class);
         } catch (Exception e) {
             log.error("載入 Lua 腳本失敗: {}", e.getMessage(), e);
         }
@@ -108,7 +172,7 @@ public class ChatMessageService {
      * @param senderId 發送者 ID
      * @param senderName 發送者名稱（可選）
      * @param content 訊息內容
-     * @return 保存後的訊息總數
+     * @return 保存後的訊息總數；write-behind 模式下訊息尚未寫入，返回 -1
      */
     public Long savePublicMessage(String senderId, String senderName, String content) {
         try {
@@ -120,19 +184,18 @@ public class ChatMessageService {
                     content,
                     timestamp,
                     "public",
-                    null
+                    null,
+                    newMessageId()
             );
 
             String messageJson = objectMapper.writeValueAsString(message);
             
-            // 使用 Lua 腳本原子性地保存訊息
-            Long count = redisTemplate.execute(
-                    saveMessageScript,
-                    Collections.singletonList(PUBLIC_MESSAGES_KEY),
-                    messageJson,
-                    String.valueOf(timestamp),
-                    String.valueOf(MAX_MESSAGES)
-            );
+            // 使用 Lua 腳本原子性地保存訊息；啟用歷史緩衝時同時發布到歷史記錄頻道
+            String[] args = historyCache != null
+                    ? new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES),
+                            PublicMessageHistoryCache.HISTORY_CHANNEL}
+                    : new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES)};
+            Long count = executeScript(saveMessageScript, Collections.singletonList(PUBLIC_MESSAGES_KEY), args);
 
             log.info("公共訊息已保存到 Redis：senderId={}, count={}", senderId, count);
             return count;
@@ -143,64 +206,112 @@ public class ChatMessageService {
     }
 
     /**
-     * 保存私信訊息
+     * 保存公共訊息並發布到 Redis Pub/Sub
+     * 
+     * <p>使用 publish_and_save_message.lua 在一次 EVALSHA 中完成 ZADD、裁剪、設置過期時間和 PUBLISH：
+     * <ul>
+     *   <li>Redis 往返次數從兩次（PUBLISH + EVAL）減為一次</li>
+     *   <li>腳本在 Redis 中原子執行，歷史記錄順序與廣播順序一致</li>
+     * </ul>
+     * 
+     * <p>發布內容是 ResponseMessage JSON，發布到 /raw/topic/chat 頻道，
+     * 由 RedisRawMessageListener 原樣推送給 WebSocket 客戶端。
      * 
-     * <p>為發送者和接收者分別保存私信訊息，確保雙方都能查看歷史記錄。
+     * <p>write-behind 模式下廣播不能等待批次刷新，也不能因佇列丟棄而遺失：
+     * 先同步 PUBLISH，再只將保存腳本放入寫入佇列。
      * 
      * @param senderId 發送者 ID
      * @param senderName 發送者名稱（可選）
-     * @param recipientId 接收者 ID
      * @param content 訊息內容
-     * @return 保存後的訊息總數（發送者的）
+     * @return 保存後的訊息總數；write-behind 模式下訊息尚未寫入，返回 -1
      */
-    public Long savePrivateMessage(String senderId, String senderName, String recipientId, String content) {
+    public Long publishAndSavePublicMessage(String senderId, String senderName, String content) {
         try {
             long timestamp = System.currentTimeMillis();
-            
-            // 為發送者保存訊息
-            ChatMessage senderMessage = new ChatMessage(
+
+            ChatMessage message = new ChatMessage(
                     senderId,
                     senderName != null ? senderName : senderId,
                     content,
                     timestamp,
-                    "private",
-                    recipientId
+                    "public",
+                    null,
+                    newMessageId()
             );
 
-            // 為接收者保存訊息
-            ChatMessage recipientMessage = new ChatMessage(
+            String messageJson = objectMapper.writeValueAsString(message);
+            String payloadJson = objectMapper.writeValueAsString(new ResponseMessage(content));
+            if (writeBehindBuffer != null) {
+                stringRedisTemplate.convertAndSend(RedisRawMessageListener.RAW_CHAT_CHANNEL, payloadJson);
+                String[] saveArgs = historyCache != null
+                        ? new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES),
+                                PublicMessageHistoryCache.HISTORY_CHANNEL}
+                        : new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES)};
+                writeBehindBuffer.enqueue(saveMessageScript, Collections.singletonList(PUBLIC_MESSAGES_KEY), saveArgs);
+                log.info("公共訊息已發布，保存已排入寫入佇列：senderId={}", senderId);
+                return -1L;
+            }
+            String[] args = historyCache != null
+                    ? new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES),
+                            RedisRawMessageListener.RAW_CHAT_CHANNEL, payloadJson, PublicMessageHistoryCache.HISTORY_CHANNEL}
+                    : new String[]{messageJson, String.valueOf(timestamp), String.valueOf(MAX_MESSAGES),
+                            RedisRawMessageListener.RAW_CHAT_CHANNEL, payloadJson};
+
+            Long count = stringRedisTemplate.execute(publishAndSaveMessageScript, Collections.singletonList(PUBLIC_MESSAGES_KEY), (Object[]) args);
+
+            log.info("公共訊息已保存並發布：senderId={}, count={}", senderId, count);
+            return count;
+        } catch (Exception e) {
+            log.error("保存並發布公共訊息失敗: {}", e.getMessage(), e);
+            return 0L;
+        }
+    }
+
+    /**
+     * 保存私信訊息
+     * 
+     * <p>私信以對話為單位只保存一份，並在同一個 Lua 腳本中更新發送者和接收者的對話索引，
+     * 雙方都能透過對話索引查到歷史記錄。
+     * 
+     * @param senderId 發送者 ID
+     * @param senderName 發送者名稱（可選）
+     * @param recipientId 接收者 ID
+     * @param content 訊息內容
+     * @return 保存後對話中的訊息總數；write-behind 模式下訊息尚未寫入，返回 -1
+     */
+    public Long savePrivateMessage(String senderId, String senderName, String recipientId, String content) {
+        try {
+            long timestamp = System.currentTimeMillis();
+            
+            ChatMessage message = new ChatMessage(
                     senderId,
                     senderName != null ? senderName : senderId,
                     content,
                     timestamp,
                     "private",
-                    recipientId
+                    recipientId,
+                    newMessageId()
             );
 
-            String senderMessageJson = objectMapper.writeValueAsString(senderMessage);
-            String recipientMessageJson = objectMapper.writeValueAsString(recipientMessage);
+            String messageJson = objectMapper.writeValueAsString(message);
             
-            // 使用 Lua 腳本原子性地保存訊息（發送者）
-            Long senderCount = redisTemplate.execute(
-                    saveMessageScript,
-                    Collections.singletonList(PRIVATE_MESSAGES_KEY_PREFIX + senderId),
-                    senderMessageJson,
-                    String.valueOf(timestamp),
-                    String.valueOf(MAX_MESSAGES)
-            );
-
-            // 使用 Lua 腳本原子性地保存訊息（接收者）
-            Long recipientCount = redisTemplate.execute(
-                    saveMessageScript,
-                    Collections.singletonList(PRIVATE_MESSAGES_KEY_PREFIX + recipientId),
-                    recipientMessageJson,
+            // 使用 Lua 腳本原子性地保存訊息並更新雙方的對話索引
+            Long count = executeScript(
+                    savePrivateMessageScript,
+                    Arrays.asList(
+                            conversationKey(senderId, recipientId),
+                            CONVERSATION_INDEX_KEY_PREFIX + senderId,
+                            CONVERSATION_INDEX_KEY_PREFIX + recipientId
+                    ),
+                    messageJson,
                     String.valueOf(timestamp),
-                    String.valueOf(MAX_MESSAGES)
+                    String.valueOf(MAX_MESSAGES),
+                    senderId,
+                    recipientId
             );
 
-            log.info("私信訊息已保存到 Redis：senderId={}, recipientId={}, senderCount={}, recipientCount={}", 
-                    senderId, recipientId, senderCount, recipientCount);
-            return senderCount;
+            log.info("私信訊息已保存到 Redis：senderId={}, recipientId={}, count={}", senderId, recipientId, count);
+            return count;
         } catch (Exception e) {
             log.error("保存私信訊息失敗: {}", e.getMessage(), e);
             return 0L;
@@ -210,84 +321,320 @@ public class ChatMessageService {
     /**
      * 獲取公共訊息歷史記錄
      * 
+     * <p>啟用歷史緩衝時，緩衝涵蓋的範圍直接由記憶體返回，只有更舊的範圍才查詢 Redis。
+     * 
      * @param limit 獲取數量（預設 50）
      * @param offset 偏移量（預設 0，從最新開始）
      * @return 訊息列表（最新的在前）
      */
     public List<ChatMessage> getPublicMessages(int limit, int offset) {
-        try {
-            // 使用 Lua 腳本獲取訊息（反轉順序，最新的在前）
-            List<Object> messageJsons = redisTemplate.execute(
-                    getMessagesScript,
-                    Collections.singletonList(PUBLIC_MESSAGES_KEY),
-                    String.valueOf(offset),
-                    String.valueOf(offset + limit - 1),
-                    "1" // 反轉順序
-            );
+        if (historyCache != null) {
+            List<ChatMessage> cached = historyCache.getMessages(limit, offset);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return parseMessages(readMessageJsons(PUBLIC_MESSAGES_KEY, limit, offset));
+    }
 
-            if (messageJsons == null || messageJsons.isEmpty()) {
+    /**
+     * 獲取公共訊息歷史記錄的原始 JSON
+     * 
+     * <p>返回 Redis（或歷史緩衝）中存儲的 JSON 字串，不解析為 ChatMessage。
+     * 
+     * @param limit 獲取數量
+     * @param offset 偏移量（0 為最新）
+     * @return 訊息 JSON 列表（最新的在前）
+     */
+    public List<String> getPublicMessageJsons(int limit, int offset) {
+        if (historyCache != null) {
+            List<String> cached = historyCache.getMessageJsons(limit, offset);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return readMessageJsons(PUBLIC_MESSAGES_KEY, limit, offset);
+    }
+
+    /**
+     * 獲取私信歷史記錄（用戶的所有對話）
+     * 
+     * <p>從對話索引取出最近活動的對話，以 Pipeline 一次讀取各對話最新的
+     * offset + limit 則訊息，依時間合併後分頁。
+     * 
+     * @param userId 用戶 ID
+     * @param limit 獲取數量（預設 50）
+     * @param offset 偏移量（預設 0，從最新開始）
+     * @return 訊息列表（最新的在前）
+     */
+    public List<ChatMessage> getPrivateMessages(String userId, int limit, int offset) {
+        return parseMessages(getPrivateMessageJsons(userId, limit, offset));
+    }
+
+    /**
+     * 獲取私信歷史記錄（用戶的所有對話）的原始 JSON
+     * 
+     * @param userId 用戶 ID
+     * @param limit 獲取數量
+     * @param offset 偏移量（0 為最新）
+     * @return 訊息 JSON 列表（最新的在前）
+     * @see #getPrivateMessages(String, int, int)
+     */
+    public List<String> getPrivateMessageJsons(String userId, int limit, int offset) {
+        try {
+            Set<String> peerIds = stringRedisTemplate.opsForZSet()
+                    .reverseRange(CONVERSATION_INDEX_KEY_PREFIX + userId, 0, MAX_MERGED_CONVERSATIONS - 1);
+            if (peerIds == null || peerIds.isEmpty()) {
                 return Collections.emptyList();
             }
 
-            // 將 JSON 字串轉換為 ChatMessage 物件
-            return messageJsons.stream()
-                    .map(json -> {
-                        try {
-                            return objectMapper.readValue(json.toString(), ChatMessage.class);
-                        } catch (Exception e) {
-                            log.error("解析訊息 JSON 失敗: {}", e.getMessage());
-                            return null;
-                        }
-                    })
-                    .filter(msg -> msg != null)
+            long end = (long) offset + limit - 1;
+            List<String> conversationKeys = peerIds.stream()
+                    .map(peerId -> conversationKey(userId, peerId))
+                    .collect(Collectors.toList());
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (String key : conversationKeys) {
+                        ops.opsForZSet().reverseRangeWithScores(key, 0, end);
+                    }
+                    return null;
+                }
+            });
+
+            // 依分數（時間戳）合併所有對話的訊息，最新的在前
+            List<ZSetOperations.TypedTuple<String>> merged = new ArrayList<>();
+            for (Object result : results) {
+                if (result instanceof Set) {
+                    for (Object tuple : (Set<?>) result) {
+                        @SuppressWarnings("unchecked")
+                        ZSetOperations.TypedTuple<String> typed = (ZSetOperations.TypedTuple<String>) tuple;
+                        merged.add(typed);
+                    }
+                }
+            }
+            merged.sort(Comparator.comparing(ZSetOperations.TypedTuple<String>::getScore,
+                    Comparator.nullsLast(Comparator.reverseOrder())));
+
+            return merged.stream()
+                    .skip(offset)
+                    .limit(limit)
+                    .map(ZSetOperations.TypedTuple::getValue)
                     .collect(Collectors.toList());
         } catch (Exception e) {
-            log.error("獲取公共訊息失敗: {}", e.getMessage(), e);
+            log.error("獲取私信訊息失敗: userId={}, error={}", userId, e.getMessage(), e);
             return Collections.emptyList();
         }
     }
 
     /**
-     * 獲取私信歷史記錄
+     * 獲取指定對話的私信歷史記錄
      * 
      * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID
      * @param limit 獲取數量（預設 50）
      * @param offset 偏移量（預設 0，從最新開始）
      * @return 訊息列表（最新的在前）
      */
-    public List<ChatMessage> getPrivateMessages(String userId, int limit, int offset) {
+    public List<ChatMessage> getConversationMessages(String userId, String peerId, int limit, int offset) {
+        return parseMessages(getConversationMessageJsons(userId, peerId, limit, offset));
+    }
+
+    /**
+     * 獲取指定對話的私信歷史記錄的原始 JSON
+     * 
+     * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID
+     * @param limit 獲取數量
+     * @param offset 偏移量（0 為最新）
+     * @return 訊息 JSON 列表（最新的在前）
+     */
+    public List<String> getConversationMessageJsons(String userId, String peerId, int limit, int offset) {
+        return readMessageJsons(conversationKey(userId, peerId), limit, offset);
+    }
+
+    /**
+     * 以 Lua 腳本讀取一頁訊息 JSON（反轉順序，最新的在前）
+     */
+    private List<String> readMessageJsons(String key, int limit, int offset) {
         try {
-            String key = PRIVATE_MESSAGES_KEY_PREFIX + userId;
-            
-            // 使用 Lua 腳本獲取訊息（反轉順序，最新的在前）
-            List<Object> messageJsons = redisTemplate.execute(
+            List<Object> messageJsons = stringRedisTemplate.execute(
                     getMessagesScript,
                     Collections.singletonList(key),
                     String.valueOf(offset),
                     String.valueOf(offset + limit - 1),
                     "1" // 反轉順序
             );
-
             if (messageJsons == null || messageJsons.isEmpty()) {
                 return Collections.emptyList();
             }
+            return messageJsons.stream().map(Object::toString).collect(Collectors.toList());
+        } catch (Exception e) {
+            log.error("獲取訊息失敗: key={}, error={}", key, e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
 
-            // 將 JSON 字串轉換為 ChatMessage 物件
-            return messageJsons.stream()
-                    .map(json -> {
-                        try {
-                            return objectMapper.readValue(json.toString(), ChatMessage.class);
-                        } catch (Exception e) {
-                            log.error("解析訊息 JSON 失敗: {}", e.getMessage());
-                            return null;
-                        }
-                    })
-                    .filter(msg -> msg != null)
-                    .collect(Collectors.toList());
+    /**
+     * 以游標獲取公共訊息歷史記錄
+     * 
+     * <p>以（時間戳, messageId）作為排序鍵，使用 ZREVRANGEBYSCORE + LIMIT 讀取，
+     * 不論往前翻多少頁成本都是 O(log n + limit)，且新訊息插入不會讓結果位移。
+     * 
+     * @param cursor 上一頁返回的 nextCursor；null 或空字串表示從最新開始
+     * @param limit 獲取數量
+     * @return 本頁訊息和下一頁的游標
+     * @throws IllegalArgumentException 如果游標格式不正確
+     */
+    public ChatMessagePage getPublicMessagesByCursor(String cursor, int limit) {
+        return getMessagesByCursor(PUBLIC_MESSAGES_KEY, cursor, limit);
+    }
+
+    /**
+     * 以游標獲取指定對話的私信歷史記錄
+     * 
+     * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID
+     * @param cursor 上一頁返回的 nextCursor；null 或空字串表示從最新開始
+     * @param limit 獲取數量
+     * @return 本頁訊息和下一頁的游標
+     * @throws IllegalArgumentException 如果游標格式不正確
+     */
+    public ChatMessagePage getConversationMessagesByCursor(String userId, String peerId, String cursor, int limit) {
+        return getMessagesByCursor(conversationKey(userId, peerId), cursor, limit);
+    }
+
+    private ChatMessagePage getMessagesByCursor(String key, String cursor, int limit) {
+        // 公共訊息的第一頁可由歷史緩衝返回
+        if (historyCache != null && PUBLIC_MESSAGES_KEY.equals(key) && (cursor == null || cursor.isEmpty())) {
+            List<ChatMessage> cached = historyCache.getMessages(limit, 0);
+            if (cached != null) {
+                return new ChatMessagePage(cached, nextCursor(cached, cached.size(), limit));
+            }
+        }
+        String maxScore = "+inf";
+        String cursorId = "";
+        if (cursor != null && !cursor.isEmpty()) {
+            // messageId 可為空字串（游標所指的訊息無法解析 messageId）
+            int separator = cursor.indexOf('_');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("cursor 格式不正確: " + cursor);
+            }
+            try {
+                maxScore = String.valueOf(Long.parseLong(cursor.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("cursor 格式不正確: " + cursor);
+            }
+            cursorId = cursor.substring(separator + 1);
+        }
+
+        try {
+            // 腳本返回 { 訊息陣列, 最後一則原始訊息的 { 分數, messageId } }
+            List<Object> result = stringRedisTemplate.execute(
+                    getMessagesByCursorScript,
+                    Collections.singletonList(key),
+                    maxScore,
+                    cursorId,
+                    String.valueOf(limit)
+            );
+            if (result == null || result.size() < 2) {
+                return new ChatMessagePage(Collections.emptyList(), null);
+            }
+            List<?> messageJsons = (List<?>) result.get(0);
+            List<?> last = (List<?>) result.get(1);
+            List<ChatMessage> messages = parseMessages(messageJsons);
+
+            // 解析失敗的訊息會被略過，游標以最後讀取的原始訊息產生，避免下一頁重複返回它之前的訊息
+            String next = null;
+            if (messageJsons.size() >= limit && last.size() == 2) {
+                next = (long) Double.parseDouble(last.get(0).toString()) + "_" + last.get(1);
+            }
+            return new ChatMessagePage(messages, next);
         } catch (Exception e) {
-            log.error("獲取私信訊息失敗: userId={}, error={}", userId, e.getMessage(), e);
+            log.error("以游標獲取訊息失敗: key={}, cursor={}, error={}", key, cursor, e.getMessage(), e);
+            return new ChatMessagePage(Collections.emptyList(), null);
+        }
+    }
+
+    /**
+     * 歷史緩衝的分頁：本頁已滿時才有下一頁，游標為最後一則訊息的（時間戳, messageId）
+     */
+    private static String nextCursor(List<ChatMessage> messages, int resultSize, int limit) {
+        if (resultSize < limit || messages.isEmpty()) {
+            return null;
+        }
+        ChatMessage last = messages.get(messages.size() - 1);
+        return last.getTimestamp() + "_" + last.getMessageId();
+    }
+
+    /**
+     * 產生訊息唯一 ID
+     * 
+     * @return 不含連字號的 UUID 字串
+     */
+    private static String newMessageId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * 獲取對話的 Redis Key
+     * 
+     * <p>兩個用戶 ID 依字典序排列，確保雙方得到同一個 key。
+     * 用戶 ID 可能含有冒號，因此在前面加上第一個 ID 的長度，
+     * 避免 ("a:b", "c") 和 ("a", "b:c") 得到同一個 key。
+     * 
+     * @param userId 用戶 ID
+     * @param peerId 對話另一方的用戶 ID
+     * @return 對話 key（如：chat:conversation:5:userA:userB）
+     */
+    static String conversationKey(String userId, String peerId) {
+        boolean ordered = userId.compareTo(peerId) <= 0;
+        String first = ordered ? userId : peerId;
+        String second = ordered ? peerId : userId;
+        return CONVERSATION_KEY_PREFIX + first.length() + ":" + first + ":" + second;
+    }
+
+    /**
+     * 將 JSON 字串列表轉換為 ChatMessage 物件列表，無法解析的訊息會被略過
+     * 
+     * @param messageJsons JSON 字串列表
+     * @return 訊息列表
+     */
+    private List<ChatMessage> parseMessages(List<?> messageJsons) {
+        if (messageJsons == null || messageJsons.isEmpty()) {
             return Collections.emptyList();
         }
+        return messageJsons.stream()
+                .map(json -> {
+                    try {
+                        return objectMapper.readValue(json.toString(), ChatMessage.class);
+                    } catch (Exception e) {
+                        log.error("解析訊息 JSON 失敗: {}", e.getMessage());
+                        return null;
+                    }
+                })
+                .filter(msg -> msg != null)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 執行保存訊息的 Lua 腳本
+     * 
+     * <p>write-behind 模式下只放入寫入佇列，由背景執行緒批次寫入。
+     * 
+     * @param script 要執行的 Lua 腳本
+     * @param keys 腳本的 KEYS
+     * @param args 腳本的 ARGV
+     * @return 腳本返回的訊息總數；write-behind 模式下返回 -1
+     */
+    private Long executeScript(DefaultRedisScript<Long> script, List<String> keys, String... args) {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.enqueue(script, keys, args);
+            return -1L;
+        }
+        return stringRedisTemplate.execute(script, keys, (Object[]) args);
     }
 
     /**
@@ -0,0 +1,361 @@
+package com.hejz.springbootstomp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 聊天訊息 Write-Behind 寫入緩衝
+ * 
+ * <p>當 chat.persistence.mode=write-behind 時啟用。ChatMessageService 不再在 STOMP
+ * 入站執行緒上同步執行 Lua 腳本，而是將寫入請求放入有界佇列，由背景執行緒批次
+ * 以 Pipeline 方式執行 EVALSHA，一次往返寫入整批訊息。
+ * 
+ * <p>刷新條件（任一成立即刷新）：
+ * <ul>
+ *   <li>累積的寫入數量達到 batch-size</li>
+ *   <li>批次中第一筆寫入已等待 flush-interval 毫秒</li>
+ * </ul>
+ * 
+ * <p>佇列滿時的處理策略（overflow-policy）：
+ * <ul>
+ *   <li>CALLER_RUNS（預設）：由呼叫執行緒同步寫入，形成自然背壓，不遺失訊息</li>
+ *   <li>BLOCK：呼叫執行緒最多等待 offer-timeout 毫秒，逾時則丟棄</li>
+ *   <li>DROP_OLDEST：丟棄佇列中最舊的寫入，保留新訊息</li>
+ *   <li>DROP_NEWEST：丟棄目前這筆寫入</li>
+ * </ul>
+ * 
+ * <p>應用程式關閉時會停止背景執行緒，並將佇列中剩餘的寫入全部刷新到 Redis。
+ * 
+ * <p>指標（本節點累計）：getDroppedCount()（佇列滿時丟棄的寫入數）、getFailedCount()（批次寫入失敗的寫入數）。
+ * Pipeline 失敗時無法得知批次中哪些腳本已經執行，重試可能重複寫入，因此失敗的批次只記錄並計數，不重試。
+ * 
+ * @see com.hejz.springbootstomp.service.ChatMessageService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.persistence.mode", havingValue = "write-behind")
+public class ChatMessageWriteBehindBuffer implements SmartLifecycle {
+
+    /**
+     * 佇列滿時的處理策略
+     */
+    public enum OverflowPolicy {
+        CALLER_RUNS,
+        BLOCK,
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
+    /**
+     * 一筆待寫入的腳本呼叫
+     */
+    static final class PendingWrite {
+        final RedisScript<?> script;
+        final List<String> keys;
+        final String[] args;
+
+        PendingWrite(RedisScript<?> script, List<String> keys, String[] args) {
+            this.script = script;
+            this.keys = keys;
+            this.args = args;
+        }
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${chat.persistence.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${chat.persistence.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${chat.persistence.write-behind.flush-interval:50}")
+    private long flushInterval;
+
+    @Value("${chat.persistence.write-behind.overflow-policy:CALLER_RUNS}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${chat.persistence.write-behind.offer-timeout:100}")
+    private long offerTimeout;
+
+    private BlockingQueue<PendingWrite> queue;
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread flushThread;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flushThread = new Thread(this::flushLoop, "chat-write-behind");
+        flushThread.setDaemon(true);
+        flushThread.start();
+        log.info("聊天訊息 Write-Behind 已啟動：capacity={}, batchSize={}, flushInterval={}ms, overflowPolicy={}",
+                capacity, batchSize, flushInterval, overflowPolicy);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flushThread != null) {
+            flushThread.interrupt();
+            try {
+                flushThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // 關閉前刷新佇列中剩餘的寫入
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        int flushed = 0;
+        while (queue.drainTo(batch, batchSize) > 0) {
+            flushed += batch.size();
+            flush(batch);
+            batch.clear();
+        }
+        log.info("聊天訊息 Write-Behind 已停止：關閉前刷新 {} 筆，累計丟棄 {} 筆，累計寫入失敗 {} 筆",
+                flushed, droppedCount.get(), failedCount.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 在 WebSocket 訊息處理元件（phase = Integer.MAX_VALUE）停止後才停止，
+     * 確保關閉時不會再有新的寫入進入佇列
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 1000;
+    }
+
+    /**
+     * 將一筆腳本呼叫放入寫入佇列
+     * 
+     * @param script 要執行的 Lua 腳本
+     * @param keys 腳本的 KEYS
+     * @param args 腳本的 ARGV
+     */
+    public void enqueue(RedisScript<?> script, List<String> keys, String... args) {
+        PendingWrite write = new PendingWrite(script, keys, args);
+        if (queue.offer(write)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case CALLER_RUNS:
+                stringRedisTemplate.execute(script, keys, (Object[]) args);
+                break;
+            case BLOCK:
+                try {
+                    if (!queue.offer(write, offerTimeout, TimeUnit.MILLISECONDS)) {
+                        onDropped(write);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    onDropped(write);
+                }
+                break;
+            case DROP_OLDEST:
+                PendingWrite oldest = queue.poll();
+                if (oldest != null) {
+                    onDropped(oldest);
+                }
+                if (!queue.offer(write)) {
+                    onDropped(write);
+                }
+                break;
+            case DROP_NEWEST:
+            default:
+                onDropped(write);
+                break;
+        }
+    }
+
+    /**
+     * 獲取目前佇列中的寫入數量
+     * 
+     * @return 佇列長度
+     */
+    public int getQueueSize() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * 獲取累計丟棄的寫入數量
+     * 
+     * @return 丟棄數量
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * 獲取累計寫入失敗的寫入數量
+     * 
+     * @return 寫入失敗數量
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private void onDropped(PendingWrite write) {
+        long dropped = droppedCount.incrementAndGet();
+        log.warn("聊天訊息寫入佇列已滿，丟棄寫入：keys={}, policy={}, 累計丟棄={}", write.keys, overflowPolicy, dropped);
+    }
+
+    /**
+     * 背景刷新迴圈：湊滿一批或等待逾時後刷新
+     */
+    private void flushLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingWrite first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // stop() 中斷時，先刷新已取出的批次，佇列中剩餘的由 stop() 處理
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 以 Pipeline 執行一批 EVALSHA
+     * 
+     * <p>如果 Redis 回報 NOSCRIPT（例如 Redis 重啟或 SCRIPT FLUSH），會重新載入腳本並重試一次。
+     * 
+     * @param batch 待寫入的批次
+     */
+    private void flush(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            executePipelined(batch);
+        } catch (Exception e) {
+            if (!isNoScriptError(e)) {
+                long failed = failedCount.addAndGet(batch.size());
+                log.error("聊天訊息批次寫入失敗：size={}, 累計寫入失敗={}, error={}", batch.size(), failed, e.getMessage(), e);
+                return;
+            }
+            try {
+                loadScripts(batch);
+                executePipelined(batch);
+            } catch (Exception retryError) {
+                long failed = failedCount.addAndGet(batch.size());
+                log.error("聊天訊息批次寫入重試失敗：size={}, 累計寫入失敗={}, error={}",
+                        batch.size(), failed, retryError.getMessage(), retryError);
+                return;
+            }
+        }
+        log.debug("聊天訊息批次已寫入 Redis：size={}", batch.size());
+    }
+
+    private void executePipelined(List<PendingWrite> batch) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (PendingWrite write : batch) {
+                connection.scriptingCommands().evalSha(write.script.getSha1(), ReturnType.fromJavaType(write.script.getResultType()),
+                        write.keys.size(), toKeysAndArgs(write));
+            }
+            return null;
+        });
+    }
+
+    private void loadScripts(List<PendingWrite> batch) {
+        Set<RedisScript<?>> scripts = new LinkedHashSet<>();
+        for (PendingWrite write : batch) {
+            scripts.add(write.script);
+        }
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            for (RedisScript<?> script : scripts) {
+                loadScript(connection, script);
+            }
+            return null;
+        });
+    }
+
+    private void loadScript(RedisConnection connection, RedisScript<?> script) {
+        connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[][] toKeysAndArgs(PendingWrite write) {
+        byte[][] keysAndArgs = new byte[write.keys.size() + write.args.length][];
+        int i = 0;
+        for (String key : write.keys) {
+            keysAndArgs[i++] = key.getBytes(StandardCharsets.UTF_8);
+        }
+        for (String arg : write.args) {
+            keysAndArgs[i++] = arg.getBytes(StandardCharsets.UTF_8);
+        }
+        return keysAndArgs;
+    }
+
+    private static boolean isNoScriptError(Throwable e) {
+        while (e != null) {
+            if (e.getMessage() != null && e.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+            e = e.getCause();
+        }
+        return false;
+    }
+}
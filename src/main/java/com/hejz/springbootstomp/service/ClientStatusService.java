@@ -4,9 +4,32 @@ import com.hejz.springbootstomp.dto.ClientStatusCheckMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -27,6 +50,22 @@ import java.util.concurrent.TimeUnit;
  *   <li>如果超時 → 更新客戶端狀態為「未連接」</li>
  * </ol>
  * 
+ * <p>client.status.timeout.mode=sweeper 時改用叢集共用的心跳索引：
+ * <ul>
+ *   <li>心跳只執行一次 ZADD client:heartbeats {時間戳} {clientId}，不再寫入兩個字串 key</li>
+ *   <li>由 HeartbeatSweeper（領導者節點）定期以 ZRANGEBYSCORE 批次找出過期客戶端，
+ *       並以 Pipeline 一次將它們的狀態更新為 OFFLINE</li>
+ *   <li>查詢狀態時，仍在索引中的客戶端為 ONLINE</li>
+ * </ul>
+ * 
+ * <p>client.status.heartbeat.coalesce.enabled=true 時，心跳不在 STOMP 入站執行緒上同步寫入 Redis，
+ * 而是放入以客戶端為鍵的緩衝（同一客戶端只保留最後一次），每 flush-interval 毫秒以 Pipeline
+ * 一次寫入（sweeper 模式則是一次多成員的 ZADD）。逾時檢查和狀態查詢會先查看緩衝中尚未寫入的心跳。
+ * 
+ * <p>啟用自適應心跳（AdaptiveHeartbeatService）時，每次心跳都帶有當時建議給客戶端的間隔：
+ * 逾時檢查以該間隔為容許值，檢查延遲依同樣比例延長（見 getCheckDelay(long)）；
+ * sweeper 模式則將延長的時間加到索引分數上，領導者節點的截止時間不變。
+ * 
  * @author Spring Boot STOMP WebSocket Team
  * @version 1.0
  */
@@ -44,9 +83,49 @@ public class ClientStatusService {
      */
     private static final String REDIS_STATUS_KEY_PREFIX = "client:status:";
 
+    /**
+     * Redis 鍵：心跳索引（Sorted Set，成員為客戶端 ID，分數為最後心跳時間）
+     */
+    static final String HEARTBEAT_INDEX_KEY = "client:heartbeats";
+
+    /**
+     * 逾時檢查模式：叢集共用的心跳索引 + 領導者清掃
+     */
+    public static final String TIMEOUT_MODE_SWEEPER = "sweeper";
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 心跳索引的成員和分數需要以原始字串存儲，使用 String 序列化器
+     */
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 逾時檢查模式：rabbitmq、wheel 或 sweeper
+     */
+    @Value("${client.status.timeout.mode:rabbitmq}")
+    private String timeoutMode = "rabbitmq";
+
+    /**
+     * 是否合併心跳寫入
+     */
+    @Value("${client.status.heartbeat.coalesce.enabled:false}")
+    private boolean coalesceEnabled;
+
+    /**
+     * 尚未寫入 Redis 的心跳：客戶端 ID → 最後心跳時間（同一客戶端只保留最後一次）
+     */
+    private final ConcurrentHashMap<String, Long> pendingHeartbeats = new ConcurrentHashMap<>();
+
+    /**
+     * 刷新心跳和標記離線互斥，避免刷新中的批次在標記 OFFLINE 之後又寫回 ONLINE
+     */
+    private final Object flushLock = new Object();
+
+    private DefaultRedisScript<List> sweepExpiredScript;
+
     /**
      * 心跳間隔時間（毫秒），從配置檔案讀取
      */
@@ -59,25 +138,80 @@ public class ClientStatusService {
     @Value("${client.status.check.delay:60000}")
     private long checkDelay;
 
+    /**
+     * 自適應心跳的最大間隔（毫秒），用於計算心跳和狀態 key 的過期時間
+     */
+    @Value("${client.status.heartbeat.adaptive.max-interval:${client.status.heartbeat.interval:30000}}")
+    private long maxHeartbeatInterval;
+
+    @PostConstruct
+    public void init() {
+        try {
+            ClassPathResource resource = new ClassPathResource("lua/sweep_expired_heartbeats.lua");
+            String script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            sweepExpiredScript = new DefaultRedisScript<>(script, List.class);
+        } catch (Exception e) {
+            log.error("載入 sweep_expired_heartbeats.lua 腳本失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 是否使用叢集共用的心跳索引（sweeper 模式）
+     * 
+     * @return true 如果 client.status.timeout.mode=sweeper
+     */
+    public boolean isSweeperMode() {
+        return TIMEOUT_MODE_SWEEPER.equals(timeoutMode);
+    }
+
     /**
      * 記錄客戶端心跳
      * 
      * <p>當客戶端發送心跳時，將最後訪問時間記錄到 Redis，
      * 並設定過期時間為檢查延遲時間的 2 倍，確保即使檢查失敗也能自動清理。
+     * 啟用合併寫入時只放入緩衝，由 flushHeartbeats() 批次寫入。
      * 
      * @param clientId 客戶端 ID
      * @return 記錄的心跳時間戳
      */
     public Long recordHeartbeat(String clientId) {
+        return recordHeartbeat(clientId, heartbeatInterval);
+    }
+
+    /**
+     * 記錄客戶端心跳，並指定建議給客戶端的心跳間隔
+     * 
+     * <p>sweeper 模式下索引分數為心跳時間加上檢查延遲的延長部分，
+     * 使間隔較長的客戶端晚一點才被清掃。
+     * 
+     * @param clientId 客戶端 ID
+     * @param interval 建議給客戶端的心跳間隔（毫秒）
+     * @return 記錄的心跳時間戳
+     */
+    public Long recordHeartbeat(String clientId, long interval) {
         long currentTime = System.currentTimeMillis();
+        long indexScore = currentTime + getCheckDelay(interval) - checkDelay;
+
+        if (coalesceEnabled) {
+            pendingHeartbeats.put(clientId, isSweeperMode() ? indexScore : currentTime);
+            return currentTime;
+        }
+
+        if (isSweeperMode()) {
+            // 只更新心跳索引的分數，逾時由 HeartbeatSweeper 批次處理
+            stringRedisTemplate.opsForZSet().add(HEARTBEAT_INDEX_KEY, clientId, indexScore);
+            log.debug("記錄客戶端心跳到索引：clientId={}, timestamp={}", clientId, currentTime);
+            return currentTime;
+        }
+
         String key = REDIS_KEY_PREFIX + clientId;
         
         // 記錄最後心跳時間到 Redis，設定過期時間為檢查延遲時間的 2 倍
-        redisTemplate.opsForValue().set(key, currentTime, checkDelay * 2, TimeUnit.MILLISECONDS);
+        redisTemplate.opsForValue().set(key, currentTime, keyTtl(), TimeUnit.MILLISECONDS);
         
         // 更新客戶端狀態為「在線」
         String statusKey = REDIS_STATUS_KEY_PREFIX + clientId;
-        redisTemplate.opsForValue().set(statusKey, "ONLINE", checkDelay * 2, TimeUnit.MILLISECONDS);
+        redisTemplate.opsForValue().set(statusKey, "ONLINE", keyTtl(), TimeUnit.MILLISECONDS);
         
         log.debug("記錄客戶端心跳：clientId={}, timestamp={}", clientId, currentTime);
         return currentTime;
@@ -94,8 +228,22 @@ public class ClientStatusService {
      * @return true 如果客戶端超時，false 如果客戶端仍在線
      */
     public boolean checkClientTimeout(String clientId, Long expectedLastHeartbeatTime) {
+        return checkClientTimeout(clientId, expectedLastHeartbeatTime, null);
+    }
+
+    /**
+     * 依客戶端的心跳間隔檢查客戶端是否超時
+     * 
+     * @param clientId 客戶端 ID
+     * @param expectedLastHeartbeatTime 預期的最後心跳時間
+     * @param interval 建議給客戶端的心跳間隔（毫秒），為 null 時使用 client.status.heartbeat.interval
+     * @return true 如果客戶端超時，false 如果客戶端仍在線
+     */
+    public boolean checkClientTimeout(String clientId, Long expectedLastHeartbeatTime, Long interval) {
+        // 緩衝中尚未寫入的心跳一定比 Redis 中的新
+        Long pending = pendingHeartbeats.get(clientId);
         String key = REDIS_KEY_PREFIX + clientId;
-        Object lastHeartbeatObj = redisTemplate.opsForValue().get(key);
+        Object lastHeartbeatObj = pending != null ? pending : redisTemplate.opsForValue().get(key);
         
         if (lastHeartbeatObj == null) {
             // Redis 中沒有記錄，表示客戶端已離線
@@ -104,27 +252,16 @@ public class ClientStatusService {
             return true;
         }
         
-        // 處理不同的序列化格式（可能是 Long、Integer 或字串）
-        Long lastHeartbeatTime;
-        if (lastHeartbeatObj instanceof Long) {
-            lastHeartbeatTime = (Long) lastHeartbeatObj;
-        } else if (lastHeartbeatObj instanceof Integer) {
-            lastHeartbeatTime = ((Integer) lastHeartbeatObj).longValue();
-        } else {
-            // 嘗試解析為字串
-            try {
-                lastHeartbeatTime = Long.parseLong(lastHeartbeatObj.toString());
-            } catch (NumberFormatException e) {
-                log.error("無法解析最後心跳時間：clientId={}, value={}", clientId, lastHeartbeatObj);
-                updateClientStatus(clientId, "OFFLINE", expectedLastHeartbeatTime);
-                return true;
-            }
+        Long lastHeartbeatTime = toHeartbeatTime(clientId, lastHeartbeatObj);
+        if (lastHeartbeatTime == null) {
+            updateClientStatus(clientId, "OFFLINE", expectedLastHeartbeatTime);
+            return true;
         }
         
         long currentTime = System.currentTimeMillis();
         long timeSinceLastHeartbeat = currentTime - lastHeartbeatTime;
         
-        if (timeSinceLastHeartbeat > heartbeatInterval) {
+        if (timeSinceLastHeartbeat > allowedInterval(interval)) {
             // 超過心跳間隔時間，認為客戶端已離線
             log.info("客戶端已超時：clientId={}, 最後心跳時間={}, 當前時間={}, 間隔={}ms", 
                     clientId, lastHeartbeatTime, currentTime, timeSinceLastHeartbeat);
@@ -138,6 +275,105 @@ public class ClientStatusService {
         }
     }
 
+    /**
+     * 批次檢查多個客戶端是否超時
+     * 
+     * <p>以一次 MGET 讀取所有客戶端的最後心跳時間（緩衝中尚未寫入的心跳優先），
+     * 再以 Pipeline 一次將超時的客戶端更新為 OFFLINE。同一批次中重複的客戶端只檢查一次，
+     * 並以其中最長的心跳間隔為容許值。
+     * 
+     * @param messages 客戶端狀態檢查訊息列表
+     * @return 已超時並更新為 OFFLINE 的客戶端 ID 列表
+     */
+    public List<String> checkClientTimeouts(List<ClientStatusCheckMessage> messages) {
+        Map<String, Long> clientIntervals = new LinkedHashMap<>();
+        for (ClientStatusCheckMessage message : messages) {
+            if (message != null && message.getClientId() != null) {
+                clientIntervals.merge(message.getClientId(), allowedInterval(message.getHeartbeatInterval()), Math::max);
+            }
+        }
+        Set<String> clientIds = clientIntervals.keySet();
+        if (clientIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> keys = new ArrayList<>(clientIds.size());
+        for (String clientId : clientIds) {
+            keys.add(REDIS_KEY_PREFIX + clientId);
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+
+        long currentTime = System.currentTimeMillis();
+        List<String> timedOut = new ArrayList<>();
+        int i = 0;
+        for (String clientId : clientIds) {
+            Long pending = pendingHeartbeats.get(clientId);
+            Object lastHeartbeatObj = pending != null ? pending : (values != null ? values.get(i) : null);
+            i++;
+            Long lastHeartbeatTime = lastHeartbeatObj != null ? toHeartbeatTime(clientId, lastHeartbeatObj) : null;
+            if (lastHeartbeatTime == null || currentTime - lastHeartbeatTime > clientIntervals.get(clientId)) {
+                timedOut.add(clientId);
+            }
+        }
+
+        markExpired(timedOut);
+        log.debug("批次檢查客戶端狀態：checked={}, timedOut={}", clientIds.size(), timedOut.size());
+        return timedOut;
+    }
+
+    /**
+     * 計算指定心跳間隔對應的逾時檢查延遲
+     * 
+     * <p>間隔不超過 client.status.heartbeat.interval 時為 client.status.check.delay，
+     * 否則依間隔的比例延長（例如間隔加倍，延遲也加倍）。
+     * 
+     * @param interval 建議給客戶端的心跳間隔（毫秒）
+     * @return 逾時檢查延遲（毫秒）
+     */
+    public long getCheckDelay(long interval) {
+        if (heartbeatInterval <= 0 || interval <= heartbeatInterval) {
+            return checkDelay;
+        }
+        return checkDelay * interval / heartbeatInterval;
+    }
+
+    /**
+     * 逾時判斷的容許間隔：不小於 client.status.heartbeat.interval
+     */
+    private long allowedInterval(Long interval) {
+        return interval != null ? Math.max(heartbeatInterval, interval) : heartbeatInterval;
+    }
+
+    /**
+     * 心跳和狀態 key 的過期時間：最長檢查延遲的 2 倍，確保檢查前 key 不會先過期
+     */
+    private long keyTtl() {
+        return getCheckDelay(Math.max(heartbeatInterval, maxHeartbeatInterval)) * 2;
+    }
+
+    /**
+     * 處理不同的序列化格式（可能是 Long、Integer 或字串）
+     * 
+     * @param clientId 客戶端 ID（用於記錄日誌）
+     * @param value Redis 中的最後心跳時間
+     * @return 最後心跳時間，無法解析時返回 null
+     */
+    private Long toHeartbeatTime(String clientId, Object value) {
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        if (value instanceof Integer) {
+            return ((Integer) value).longValue();
+        }
+        // 嘗試解析為字串
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            log.error("無法解析最後心跳時間：clientId={}, value={}", clientId, value);
+            return null;
+        }
+    }
+
     /**
      * 更新客戶端狀態
      * 
@@ -147,7 +383,7 @@ public class ClientStatusService {
      */
     private void updateClientStatus(String clientId, String status, Long lastHeartbeatTime) {
         String statusKey = REDIS_STATUS_KEY_PREFIX + clientId;
-        redisTemplate.opsForValue().set(statusKey, status, checkDelay * 2, TimeUnit.MILLISECONDS);
+        redisTemplate.opsForValue().set(statusKey, status, keyTtl(), TimeUnit.MILLISECONDS);
         
         log.info("更新客戶端狀態：clientId={}, status={}, lastHeartbeatTime={}", 
                 clientId, status, lastHeartbeatTime);
@@ -163,9 +399,201 @@ public class ClientStatusService {
      * @return 客戶端狀態（ONLINE 或 OFFLINE），如果不存在則返回 null
      */
     public String getClientStatus(String clientId) {
+        if (pendingHeartbeats.containsKey(clientId)) {
+            return "ONLINE";
+        }
+        if (isSweeperMode() && stringRedisTemplate.opsForZSet().score(HEARTBEAT_INDEX_KEY, clientId) != null) {
+            // 仍在心跳索引中（尚未被清掃）即為在線
+            return "ONLINE";
+        }
         String statusKey = REDIS_STATUS_KEY_PREFIX + clientId;
         Object status = redisTemplate.opsForValue().get(statusKey);
         return status != null ? status.toString() : null;
     }
-}
 
+    /**
+     * 找出可以直接判定為在線的客戶端
+     * 
+     * <p>與 getClientStatus() 的前兩個判斷相同：緩衝中有尚未寫入的心跳，或 sweeper 模式下仍在心跳索引中。
+     * sweeper 模式以 Pipeline 一次查詢所有客戶端的 ZSCORE。其餘客戶端由呼叫端讀取狀態 key。
+     * 
+     * @param clientIds 客戶端 ID 列表
+     * @return 在線的客戶端 ID
+     */
+    public Set<String> findOnlineClients(Collection<String> clientIds) {
+        Set<String> online = new HashSet<>();
+        List<String> indexed = new ArrayList<>();
+        for (String clientId : clientIds) {
+            if (pendingHeartbeats.containsKey(clientId)) {
+                online.add(clientId);
+            } else if (isSweeperMode()) {
+                indexed.add(clientId);
+            }
+        }
+        if (indexed.isEmpty()) {
+            return online;
+        }
+        List<Object> scores = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String clientId : indexed) {
+                    ops.opsForZSet().score(HEARTBEAT_INDEX_KEY, clientId);
+                }
+                return null;
+            }
+        });
+        for (int i = 0; i < indexed.size() && i < scores.size(); i++) {
+            if (scores.get(i) != null) {
+                online.add(indexed.get(i));
+            }
+        }
+        return online;
+    }
+
+    /**
+     * 獲取客戶端狀態的 Redis key
+     * 
+     * @param clientId 客戶端 ID
+     * @return Redis key
+     */
+    static String getStatusKey(String clientId) {
+        return REDIS_STATUS_KEY_PREFIX + clientId;
+    }
+
+    /**
+     * 將緩衝中的心跳批次寫入 Redis
+     * 
+     * <p>每個客戶端寫入最後一次心跳時間；寫入後只移除值未再變動的項目，
+     * 寫入期間收到的新心跳會留到下一次刷新。
+     */
+    @Scheduled(fixedDelayString = "${client.status.heartbeat.coalesce.flush-interval:1000}")
+    public void flushHeartbeats() {
+        if (pendingHeartbeats.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            doFlushHeartbeats();
+        }
+    }
+
+    private void doFlushHeartbeats() {
+        Map<String, Long> batch = new HashMap<>(pendingHeartbeats);
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (isSweeperMode()) {
+                Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                batch.forEach((clientId, time) -> tuples.add(ZSetOperations.TypedTuple.of(clientId, time.doubleValue())));
+                stringRedisTemplate.opsForZSet().add(HEARTBEAT_INDEX_KEY, tuples);
+            } else {
+                writeHeartbeats(batch);
+            }
+            batch.forEach(pendingHeartbeats::remove);
+            log.debug("心跳已批次寫入 Redis：count={}", batch.size());
+        } catch (Exception e) {
+            // 保留在緩衝中，下一次刷新重試
+            log.error("心跳批次寫入失敗：count={}, error={}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 關閉前寫入緩衝中剩餘的心跳
+     */
+    @PreDestroy
+    public void destroy() {
+        flushHeartbeats();
+    }
+
+    /**
+     * 以 Pipeline 寫入多個客戶端的最後心跳時間和 ONLINE 狀態
+     */
+    private void writeHeartbeats(Map<String, Long> heartbeats) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                heartbeats.forEach((clientId, time) -> {
+                    ops.opsForValue().set(REDIS_KEY_PREFIX + clientId, time, keyTtl(), TimeUnit.MILLISECONDS);
+                    ops.opsForValue().set(REDIS_STATUS_KEY_PREFIX + clientId, "ONLINE", keyTtl(), TimeUnit.MILLISECONDS);
+                });
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 從心跳索引取出並移除已過期的客戶端
+     * 
+     * @param cutoff 截止時間（毫秒），最後心跳時間不晚於此值的客戶端視為過期
+     * @param limit 最多處理的客戶端數量
+     * @return 已移除的客戶端 ID 列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> removeExpiredHeartbeats(long cutoff, int limit) {
+        List<String> expired = stringRedisTemplate.execute(sweepExpiredScript,
+                Collections.singletonList(HEARTBEAT_INDEX_KEY), String.valueOf(cutoff), String.valueOf(limit));
+        return expired != null ? expired : Collections.emptyList();
+    }
+
+    /**
+     * 將已斷線的客戶端更新為 OFFLINE
+     * 
+     * <p>同時丟棄緩衝中尚未寫入的心跳，sweeper 模式下並在同一個 Pipeline 中將客戶端移出心跳索引，
+     * 否則之後的刷新或 getClientStatus() 仍會將已斷線的客戶端視為 ONLINE。
+     * 
+     * @param clientIds 客戶端 ID 列表
+     */
+    public void markOffline(List<String> clientIds) {
+        if (clientIds.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            clientIds.forEach(pendingHeartbeats::remove);
+            writeOffline(clientIds, isSweeperMode());
+        }
+        log.info("批次更新客戶端狀態為 OFFLINE：count={}", clientIds.size());
+    }
+
+    /**
+     * 以 Pipeline 一次將多個逾時的客戶端狀態更新為 OFFLINE
+     * 
+     * <p>供逾時檢查和 HeartbeatSweeper 使用：客戶端可能在判定逾時後又送來心跳，
+     * 因此保留緩衝中的心跳，也不修改心跳索引（清掃時已由 sweep_expired_heartbeats.lua 移除）。
+     * 
+     * @param clientIds 客戶端 ID 列表
+     */
+    public void markExpired(List<String> clientIds) {
+        if (clientIds.isEmpty()) {
+            return;
+        }
+        writeOffline(clientIds, false);
+        log.info("批次更新逾時客戶端狀態為 OFFLINE：count={}", clientIds.size());
+    }
+
+    private void writeOffline(List<String> clientIds, boolean removeFromIndex) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String clientId : clientIds) {
+                    ops.opsForValue().set(REDIS_STATUS_KEY_PREFIX + clientId, "OFFLINE", keyTtl(), TimeUnit.MILLISECONDS);
+                }
+                if (removeFromIndex) {
+                    // 心跳索引的成員是原始字串（見 stringRedisTemplate），不能經過 JSON 值序列化器
+                    byte[][] members = new byte[clientIds.size()][];
+                    for (int i = 0; i < members.length; i++) {
+                        members[i] = clientIds.get(i).getBytes(StandardCharsets.UTF_8);
+                    }
+                    ops.execute((RedisCallback<Object>) connection -> connection.zSetCommands()
+                            .zRem(HEARTBEAT_INDEX_KEY.getBytes(StandardCharsets.UTF_8), members));
+                }
+                return null;
+            }
+        });
+    }
+}
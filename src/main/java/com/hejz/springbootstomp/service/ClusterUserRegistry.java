@@ -0,0 +1,215 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 叢集用戶註冊表服務
+ * 
+ * <p>此服務在 Redis 中維護「用戶 → 節點」的對應關係，讓私信可以只發送到
+ * 接收者所在的節點，而不是廣播給所有節點。
+ * 
+ * <p>主要功能：
+ * <ul>
+ *   <li>WebSocket 連接時記錄用戶所在節點（帶 TTL）</li>
+ *   <li>WebSocket 斷開時移除記錄（僅移除本節點寫入的記錄）</li>
+ *   <li>定期刷新本節點所有在線用戶的 TTL（僅限仍指向本節點的記錄），節點當機時記錄會自動過期</li>
+ *   <li>查詢用戶所在節點</li>
+ * </ul>
+ * 
+ * <p>存儲結構：
+ * <ul>
+ *   <li>cluster:user:node:{userId} → 節點 ID（String，帶 TTL）</li>
+ * </ul>
+ * 
+ * <p>同一用戶同時連接多個節點時，以最後連接的節點為準。
+ * 
+ * @see com.hejz.springbootstomp.config.ClusterNodeIdentity
+ * @see com.hejz.springbootstomp.event.WebSocketEventListener
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class ClusterUserRegistry {
+
+    /**
+     * Redis 鍵前綴：用戶所在節點
+     */
+    private static final String USER_NODE_KEY_PREFIX = "cluster:user:node:";
+
+    /**
+     * 每次執行刷新腳本最多處理的用戶數量，避免單一腳本佔用 Redis 過久
+     */
+    private static final int REFRESH_BATCH_SIZE = 500;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ClusterNodeIdentity clusterNodeIdentity;
+
+    /**
+     * 用戶→節點記錄的過期時間（毫秒），從配置檔案讀取
+     */
+    @Value("${cluster.user-registry.ttl:90000}")
+    private long registryTtl = 90000;
+
+    /**
+     * 本節點的會話 → 用戶 ID 對應（斷開事件可能重複觸發，以會話為單位確保冪等）
+     */
+    private final Map<String, String> localSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 本節點每個用戶的會話數量
+     */
+    private final Map<String, Integer> localSessionCounts = new ConcurrentHashMap<>();
+
+    private DefaultRedisScript<Long> compareAndDeleteScript;
+
+    private DefaultRedisScript<Long> refreshUserNodeScript;
+
+    @PostConstruct
+    public void init() {
+        try {
+            ClassPathResource resource = new ClassPathResource("lua/compare_and_delete.lua");
+            String script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            compareAndDeleteScript = new DefaultRedisScript<>(script, Long.class);
+            resource = new ClassPathResource("lua/refresh_user_node.lua");
+            script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            refreshUserNodeScript = new DefaultRedisScript<>(script, Long.class);
+        } catch (Exception e) {
+            log.error("載入 compare_and_delete.lua 腳本失敗: {}", e.getMessage(), e);
+            throw new RuntimeException("無法載入叢集用戶註冊表腳本", e);
+        }
+    }
+
+    /**
+     * 註冊本節點的用戶會話
+     * 
+     * <p>記錄用戶所在節點到 Redis，同一會話重複註冊不會重複計數。
+     * 
+     * @param sessionId WebSocket 會話 ID
+     * @param userId 用戶 ID
+     */
+    public void registerSession(String sessionId, String userId) {
+        if (sessionId == null || userId == null) {
+            return;
+        }
+        if (localSessions.putIfAbsent(sessionId, userId) == null) {
+            localSessionCounts.merge(userId, 1, Integer::sum);
+        }
+        try {
+            redisTemplate.opsForValue().set(USER_NODE_KEY_PREFIX + userId, clusterNodeIdentity.getNodeId(),
+                    registryTtl, TimeUnit.MILLISECONDS);
+            log.debug("用戶已註冊到節點：userId={}, nodeId={}", userId, clusterNodeIdentity.getNodeId());
+        } catch (Exception e) {
+            log.error("註冊用戶所在節點失敗：userId={}, error={}", userId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 移除本節點的用戶會話
+     * 
+     * <p>只有當用戶在本節點的最後一個會話斷開時，才會刪除 Redis 中的記錄；
+     * 且只刪除仍指向本節點的記錄，避免覆蓋用戶在其他節點的新連接。
+     * 
+     * @param sessionId WebSocket 會話 ID
+     */
+    public void unregisterSession(String sessionId) {
+        if (sessionId == null) {
+            return;
+        }
+        String userId = localSessions.remove(sessionId);
+        if (userId == null) {
+            return;
+        }
+        Integer remaining = localSessionCounts.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+        if (remaining != null) {
+            log.debug("用戶在本節點仍有會話：userId={}, sessions={}", userId, remaining);
+            return;
+        }
+        try {
+            redisTemplate.execute(compareAndDeleteScript,
+                    Collections.singletonList(USER_NODE_KEY_PREFIX + userId),
+                    clusterNodeIdentity.getNodeId());
+            log.debug("用戶已從節點移除：userId={}, nodeId={}", userId, clusterNodeIdentity.getNodeId());
+        } catch (Exception e) {
+            log.error("移除用戶所在節點失敗：userId={}, error={}", userId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 查詢用戶所在節點
+     * 
+     * @param userId 用戶 ID
+     * @return 節點 ID，如果用戶不在任何節點或查詢失敗則返回 null
+     */
+    public String findNode(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        try {
+            Object nodeId = redisTemplate.opsForValue().get(USER_NODE_KEY_PREFIX + userId);
+            return nodeId != null ? nodeId.toString() : null;
+        } catch (Exception e) {
+            log.error("查詢用戶所在節點失敗：userId={}, error={}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 定期刷新本節點在線用戶的 TTL
+     * 
+     * <p>以 refresh_user_node.lua 每批最多 REFRESH_BATCH_SIZE 個用戶：記錄仍指向本節點時只延長 TTL，
+     * 記錄遺失（例如 Redis 重啟）時重新寫入；用戶已在其他節點重新連接時不覆蓋，
+     * 否則私信會被路由回本節點的舊會話。
+     */
+    @Scheduled(fixedDelayString = "${cluster.user-registry.refresh-interval:30000}")
+    @SuppressWarnings("unchecked")
+    public void refreshLocalUsers() {
+        List<String> userIds = new ArrayList<>(localSessionCounts.keySet());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String nodeId = clusterNodeIdentity.getNodeId();
+        try {
+            // 腳本以字串比較 GET 的結果，節點 ID 需與 registerSession() 寫入時相同的序列化格式
+            byte[] storedNodeId = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(nodeId);
+            String expected = new String(storedNodeId, StandardCharsets.UTF_8);
+            long refreshed = 0;
+            for (int from = 0; from < userIds.size(); from += REFRESH_BATCH_SIZE) {
+                List<String> keys = new ArrayList<>();
+                for (String userId : userIds.subList(from, Math.min(from + REFRESH_BATCH_SIZE, userIds.size()))) {
+                    keys.add(USER_NODE_KEY_PREFIX + userId);
+                }
+                Long count = redisTemplate.execute(refreshUserNodeScript, StringRedisSerializer.UTF_8,
+                        new GenericToStringSerializer<>(Long.class), keys, expected, String.valueOf(registryTtl));
+                refreshed += count != null ? count : 0;
+            }
+            log.debug("已刷新本節點在線用戶：nodeId={}, users={}, refreshed={}", nodeId, userIds.size(), refreshed);
+        } catch (Exception e) {
+            log.error("刷新本節點在線用戶失敗：nodeId={}, error={}", nodeId, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 心跳索引清掃器
+ * 
+ * <p>當 client.status.timeout.mode=sweeper 時啟用。所有節點的心跳都寫入同一個
+ * client:heartbeats Sorted Set，由一個領導者節點以固定間隔清掃過期的客戶端：
+ * <ol>
+ *   <li>以 SET NX PX 取得領導權，領導者每次清掃前以 compare_and_expire.lua 續約</li>
+ *   <li>以 sweep_expired_heartbeats.lua（ZRANGEBYSCORE + ZREM）批次取出過期的客戶端</li>
+ *   <li>以 Pipeline 一次將這批客戶端的狀態更新為 OFFLINE</li>
+ * </ol>
+ * 
+ * <p>領導者節點當機時，領導權 key 會在 leader-ttl 後過期，由其他節點接手。
+ * 
+ * @see com.hejz.springbootstomp.service.ClientStatusService#removeExpiredHeartbeats(long, int)
+ * @see com.hejz.springbootstomp.service.ClientStatusService#markExpired(List)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "client.status.timeout.mode", havingValue = ClientStatusService.TIMEOUT_MODE_SWEEPER)
+public class HeartbeatSweeper {
+
+    /**
+     * Redis 鍵：清掃器領導者（值為節點 ID）
+     */
+    static final String LEADER_KEY = "client:heartbeats:sweeper:leader";
+
+    @Autowired
+    private ClientStatusService clientStatusService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ClusterNodeIdentity clusterNodeIdentity;
+
+    /**
+     * 檢查延遲時間（毫秒），最後心跳早於此時間的客戶端視為離線
+     */
+    @Value("${client.status.check.delay:60000}")
+    private long checkDelay = 60000;
+
+    /**
+     * 領導權的過期時間（毫秒），應大於清掃間隔
+     */
+    @Value("${client.status.timeout.sweeper.leader-ttl:15000}")
+    private long leaderTtl = 15000;
+
+    /**
+     * 每批最多處理的客戶端數量
+     */
+    @Value("${client.status.timeout.sweeper.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * 每次清掃最多處理的批次數，避免單次清掃佔用過久
+     */
+    @Value("${client.status.timeout.sweeper.max-batches:20}")
+    private int maxBatches = 20;
+
+    private DefaultRedisScript<Long> compareAndExpireScript;
+
+    @PostConstruct
+    public void init() {
+        try {
+            ClassPathResource resource = new ClassPathResource("lua/compare_and_expire.lua");
+            String script = StreamUtils.copyToString(resource.getInputStream(), StandardCharsets.UTF_8);
+            compareAndExpireScript = new DefaultRedisScript<>(script, Long.class);
+        } catch (Exception e) {
+            log.error("載入 compare_and_expire.lua 腳本失敗: {}", e.getMessage(), e);
+            throw new RuntimeException("無法載入心跳清掃器腳本", e);
+        }
+    }
+
+    /**
+     * 定期清掃過期的客戶端（只有領導者節點實際執行）
+     */
+    @Scheduled(fixedDelayString = "${client.status.timeout.sweeper.interval:5000}")
+    public void sweep() {
+        try {
+            if (!acquireLeadership()) {
+                return;
+            }
+            long cutoff = System.currentTimeMillis() - checkDelay;
+            int total = 0;
+            for (int i = 0; i < maxBatches; i++) {
+                List<String> expired = clientStatusService.removeExpiredHeartbeats(cutoff, batchSize);
+                clientStatusService.markExpired(expired);
+                total += expired.size();
+                if (expired.size() < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("心跳清掃完成：nodeId={}, offline={}", clusterNodeIdentity.getNodeId(), total);
+            }
+        } catch (Exception e) {
+            log.error("心跳清掃失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 取得或續約領導權
+     * 
+     * @return true 如果本節點是領導者
+     */
+    boolean acquireLeadership() {
+        String nodeId = clusterNodeIdentity.getNodeId();
+        Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEADER_KEY, nodeId, leaderTtl, TimeUnit.MILLISECONDS);
+        if (Boolean.TRUE.equals(acquired)) {
+            log.info("取得心跳清掃器領導權：nodeId={}", nodeId);
+            return true;
+        }
+        Long renewed = stringRedisTemplate.execute(compareAndExpireScript,
+                Collections.singletonList(LEADER_KEY), nodeId, String.valueOf(leaderTtl));
+        return renewed != null && renewed == 1L;
+    }
+}
@@ -0,0 +1,272 @@
+package com.hejz.springbootstomp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 客戶端心跳逾時的時間輪（Hashed Timing Wheel）
+ * 
+ * <p>當 client.status.timeout.mode=wheel 時啟用，取代每次心跳都發送一則 RabbitMQ TTL 延遲訊息的做法。
+ * 每個客戶端在輪上只有一個可重複使用的節點，心跳時只是把節點移到新的格子（O(1)，不建立新物件）；
+ * 只有真正到期的客戶端才會呼叫 ClientStatusService.checkClientTimeout() 到 Redis 確認並更新為 OFFLINE。
+ * 
+ * <p>結構：
+ * <ul>
+ *   <li>wheel-size 個格子（2 的冪次），每格是一條雙向鏈結串列</li>
+ *   <li>每 tick-duration 毫秒前進一格，處理該格中到期的節點；未到期（還要再轉幾圈）的節點留在原處</li>
+ *   <li>到期時間 = 最後心跳時間 + client.status.check.delay，與 RabbitMQ 模式的 TTL 相同；
+ *       自適應心跳延長間隔時，由呼叫端傳入延長後的檢查延遲</li>
+ * </ul>
+ * 
+ * <p>叢集環境下客戶端可能重新連接到其他節點，因此到期後仍由 checkClientTimeout()
+ * 以 Redis 中的最後心跳時間判斷，其他節點收到的新心跳不會被誤判為逾時。
+ * 
+ * @see com.hejz.springbootstomp.controller.HeartbeatController
+ * @see com.hejz.springbootstomp.service.ClientStatusService#checkClientTimeout(String, Long)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "client.status.timeout.mode", havingValue = "wheel")
+public class HeartbeatTimingWheel implements SmartLifecycle {
+
+    /**
+     * 輪上的一個客戶端節點，心跳時重複使用
+     */
+    static final class Entry {
+        final String clientId;
+        long lastHeartbeatTime;
+        Long heartbeatInterval;
+        long deadlineTick;
+        Entry prev;
+        Entry next;
+        int bucket = -1;
+
+        Entry(String clientId) {
+            this.clientId = clientId;
+        }
+    }
+
+    @Autowired
+    private ClientStatusService clientStatusService;
+
+    @Value("${client.status.check.delay:60000}")
+    private long checkDelay = 60000;
+
+    @Value("${client.status.timeout.wheel.tick-duration:1000}")
+    private long tickDuration = 1000;
+
+    @Value("${client.status.timeout.wheel.size:512}")
+    private int wheelSize = 512;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 每個格子的鏈結串列頭 */
+    private Entry[] buckets;
+
+    private int mask;
+
+    /** 時間輪的起始時間（毫秒），tick 以此為基準計算 */
+    private long startTime;
+
+    /** 已處理到的 tick */
+    private long currentTick;
+
+    /** 每次 tick 重複使用的到期清單，只由時間輪執行緒存取 */
+    private final List<Entry> expired = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private Thread workerThread;
+
+    @PostConstruct
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        buckets = new Entry[size];
+        mask = size - 1;
+        startTime = System.currentTimeMillis();
+        currentTick = 0;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        workerThread = new Thread(this::workerLoop, "heartbeat-timing-wheel");
+        workerThread.setDaemon(true);
+        workerThread.start();
+        log.info("心跳時間輪已啟動：wheelSize={}, tickDuration={}ms, checkDelay={}ms", buckets.length, tickDuration, checkDelay);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (workerThread != null) {
+            workerThread.interrupt();
+        }
+        log.info("心跳時間輪已停止：追蹤中的客戶端={}", entries.size());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 記錄客戶端心跳，將客戶端的到期時間重新排程
+     * 
+     * @param clientId 客戶端 ID
+     * @param lastHeartbeatTime 這次心跳的時間（毫秒）
+     */
+    public void schedule(String clientId, long lastHeartbeatTime) {
+        schedule(clientId, lastHeartbeatTime, checkDelay, null);
+    }
+
+    /**
+     * 記錄客戶端心跳，以指定的檢查延遲重新排程
+     * 
+     * @param clientId 客戶端 ID
+     * @param lastHeartbeatTime 這次心跳的時間（毫秒）
+     * @param delay 檢查延遲（毫秒）
+     * @param heartbeatInterval 建議給客戶端的心跳間隔（毫秒），到期檢查時作為容許值；為 null 時使用預設間隔
+     */
+    public void schedule(String clientId, long lastHeartbeatTime, long delay, Long heartbeatInterval) {
+        lock.lock();
+        try {
+            // 查詢和建立節點都在鎖內：時間輪在 collectExpired() 移除到期節點後，
+            // 同一客戶端的下一次心跳一定會建立新節點，不會重新連結已移除的節點，也不會同時存在兩個節點
+            Entry entry = entries.computeIfAbsent(clientId, Entry::new);
+            unlink(entry);
+            entry.lastHeartbeatTime = lastHeartbeatTime;
+            entry.heartbeatInterval = heartbeatInterval;
+            entry.deadlineTick = Math.max(tickOf(lastHeartbeatTime + delay), currentTick + 1);
+            link(entry, (int) (entry.deadlineTick & mask));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 獲取目前追蹤中的客戶端數量
+     * 
+     * @return 客戶端數量
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 將時間輪推進到指定時間，處理途經格子中到期的客戶端
+     * 
+     * @param now 目前時間（毫秒）
+     */
+    void advanceTo(long now) {
+        long targetTick = (now - startTime) / tickDuration;
+        while (currentTick < targetTick) {
+            lock.lock();
+            try {
+                currentTick++;
+                collectExpired((int) (currentTick & mask));
+            } finally {
+                lock.unlock();
+            }
+            // 在鎖外查詢 Redis，不阻塞心跳的重新排程
+            for (Entry entry : expired) {
+                onExpired(entry);
+            }
+            expired.clear();
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                advanceTo(now);
+                long nextTickTime = startTime + (currentTick + 1) * tickDuration;
+                long sleep = nextTickTime - System.currentTimeMillis();
+                if (sleep > 0) {
+                    Thread.sleep(sleep);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("心跳時間輪處理失敗: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void collectExpired(int bucket) {
+        Entry entry = buckets[bucket];
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.deadlineTick <= currentTick) {
+                unlink(entry);
+                entries.remove(entry.clientId, entry);
+                expired.add(entry);
+            }
+            entry = next;
+        }
+    }
+
+    private void onExpired(Entry entry) {
+        try {
+            boolean timeout = entry.heartbeatInterval != null
+                    ? clientStatusService.checkClientTimeout(entry.clientId, entry.lastHeartbeatTime, entry.heartbeatInterval)
+                    : clientStatusService.checkClientTimeout(entry.clientId, entry.lastHeartbeatTime);
+            if (timeout) {
+                log.info("客戶端已超時，狀態已更新為離線：clientId={}", entry.clientId);
+            } else {
+                log.debug("客戶端在其他節點仍有心跳：clientId={}", entry.clientId);
+            }
+        } catch (Exception e) {
+            log.error("檢查客戶端逾時失敗：clientId={}, error={}", entry.clientId, e.getMessage(), e);
+        }
+    }
+
+    private long tickOf(long time) {
+        return (time - startTime + tickDuration - 1) / tickDuration;
+    }
+
+    private void link(Entry entry, int bucket) {
+        Entry head = buckets[bucket];
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        buckets[bucket] = entry;
+        entry.bucket = bucket;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.bucket < 0) {
+            return;
+        }
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[entry.bucket] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.bucket = -1;
+    }
+}
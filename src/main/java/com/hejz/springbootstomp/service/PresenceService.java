@@ -0,0 +1,129 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.AgentPresence;
+import com.hejz.springbootstomp.dto.PresenceSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批次在線狀態查詢服務
+ * 
+ * <p>將多位專員（ID 和狀態）及多個客戶端的狀態查詢合併為一次 MGET，
+ * 取代分別呼叫 /api/agent/{type}、/api/agent/{type}/status 和 getClientStatus() 的多次往返。
+ * 
+ * <p>查詢流程：
+ * <ol>
+ *   <li>由 ClientStatusService.findOnlineClients() 找出緩衝中或心跳索引中的在線客戶端
+ *       （sweeper 模式以一次 Pipeline 查詢 ZSCORE）</li>
+ *   <li>其餘客戶端的狀態 key、專員ID key 和專員狀態 key 以一次 MGET 讀取</li>
+ * </ol>
+ * 
+ * <p>單次查詢的客戶端數量上限為 presence.snapshot.max-clients。
+ * 
+ * @see com.hejz.springbootstomp.controller.PresenceController
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Service
+public class PresenceService {
+
+    private static final String STATUS_ONLINE = "ONLINE";
+    private static final String STATUS_OFFLINE = "OFFLINE";
+
+    /** 未指定專員類型時查詢的專員 */
+    private static final List<String> ALL_AGENT_TYPES = Arrays.asList("a", "b");
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private ClientStatusService clientStatusService;
+
+    /**
+     * 單次查詢的客戶端數量上限
+     */
+    @Value("${presence.snapshot.max-clients:1000}")
+    private int maxClients = 1000;
+
+    /**
+     * 查詢專員和客戶端的在線狀態快照
+     * 
+     * @param agentTypes 專員類型（"a"、"b"），為 null 或空時查詢全部專員；不正確的類型會被忽略
+     * @param clientIds 客戶端 ID，可為 null
+     * @return 在線狀態快照
+     * @throws IllegalArgumentException 客戶端數量超過 presence.snapshot.max-clients
+     */
+    public PresenceSnapshot getSnapshot(Collection<String> agentTypes, Collection<String> clientIds) {
+        Set<String> types = new LinkedHashSet<>();
+        for (String agentType : agentTypes == null || agentTypes.isEmpty() ? ALL_AGENT_TYPES : agentTypes) {
+            String type = agentType != null ? agentType.trim().toLowerCase() : null;
+            if (AgentService.getAgentIdKey(type) != null) {
+                types.add(type);
+            }
+        }
+        Set<String> clients = new LinkedHashSet<>();
+        if (clientIds != null) {
+            for (String clientId : clientIds) {
+                if (clientId != null && !clientId.isBlank()) {
+                    clients.add(clientId.trim());
+                }
+            }
+        }
+        if (clients.size() > maxClients) {
+            throw new IllegalArgumentException("客戶端數量超過上限：" + clients.size() + " > " + maxClients);
+        }
+
+        Set<String> onlineClients = clients.isEmpty() ? Set.of() : clientStatusService.findOnlineClients(clients);
+
+        // 一次 MGET：每位專員的 ID 和狀態，以及無法直接判定的客戶端狀態
+        List<String> keys = new ArrayList<>(types.size() * 2 + clients.size());
+        for (String agentType : types) {
+            keys.add(AgentService.getAgentIdKey(agentType));
+            keys.add(AgentStatusService.getStatusKey(agentType));
+        }
+        for (String clientId : clients) {
+            if (!onlineClients.contains(clientId)) {
+                keys.add(ClientStatusService.getStatusKey(clientId));
+            }
+        }
+        List<Object> values = keys.isEmpty() ? null : redisTemplate.opsForValue().multiGet(keys);
+
+        int i = 0;
+        Map<String, AgentPresence> agents = new LinkedHashMap<>();
+        for (String agentType : types) {
+            Object agentId = valueAt(values, i++);
+            Object status = valueAt(values, i++);
+            agents.put(agentType, new AgentPresence(agentType, "a".equals(agentType) ? "專員A" : "專員B",
+                    agentId != null ? agentId.toString() : null,
+                    status != null ? status.toString() : STATUS_OFFLINE));
+        }
+        Map<String, String> clientStatuses = new LinkedHashMap<>();
+        for (String clientId : clients) {
+            if (onlineClients.contains(clientId)) {
+                clientStatuses.put(clientId, STATUS_ONLINE);
+            } else {
+                Object status = valueAt(values, i++);
+                clientStatuses.put(clientId, status != null ? status.toString() : STATUS_OFFLINE);
+            }
+        }
+        log.debug("批次查詢在線狀態：agents={}, clients={}, keys={}", agents.size(), clientStatuses.size(), keys.size());
+        return new PresenceSnapshot(agents, clientStatuses, System.currentTimeMillis());
+    }
+
+    private static Object valueAt(List<Object> values, int index) {
+        return values != null && index < values.size() ? values.get(index) : null;
+    }
+}
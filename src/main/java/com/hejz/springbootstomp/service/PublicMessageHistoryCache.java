@@ -0,0 +1,434 @@
+package com.hejz.springbootstomp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hejz.springbootstomp.dto.ChatMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * 公共訊息的記憶體歷史緩衝
+ * 
+ * <p>當 chat.history.cache.enabled=true 時啟用。每個節點保留最近 capacity 則公共訊息的環形緩衝，
+ * 歷史記錄的前幾頁直接由記憶體返回，只有超出緩衝範圍的舊訊息才查詢 Redis。
+ * 
+ * <p>資料來源：
+ * <ul>
+ *   <li>啟動完成時以 ZREVRANGE 從 Redis 預熱最近 capacity 則訊息</li>
+ *   <li>之後由保存腳本將寫入的 ChatMessage JSON 發布到 /history/topic/chat，
+ *       RedisMessageListener 收到後呼叫 append()，各節點的緩衝與 Redis 保持一致</li>
+ *   <li>預熱完成前收到的訊息先暫存，預熱後依 messageId 去重再補入</li>
+ *   <li>訂閱中斷後重新訂閱（Redis 重新連線）時，期間的訊息已遺失，
+ *       由 requestRewarm() 標記，再由排程重新從 Redis 預熱；重新預熱完成前查詢回退到 Redis</li>
+ * </ul>
+ * 
+ * <p>存儲方式（storage）：
+ * <ul>
+ *   <li>heap（預設）：保存已解析的 ChatMessage 和原始 JSON，讀取時不需再解析或序列化</li>
+ *   <li>direct：保存 JSON 位元組於堆外的 DirectByteBuffer，每則訊息佔用固定 slot-size 位元組，
+ *       總大小為 capacity × slot-size，不增加 GC 壓力；讀取時才解析。
+ *       超過 slot-size 的訊息無法放入，緩衝會清空並重新累積，期間查詢回退到 Redis</li>
+ * </ul>
+ * 
+ * <p>訊息依時間戳排序；同一時間戳的訊息依 messageId 排序，與 get_messages_by_cursor.lua 的順序相同
+ * （最新的在前時 messageId 由大到小），使緩衝和 Redis 返回的頁面可以用同一個游標銜接。
+ * 
+ * @see com.hejz.springbootstomp.service.ChatMessageService#getPublicMessages(int, int)
+ * @see com.hejz.springbootstomp.RedisMessageListener#dispatch(String, String)
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "chat.history.cache.enabled", havingValue = "true")
+public class PublicMessageHistoryCache {
+
+    /** Redis Pub/Sub 頻道：保存腳本寫入後發布的公共訊息 JSON */
+    public static final String HISTORY_CHANNEL = "/history/topic/chat";
+
+    /** 存儲方式：堆內 */
+    public static final String STORAGE_HEAP = "heap";
+
+    /** 存儲方式：堆外 DirectByteBuffer */
+    public static final String STORAGE_DIRECT = "direct";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${chat.history.cache.capacity:200}")
+    private int capacity = 200;
+
+    @Value("${chat.history.cache.storage:heap}")
+    private String storage = STORAGE_HEAP;
+
+    @Value("${chat.history.cache.slot-size:1024}")
+    private int slotSize = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 每則訊息的時間戳，以實體位置索引，用於排序插入 */
+    private long[] timestamps;
+
+    /** 每則訊息的 messageId（沒有時為空字串），以實體位置索引，同一時間戳時用於排序插入 */
+    private String[] messageIds;
+
+    /** heap 模式的訊息存儲 */
+    private Entry[] entries;
+
+    /** direct 模式的訊息存儲，每個 slot 為 [長度(int)][JSON 位元組] */
+    private ByteBuffer buffer;
+
+    /** 最舊訊息的實體位置 */
+    private int head;
+
+    /** 目前的訊息數量 */
+    private int size;
+
+    /** 緩衝是否包含 Redis 中全部的公共訊息（Redis 中的訊息少於 capacity 時成立） */
+    private boolean complete;
+
+    /** 是否已完成預熱；預熱前收到的訊息暫存於 pending */
+    private boolean warmed;
+
+    private final List<Entry> pending = new ArrayList<>();
+
+    /** 重新訂閱後是否需要重新預熱 */
+    private volatile boolean rewarmRequested;
+
+    /**
+     * 一則待插入的訊息：解析後的物件和原始 JSON
+     */
+    private static final class Entry {
+        final ChatMessage message;
+        final String json;
+
+        Entry(ChatMessage message, String json) {
+            this.message = message;
+            this.json = json;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        timestamps = new long[capacity];
+        messageIds = new String[capacity];
+        if (STORAGE_DIRECT.equalsIgnoreCase(storage)) {
+            buffer = ByteBuffer.allocateDirect(capacity * slotSize);
+        } else {
+            entries = new Entry[capacity];
+        }
+        log.info("公共訊息歷史緩衝已建立：capacity={}, storage={}, slotSize={}", capacity, storage, slotSize);
+    }
+
+    /**
+     * 應用程式啟動完成後（Redis 訂閱已建立）從 Redis 預熱緩衝
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<Entry> snapshot = new ArrayList<>();
+        boolean loaded = false;
+        try {
+            Set<String> jsons = stringRedisTemplate.opsForZSet()
+                    .reverseRange(ChatMessageService.PUBLIC_MESSAGES_KEY, 0, capacity - 1);
+            if (jsons != null) {
+                for (String json : jsons) {
+                    ChatMessage message = parse(json);
+                    if (message != null) {
+                        snapshot.add(new Entry(message, json));
+                    }
+                }
+            }
+            loaded = true;
+        } catch (Exception e) {
+            log.error("公共訊息歷史緩衝預熱失敗，改由新訊息逐步累積: {}", e.getMessage(), e);
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            Set<String> snapshotIds = new HashSet<>();
+            // snapshot 最新的在前，反向寫入使緩衝由舊到新
+            for (int i = snapshot.size() - 1; i >= 0; i--) {
+                Entry entry = snapshot.get(i);
+                snapshotIds.add(entry.message.getMessageId());
+                insert(entry);
+            }
+            complete = loaded && snapshot.size() < capacity;
+            for (Entry entry : pending) {
+                String messageId = entry.message.getMessageId();
+                if (messageId == null || !snapshotIds.contains(messageId)) {
+                    insert(entry);
+                }
+            }
+            pending.clear();
+            warmed = true;
+            log.info("公共訊息歷史緩衝已預熱：size={}, complete={}", size, complete);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 要求重新預熱緩衝，在 Redis 訂閱重新建立時呼叫
+     * 
+     * <p>訂閱中斷期間發布的訊息不會送達，緩衝已不完整：立即停止由緩衝返回，
+     * 之後收到的訊息先暫存，等 rewarmIfRequested() 重新預熱後補入。
+     * 首次預熱尚未完成時不需要處理。此方法可能在 Redis 連線的 I/O 執行緒上呼叫，不存取 Redis。
+     */
+    public void requestRewarm() {
+        lock.writeLock().lock();
+        try {
+            if (!warmed) {
+                return;
+            }
+            warmed = false;
+            pending.clear();
+            rewarmRequested = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Redis 訂閱已重新建立，公共訊息歷史緩衝將重新預熱");
+    }
+
+    /**
+     * 定期檢查是否需要重新預熱
+     */
+    @Scheduled(fixedDelayString = "${chat.history.cache.rewarm-check-interval:1000}")
+    public void rewarmIfRequested() {
+        if (rewarmRequested) {
+            rewarmRequested = false;
+            warmUp();
+        }
+    }
+
+    /**
+     * 加入一則新保存的公共訊息
+     * 
+     * @param json 保存腳本發布的 ChatMessage JSON
+     */
+    public void append(String json) {
+        ChatMessage message = parse(json);
+        if (message == null) {
+            return;
+        }
+        Entry entry = new Entry(message, json);
+        lock.writeLock().lock();
+        try {
+            if (!warmed) {
+                if (pending.size() >= capacity) {
+                    pending.remove(0);
+                }
+                pending.add(entry);
+                return;
+            }
+            insert(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 從緩衝讀取一頁公共訊息
+     * 
+     * @param limit 獲取數量
+     * @param offset 偏移量（0 為最新）
+     * @return 訊息列表（最新的在前）；緩衝無法涵蓋此範圍時返回 null，由呼叫端查詢 Redis
+     */
+    public List<ChatMessage> getMessages(int limit, int offset) {
+        return readRange(limit, offset, this::readMessage);
+    }
+
+    /**
+     * 從緩衝讀取一頁公共訊息的原始 JSON
+     * 
+     * @param limit 獲取數量
+     * @param offset 偏移量（0 為最新）
+     * @return 訊息 JSON 列表（最新的在前）；緩衝無法涵蓋此範圍時返回 null，由呼叫端查詢 Redis
+     */
+    public List<String> getMessageJsons(int limit, int offset) {
+        return readRange(limit, offset, this::readJson);
+    }
+
+    private <T> List<T> readRange(int limit, int offset, IntFunction<T> reader) {
+        if (limit <= 0 || offset < 0) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            if (!warmed || (!complete && (long) offset + limit > size)) {
+                return null;
+            }
+            int end = (int) Math.min((long) offset + limit, size);
+            if (offset >= end) {
+                return Collections.emptyList();
+            }
+            List<T> result = new ArrayList<>(end - offset);
+            for (int i = offset; i < end; i++) {
+                // 邏輯位置 i（0 為最新）對應到實體位置
+                T value = reader.apply(physical(size - 1 - i));
+                if (value == null) {
+                    return null;
+                }
+                result.add(value);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 獲取目前緩衝中的訊息數量
+     * 
+     * @return 訊息數量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 依時間戳和 messageId 插入訊息；大多數訊息是最新的，從尾端往前找插入位置
+     */
+    private void insert(Entry entry) {
+        byte[] json = null;
+        if (buffer != null) {
+            json = entry.json.getBytes(StandardCharsets.UTF_8);
+            if (json.length > slotSize - Integer.BYTES) {
+                log.warn("公共訊息超過歷史緩衝的 slot-size，清空緩衝：slotSize={}, length={}", slotSize, json.length);
+                clear();
+                return;
+            }
+        }
+        long timestamp = entry.message.getTimestamp() != null ? entry.message.getTimestamp() : 0L;
+        String messageId = entry.message.getMessageId() != null ? entry.message.getMessageId() : "";
+
+        // 緩衝已滿時淘汰最舊的訊息；比最舊的還舊的訊息直接略過
+        if (size == capacity) {
+            if (compare(timestamps[head], messageIds[head], timestamp, messageId) > 0) {
+                return;
+            }
+            head = (head + 1) % capacity;
+            size--;
+            complete = false;
+        }
+
+        int position = size;
+        while (position > 0) {
+            int previous = physical(position - 1);
+            if (compare(timestamps[previous], messageIds[previous], timestamp, messageId) <= 0) {
+                break;
+            }
+            move(previous, physical(position));
+            position--;
+        }
+        write(physical(position), timestamp, messageId, entry, json);
+        size++;
+    }
+
+    /**
+     * 比較兩則訊息由舊到新的順序：先比時間戳，同一時間戳再比 messageId（與 get_messages_by_cursor.lua 相同的字串比較）
+     */
+    private static int compare(long timestamp, String messageId, long otherTimestamp, String otherMessageId) {
+        int result = Long.compare(timestamp, otherTimestamp);
+        return result != 0 ? result : messageId.compareTo(otherMessageId);
+    }
+
+    private void clear() {
+        head = 0;
+        size = 0;
+        complete = false;
+        Arrays.fill(messageIds, null);
+        if (entries != null) {
+            Arrays.fill(entries, null);
+        }
+    }
+
+    private int physical(int logical) {
+        return (head + logical) % capacity;
+    }
+
+    private void write(int slot, long timestamp, String messageId, Entry entry, byte[] json) {
+        timestamps[slot] = timestamp;
+        messageIds[slot] = messageId;
+        if (buffer != null) {
+            int base = slot * slotSize;
+            buffer.putInt(base, json.length);
+            buffer.put(base + Integer.BYTES, json);
+        } else {
+            entries[slot] = entry;
+        }
+    }
+
+    private void move(int from, int to) {
+        timestamps[to] = timestamps[from];
+        messageIds[to] = messageIds[from];
+        if (buffer != null) {
+            int length = buffer.getInt(from * slotSize);
+            buffer.put(to * slotSize, buffer, from * slotSize, Integer.BYTES + length);
+        } else {
+            entries[to] = entries[from];
+        }
+    }
+
+    private String readJson(int slot) {
+        if (buffer == null) {
+            return entries[slot].json;
+        }
+        return new String(readBytes(slot), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int slot) {
+        int base = slot * slotSize;
+        byte[] json = new byte[buffer.getInt(base)];
+        buffer.get(base + Integer.BYTES, json);
+        return json;
+    }
+
+    private ChatMessage readMessage(int slot) {
+        if (buffer == null) {
+            return entries[slot].message;
+        }
+        byte[] json = readBytes(slot);
+        try {
+            return objectMapper.readValue(json, ChatMessage.class);
+        } catch (Exception e) {
+            log.error("解析歷史緩衝中的訊息失敗: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private ChatMessage parse(String json) {
+        try {
+            return objectMapper.readValue(json, ChatMessage.class);
+        } catch (Exception e) {
+            log.warn("解析公共訊息 JSON 失敗，不加入歷史緩衝: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.hejz.springbootstomp.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket 會話活動追蹤器
+ * 
+ * <p>當 client.status.liveness.mode=stomp 時啟用。客戶端不再需要發送 /ws/heartbeat 應用層心跳，
+ * 改由簡單代理的 STOMP 原生心跳維持連線，本追蹤器作為 clientInboundChannel 的攔截器，
+ * 在記憶體中記錄每個會話最後一次收到任何訊框（包括心跳訊框）的時間。
+ * 
+ * <p>狀態判斷：
+ * <ul>
+ *   <li>每 report-interval 毫秒將最近有活動的用戶以 recordHeartbeat() 回報為 ONLINE
+ *       （每個用戶每個間隔最多一次寫入，而不是每個心跳訊框一次）</li>
+ *   <li>會話超過逾時時間沒有任何訊框，或收到斷開事件時，移除該會話；
+ *       用戶在本節點沒有其他會話時以 markOffline() 更新為 OFFLINE</li>
+ * </ul>
+ * 
+ * <p>逾時時間依 CONNECT 訊框的 heart-beat 標頭協商：客戶端發送間隔為 max(客戶端宣告的間隔, client-heartbeat)，
+ * 逾時時間取 timeout 與該間隔 3 倍（與簡單代理關閉會話的判斷相同）的較大者。
+ * 客戶端不發送心跳（heart-beat:0,0 或未帶標頭）的會話不做逾時判斷，只依斷開事件更新為離線，
+ * 避免沒有心跳但仍連線的客戶端被誤判為離線。
+ * 
+ * <p>心跳訊框只有幾個位元組，只會更新記憶體中的時間戳，不經過 HeartbeatController、訊息轉換或 Redis。
+ * 
+ * @see com.hejz.springbootstomp.WebSocketConfig#configureMessageBroker(org.springframework.messaging.simp.config.MessageBrokerRegistry)
+ * @see com.hejz.springbootstomp.service.ClientStatusService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "client.status.liveness.mode", havingValue = "stomp")
+public class SessionActivityTracker implements ChannelInterceptor {
+
+    /**
+     * 一個會話的活動記錄，每個訊框只更新時間戳
+     */
+    static final class SessionActivity {
+        final String userId;
+        /** 逾時時間（毫秒），0 表示不做逾時判斷 */
+        final long timeout;
+        volatile long lastActivity;
+
+        SessionActivity(String userId, long timeout, long lastActivity) {
+            this.userId = userId;
+            this.timeout = timeout;
+            this.lastActivity = lastActivity;
+        }
+    }
+
+    @Autowired
+    private ClientStatusService clientStatusService;
+
+    /**
+     * 有心跳的會話沒有任何訊框超過此時間（毫秒）即視為離線；協商的心跳間隔較長時改用間隔的 3 倍
+     */
+    @Value("${client.status.liveness.stomp.timeout:30000}")
+    private long timeout = 30000;
+
+    /**
+     * 期望客戶端發送心跳的間隔（毫秒），與簡單代理的設定相同，0 表示不要求客戶端發送心跳
+     */
+    @Value("${client.status.liveness.stomp.client-heartbeat:10000}")
+    private long clientHeartbeat = 10000;
+
+    /**
+     * 會話 ID → 活動記錄
+     */
+    private final Map<String, SessionActivity> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 用戶 ID → 本節點尚未移除的會話數量，用戶沒有會話時移除鍵
+     */
+    private final Map<String, Integer> userSessionCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        long now = System.currentTimeMillis();
+        SessionActivity activity = sessions.get(sessionId);
+        if (activity != null) {
+            activity.lastActivity = now;
+            return message;
+        }
+        Principal user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        if (user != null) {
+            // 先計數再加入會話，其他會話斷開時不會誤判用戶已沒有會話
+            userSessionCounts.merge(user.getName(), 1, Integer::sum);
+            SessionActivity created = new SessionActivity(user.getName(), sessionTimeout(message), now);
+            if (sessions.putIfAbsent(sessionId, created) != null) {
+                releaseSession(user.getName());
+            }
+        }
+        return message;
+    }
+
+    /**
+     * 依 CONNECT 訊框的 heart-beat 標頭計算會話的逾時時間
+     * 
+     * @return 逾時時間（毫秒），客戶端不發送心跳時返回 0
+     */
+    private long sessionTimeout(Message<?> message) {
+        long[] heartbeat = SimpMessageHeaderAccessor.getHeartbeat(message.getHeaders());
+        if (heartbeat == null || heartbeat[0] <= 0 || clientHeartbeat <= 0) {
+            return 0;
+        }
+        long interval = Math.max(heartbeat[0], clientHeartbeat);
+        return Math.max(timeout, interval * 3);
+    }
+
+    /**
+     * 會話斷開時移除活動記錄
+     * 
+     * @param event 會話斷開事件
+     */
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        SessionActivity activity = sessions.remove(event.getSessionId());
+        if (activity == null) {
+            return;
+        }
+        releaseSession(activity.userId);
+        if (!hasActiveSession(activity.userId)) {
+            clientStatusService.markOffline(List.of(activity.userId));
+        }
+    }
+
+    /**
+     * 定期回報在線用戶並移除逾時的會話
+     */
+    @Scheduled(fixedDelayString = "${client.status.liveness.stomp.report-interval:10000}")
+    public void evaluate() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> onlineUsers = new HashSet<>();
+            Set<String> timedOutUsers = new HashSet<>();
+            for (Map.Entry<String, SessionActivity> entry : sessions.entrySet()) {
+                SessionActivity activity = entry.getValue();
+                if (activity.timeout > 0 && now - activity.lastActivity > activity.timeout) {
+                    if (sessions.remove(entry.getKey(), activity)) {
+                        releaseSession(activity.userId);
+                        timedOutUsers.add(activity.userId);
+                    }
+                } else {
+                    onlineUsers.add(activity.userId);
+                }
+            }
+            // 同一用戶仍有其他會話時不更新為離線
+            timedOutUsers.removeIf(this::hasActiveSession);
+
+            for (String userId : onlineUsers) {
+                clientStatusService.recordHeartbeat(userId);
+            }
+            if (!timedOutUsers.isEmpty()) {
+                log.info("會話逾時，更新用戶為離線：{}", timedOutUsers);
+                clientStatusService.markOffline(new ArrayList<>(timedOutUsers));
+            }
+        } catch (Exception e) {
+            log.error("會話活動檢查失敗: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 用戶在本節點是否有活躍的會話
+     * 
+     * <p>以每個用戶的會話計數判斷，不走訪所有會話；逾時的會話在下一次 evaluate() 移除後才不計入。
+     * 
+     * @param userId 用戶 ID
+     * @return true 如果用戶有尚未斷開、也尚未因逾時移除的會話
+     */
+    public boolean hasActiveSession(String userId) {
+        return userSessionCounts.containsKey(userId);
+    }
+
+    /**
+     * 會話移除後減少用戶的會話計數，計數歸零時移除鍵
+     */
+    private void releaseSession(String userId) {
+        userSessionCounts.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 獲取目前追蹤中的會話數量
+     * 
+     * @return 會話數量
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+}
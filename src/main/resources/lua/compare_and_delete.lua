@@ -0,0 +1,13 @@
+-- Lua 腳本：僅在值與預期相符時刪除 key
+-- 用於用戶→節點註冊表：節點只刪除自己寫入的記錄，避免誤刪用戶在其他節點的新連接
+
+-- 參數說明：
+-- KEYS[1]: 要刪除的 key（如：cluster:user:node:{userId}）
+-- ARGV[1]: 預期的值（目前節點 ID）
+
+-- 返回值：刪除的 key 數量（0 或 1）
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,14 @@
+-- Lua 腳本：僅在值與預期相符時延長 key 的過期時間
+-- 用於領導者選舉：只有目前的領導者能續約，避免延長其他節點取得的領導權
+
+-- 參數說明：
+-- KEYS[1]: 領導者 key（如：client:heartbeats:sweeper:leader）
+-- ARGV[1]: 預期的值（目前節點 ID）
+-- ARGV[2]: 新的過期時間（毫秒）
+
+-- 返回值：1 表示續約成功，0 表示本節點不是領導者
+
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+end
+return 0
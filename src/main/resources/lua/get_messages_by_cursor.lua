@@ -0,0 +1,99 @@
+-- Lua 腳本：以游標從 Redis 獲取聊天訊息（最新的在前）
+-- 排序規則：時間戳（分數）由大到小，同一時間戳內依 messageId 由大到小
+-- 游標為上一頁最後一則訊息的（時間戳, messageId），下一頁從它之後開始，不受新訊息插入影響
+-- 游標由本腳本依最後讀取的原始成員產生（分數取自 Redis），即使該成員的 JSON 無法被呼叫端解析也能繼續翻頁
+
+-- 參數說明：
+-- KEYS[1]: 訊息列表的 key（如：chat:messages:public）
+-- ARGV[1]: 游標時間戳（第一頁傳 +inf）
+-- ARGV[2]: 游標 messageId（第一頁傳空字串；無法解析 messageId 的訊息也是空字串）
+-- ARGV[3]: 獲取數量
+
+-- 返回值：{ 訊息陣列, 最後一則訊息的 { 分數, messageId } }（沒有訊息時第二個元素為空陣列）
+
+local key = KEYS[1]
+local cursorId = ARGV[2]
+local limit = tonumber(ARGV[3])
+local result = {}
+local lastScore = nil
+local lastMember = nil
+
+-- 取出訊息的 messageId（無法解析時返回空字串）
+local function messageIdOf(member)
+    local ok, decoded = pcall(cjson.decode, member)
+    if ok and type(decoded) == 'table' and decoded['messageId'] ~= nil then
+        return tostring(decoded['messageId'])
+    end
+    return ''
+end
+
+-- 將同一時間戳的訊息依 messageId 由大到小加入結果（只有一則時不需要解析 JSON）
+-- beforeId 不為 nil 時，只加入 messageId 小於 beforeId 的訊息
+local function append(member, score)
+    table.insert(result, member)
+    lastMember = member
+    lastScore = score
+end
+
+local function appendGroup(members, score, beforeId)
+    if #members == 1 and beforeId == nil then
+        append(members[1], score)
+        return
+    end
+    local group = {}
+    for _, member in ipairs(members) do
+        local id = messageIdOf(member)
+        if beforeId == nil or id < beforeId then
+            table.insert(group, { id = id, member = member })
+        end
+    end
+    table.sort(group, function(a, b) return a.id > b.id end)
+    for _, entry in ipairs(group) do
+        if #result >= limit then
+            return
+        end
+        append(entry.member, score)
+    end
+end
+
+-- 1. 有游標時，先處理與游標同一時間戳、排在游標之後的訊息
+local upper = ARGV[1]
+if ARGV[1] ~= '+inf' then
+    appendGroup(redis.call('ZRANGEBYSCORE', key, ARGV[1], ARGV[1]), ARGV[1], cursorId)
+    upper = '(' .. ARGV[1]
+end
+
+-- 2. 依時間戳由新到舊逐批讀取，每批最後一個時間戳的訊息可能被 LIMIT 截斷，需要完整讀取
+while #result < limit do
+    local chunk = redis.call('ZREVRANGEBYSCORE', key, upper, '-inf', 'WITHSCORES', 'LIMIT', 0, limit - #result)
+    if #chunk == 0 then
+        break
+    end
+    local lastChunkScore = chunk[#chunk]
+    local group = {}
+    local groupScore = nil
+    for i = 1, #chunk, 2 do
+        local member, score = chunk[i], chunk[i + 1]
+        if score == lastChunkScore then
+            break
+        end
+        if groupScore ~= nil and score ~= groupScore then
+            appendGroup(group, groupScore, nil)
+            group = {}
+        end
+        groupScore = score
+        table.insert(group, member)
+    end
+    if #group > 0 then
+        appendGroup(group, groupScore, nil)
+    end
+    if #result < limit then
+        appendGroup(redis.call('ZRANGEBYSCORE', key, lastChunkScore, lastChunkScore), lastChunkScore, nil)
+    end
+    upper = '(' .. lastChunkScore
+end
+
+if lastMember == nil then
+    return { result, {} }
+end
+return { result, { lastScore, messageIdOf(lastMember) } }
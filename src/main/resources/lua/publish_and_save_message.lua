@@ -0,0 +1,38 @@
+-- Lua 腳本：保存公共訊息並發布到 Redis Pub/Sub（一次往返完成）
+-- 保存與發布在同一個腳本中執行，歷史記錄的順序一定與廣播順序一致
+
+-- 參數說明：
+-- KEYS[1]: 訊息列表的 key（如：chat:messages:public）
+-- ARGV[1]: 要保存的訊息 JSON 字串（ChatMessage）
+-- ARGV[2]: 時間戳（毫秒）
+-- ARGV[3]: 最大訊息數量（超過此數量會刪除最舊的訊息）
+-- ARGV[4]: 發布的 Pub/Sub 頻道（如：/raw/topic/chat）
+-- ARGV[5]: 發布的訊息內容（推送給客戶端的 JSON）
+-- ARGV[6]: 歷史記錄頻道（可選，傳入時將 ARGV[1] 發布到此頻道，供各節點的記憶體歷史緩衝使用）
+
+-- 返回值：保存的訊息數量
+
+-- 1. 將訊息添加到 Sorted Set（使用時間戳作為分數）
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+
+-- 2. 如果超過最大數量，刪除最舊的訊息
+local count = redis.call('ZCARD', KEYS[1])
+local maxMessages = tonumber(ARGV[3])
+if maxMessages > 0 and count > maxMessages then
+    local removed = redis.call('ZREMRANGEBYRANK', KEYS[1], 0, count - maxMessages - 1)
+    count = count - removed
+end
+
+-- 3. 設置過期時間（30天）
+redis.call('EXPIRE', KEYS[1], 2592000)
+
+-- 4. 發布到 Pub/Sub 頻道
+redis.call('PUBLISH', ARGV[4], ARGV[5])
+
+-- 5. 通知各節點的記憶體歷史緩衝
+if ARGV[6] then
+    redis.call('PUBLISH', ARGV[6], ARGV[1])
+end
+
+-- 返回當前訊息數量
+return count
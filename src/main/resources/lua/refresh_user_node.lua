@@ -0,0 +1,23 @@
+-- Lua 腳本：刷新本節點用戶→節點記錄的過期時間
+-- 記錄仍指向本節點時只延長過期時間；記錄不存在（過期或 Redis 重啟）時重新寫入；
+-- 記錄已指向其他節點（用戶已在其他節點重新連接）時不修改，避免把用戶搶回本節點
+
+-- 參數說明：
+-- KEYS: 用戶→節點記錄的 key（如：cluster:user:node:{userId}），可一次傳入多個
+-- ARGV[1]: 本節點 ID（與記錄相同的序列化格式）
+-- ARGV[2]: 過期時間（毫秒）
+
+-- 返回值：已刷新或重新寫入的記錄數量
+
+local refreshed = 0
+for _, key in ipairs(KEYS) do
+    local current = redis.call('GET', key)
+    if not current then
+        redis.call('SET', key, ARGV[1], 'PX', ARGV[2])
+        refreshed = refreshed + 1
+    elseif current == ARGV[1] then
+        redis.call('PEXPIRE', key, ARGV[2])
+        refreshed = refreshed + 1
+    end
+end
+return refreshed
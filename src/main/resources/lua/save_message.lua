@@ -7,6 +7,7 @@
 -- ARGV[1]: 訊息 JSON 字串
 -- ARGV[2]: 時間戳（毫秒）
 -- ARGV[3]: 最大訊息數量（超過此數量會刪除最舊的訊息）
+-- ARGV[4]: 歷史記錄頻道（可選，傳入時將 ARGV[1] 發布到此頻道，供各節點的記憶體歷史緩衝使用）
 
 -- 返回值：保存的訊息數量
 
@@ -27,6 +28,11 @@ end
 -- 4. 設置過期時間（30天）
 redis.call('EXPIRE', KEYS[1], 2592000)
 
+-- 5. 通知各節點的記憶體歷史緩衝
+if ARGV[4] then
+    redis.call('PUBLISH', ARGV[4], ARGV[1])
+end
+
 -- 返回當前訊息數量
 return count
 
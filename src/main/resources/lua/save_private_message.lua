@@ -0,0 +1,37 @@
+-- Lua 腳本：保存私信訊息到對話 Sorted Set，並更新雙方的對話索引
+-- 每則私信只寫入一次（以對話為單位），不再為發送者和接收者各存一份
+
+-- 參數說明：
+-- KEYS[1]: 對話訊息列表的 key（如：chat:conversation:{userA 長度}:{userA}:{userB}，兩個 ID 依字典序排列）
+-- KEYS[2]: 發送者的對話索引 key（如：chat:conversations:{senderId}）
+-- KEYS[3]: 接收者的對話索引 key（如：chat:conversations:{recipientId}）
+-- ARGV[1]: 訊息 JSON 字串
+-- ARGV[2]: 時間戳（毫秒）
+-- ARGV[3]: 每個對話的最大訊息數量（超過此數量會刪除最舊的訊息）
+-- ARGV[4]: 發送者 ID
+-- ARGV[5]: 接收者 ID
+
+-- 返回值：對話中的訊息數量
+
+local ttl = 2592000
+
+-- 1. 將訊息添加到對話 Sorted Set（使用時間戳作為分數）
+redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])
+
+-- 2. 如果超過最大數量，刪除最舊的訊息
+local count = redis.call('ZCARD', KEYS[1])
+local maxMessages = tonumber(ARGV[3])
+if maxMessages > 0 and count > maxMessages then
+    local removed = redis.call('ZREMRANGEBYRANK', KEYS[1], 0, count - maxMessages - 1)
+    count = count - removed
+end
+redis.call('EXPIRE', KEYS[1], ttl)
+
+-- 3. 更新雙方的對話索引（成員為對方 ID，分數為最後活動時間）
+redis.call('ZADD', KEYS[2], ARGV[2], ARGV[5])
+redis.call('EXPIRE', KEYS[2], ttl)
+redis.call('ZADD', KEYS[3], ARGV[2], ARGV[4])
+redis.call('EXPIRE', KEYS[3], ttl)
+
+-- 返回對話中的訊息數量
+return count
@@ -0,0 +1,21 @@
+-- Lua 腳本：原子性地設置專員狀態並返回先前的狀態
+-- 用於只在狀態真正改變（ONLINE ↔ OFFLINE）時才廣播
+-- 狀態改變時遞增版本號，各節點以版本號判斷狀態的先後，不依賴各節點的時鐘
+
+-- 參數說明：
+-- KEYS[1]: 狀態 key（如：agent:a:status）
+-- KEYS[2]: 版本號 key（如：agent:a:status:version，不設過期時間）
+-- ARGV[1]: 新的狀態（已序列化）
+-- ARGV[2]: 過期時間（秒）
+
+-- 返回值：{ 先前的狀態（不存在時為 nil）, 目前的版本號 }
+
+local previous = redis.call('GET', KEYS[1])
+redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2])
+local version
+if previous == ARGV[1] then
+    version = tonumber(redis.call('GET', KEYS[2]) or '0')
+else
+    version = redis.call('INCR', KEYS[2])
+end
+return { previous, version }
@@ -0,0 +1,16 @@
+-- Lua 腳本：取出並移除心跳已過期的客戶端
+-- ZRANGEBYSCORE 與 ZREM 在同一個腳本中原子執行，
+-- 查詢與移除之間即使客戶端送出新心跳（ZADD 更新分數），也不會被誤移除
+
+-- 參數說明：
+-- KEYS[1]: 心跳索引的 key（如：client:heartbeats）
+-- ARGV[1]: 截止時間（毫秒），最後心跳時間不晚於此值的客戶端視為過期
+-- ARGV[2]: 每次最多處理的客戶端數量
+
+-- 返回值：已移除的客戶端 ID 列表
+
+local expired = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+if #expired > 0 then
+    redis.call('ZREM', KEYS[1], unpack(expired))
+end
+return expired
@@ -1,7 +1,10 @@
 package com.hejz.springbootstomp;
 
 import com.hejz.springbootstomp.dto.Message;
+import com.hejz.springbootstomp.dto.PrivateMessage;
 import com.hejz.springbootstomp.dto.ResponseMessage;
+import com.hejz.springbootstomp.service.AgentService;
+import com.hejz.springbootstomp.service.ChatMessageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -10,6 +13,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 
 import java.security.Principal;
 
@@ -36,6 +41,8 @@ import static org.mockito.Mockito.*;
  *   <li>testPrivateMessage() - 驗證基本私信處理</li>
  *   <li>testPrivateMessageWithId() - 驗證使用 id 欄位的私信</li>
  *   <li>testPrivateMessageWithRecipient() - 驗證使用 recipient 欄位的私信</li>
+ *   <li>testPrivateMessageToRemoteRecipient() - 驗證接收者不在本節點時發布到 Redis</li>
+ *   <li>testMessageAtomicPublishMode() - 驗證 atomic 模式以單一腳本保存並發布</li>
  * </ol>
  * 
  * @see com.hejz.springbootstomp.MessageController
@@ -57,6 +64,22 @@ class MessageControllerTests {
     @Mock
     private Principal principal;
 
+    // 模擬聊天訊息持久化服務
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    // 模擬專員ID管理服務
+    @Mock
+    private AgentService agentService;
+
+    // 模擬本節點的 STOMP 用戶註冊表，用於判斷接收者是否連接在本節點
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+
+    // 模擬本節點已連接的用戶
+    @Mock
+    private SimpUser simpUser;
+
     // 要測試的訊息控制器實例（Mock 物件會自動注入）
     @InjectMocks
     private MessageController messageController;
@@ -189,6 +212,8 @@ class MessageControllerTests {
         message.setContent("私信內容");
         // 設定接收者 ID（使用 id 欄位）
         message.setId("user456");
+        // 設定 Mock 行為：接收者 user456 連接在本節點
+        when(simpUserRegistry.getUser("user456")).thenReturn(simpUser);
 
         // 執行被測試的方法：處理私信
         messageController.privateMessage(principal, message);
@@ -230,6 +255,8 @@ class MessageControllerTests {
         message.setId("user456");
         // 設定接收者 ID（使用 recipient 欄位，但應該不會被使用）
         message.setRecipient("user789");
+        // 設定 Mock 行為：接收者 user456 連接在本節點
+        when(simpUserRegistry.getUser("user456")).thenReturn(simpUser);
 
         // 執行被測試的方法：處理私信
         messageController.privateMessage(principal, message);
@@ -269,6 +296,8 @@ class MessageControllerTests {
         message.setContent("私信內容");
         // 設定接收者 ID（使用 recipient 欄位，因為 id 為 null）
         message.setRecipient("user789");
+        // 設定 Mock 行為：接收者 user789 連接在本節點
+        when(simpUserRegistry.getUser("user789")).thenReturn(simpUser);
 
         // 執行被測試的方法：處理私信
         messageController.privateMessage(principal, message);
@@ -281,5 +310,71 @@ class MessageControllerTests {
             any(ResponseMessage.class)
         );
     }
-}
 
+    /**
+     * 測試接收者不在本節點時的私信
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：Principal（當前使用者：user123）、Message 物件（content: "私信內容", id: "remoteUser"）</li>
+     *   <li>透過方法：privateMessage(principal, message)</li>
+     *   <li>預期結果：本節點沒有 remoteUser 的會話，應該發布到 Redis，而不是直接發送</li>
+     * </ul>
+     * 
+     * <p>實際場景：在多伺服器環境中，接收者連接在其他節點時，
+     * 必須經由 Redis 轉發，由接收者所在節點投遞。
+     * 
+     * @see com.hejz.springbootstomp.MessageController#privateMessage(Principal, Message)
+     */
+    @Test
+    @Order(7)
+    void testPrivateMessageToRemoteRecipient() throws InterruptedException {
+        // 設定 Mock 行為：當呼叫 principal.getName() 時，返回 "user123"
+        when(principal.getName()).thenReturn("user123");
+        // 建立測試用的訊息物件
+        Message message = new Message();
+        // 設定私信內容
+        message.setContent("私信內容");
+        // 設定接收者 ID（本節點沒有此用戶的會話）
+        message.setId("remoteUser");
+
+        // 執行被測試的方法：處理私信
+        messageController.privateMessage(principal, message);
+
+        // 驗證：確認私信發布到 Redis，且接收者正確
+        verify(redisPublisher, times(1)).publishPrivateMessage(argThat((PrivateMessage pm) ->
+            "remoteUser".equals(pm.getRecipientId()) && "私信內容".equals(pm.getContent())
+        ));
+        // 驗證：不應直接發送給本節點的用戶
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+    }
+
+    /**
+     * 測試 atomic 發布模式
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：publicPublishMode 設為 "atomic"，Message 物件（content: "測試訊息"）</li>
+     *   <li>透過方法：message(principal, message)</li>
+     *   <li>預期結果：應該呼叫 chatMessageService.publishAndSavePublicMessage()，
+     *       不再分別呼叫 redisPublisher.publish() 和 savePublicMessage()</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.MessageController#message(Principal, Message)
+     */
+    @Test
+    @Order(8)
+    void testMessageAtomicPublishMode() throws Exception {
+        java.lang.reflect.Field modeField = MessageController.class.getDeclaredField("publicPublishMode");
+        modeField.setAccessible(true);
+        modeField.set(messageController, "atomic");
+        Message message = new Message();
+        message.setContent("測試訊息");
+
+        messageController.message(principal, message);
+
+        verify(chatMessageService, times(1)).publishAndSavePublicMessage(eq("testUser"), isNull(), eq("測試訊息"));
+        verify(redisPublisher, never()).publish(anyString());
+        verify(chatMessageService, never()).savePublicMessage(anyString(), any(), anyString());
+    }
+}
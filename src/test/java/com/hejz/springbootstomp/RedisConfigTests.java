@@ -2,6 +2,7 @@ package com.hejz.springbootstomp.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hejz.springbootstomp.RedisMessageListener;
+import com.hejz.springbootstomp.RedisRawMessageListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -51,6 +52,10 @@ class RedisConfigTests {
     @Mock
     private RedisMessageListener redisMessageListener;
 
+    // 模擬原始位元組訊息監聽器
+    @Mock
+    private RedisRawMessageListener redisRawMessageListener;
+
     // 要測試的 Redis 配置類別實例
     private RedisConfig redisConfig;
 
@@ -178,8 +183,8 @@ class RedisConfigTests {
      * 
      * <p>範例說明：
      * <ul>
-     *   <li>預期參數：connectionFactory（Redis 連接工廠）、redisMessageListener（訊息監聽器）</li>
-     *   <li>透過方法：redisMessageListenerContainer(connectionFactory, redisMessageListener)</li>
+     *   <li>預期參數：connectionFactory（Redis 連接工廠）、redisMessageListener（訊息監聽器）、clusterNodeIdentity（節點識別）</li>
+     *   <li>透過方法：redisMessageListenerContainer(connectionFactory, redisMessageListener, clusterNodeIdentity, redisRawMessageListener)</li>
      *   <li>預期結果：應該返回一個非 null 的 RedisMessageListenerContainer 物件，且連接工廠已正確設定</li>
      * </ul>
      * 
@@ -193,7 +198,8 @@ class RedisConfigTests {
     void testRedisMessageListenerContainer() {
         // 執行被測試的方法：建立 RedisMessageListenerContainer Bean
         RedisMessageListenerContainer container = 
-            redisConfig.redisMessageListenerContainer(connectionFactory, redisMessageListener);
+            redisConfig.redisMessageListenerContainer(connectionFactory, redisMessageListener,
+                    new ClusterNodeIdentity("test-node"), redisRawMessageListener);
 
         // 驗證：確認容器不為 null（表示 Bean 建立成功）
         assertNotNull(container, "RedisMessageListenerContainer 不應為 null");
@@ -206,22 +212,23 @@ class RedisConfigTests {
      * 
      * <p>範例說明：
      * <ul>
-     *   <li>預期參數：connectionFactory（Redis 連接工廠）、redisMessageListener（訊息監聽器）</li>
-     *   <li>透過方法：redisMessageListenerContainer(connectionFactory, redisMessageListener)</li>
+     *   <li>預期參數：connectionFactory（Redis 連接工廠）、redisMessageListener（訊息監聽器）、clusterNodeIdentity（節點識別）</li>
+     *   <li>透過方法：redisMessageListenerContainer(connectionFactory, redisMessageListener, clusterNodeIdentity, redisRawMessageListener)</li>
      *   <li>預期結果：應該返回一個非 null 的容器物件，且容器已配置好監聽器</li>
      * </ul>
      * 
      * <p>實際場景：驗證監聽器容器已正確配置，能夠監聽 Redis 頻道。
      * 當其他伺服器節點發布訊息到 Redis 時，這個容器會收到訊息並觸發監聽器。
      * 
-     * @see com.hejz.springbootstomp.config.RedisConfig#redisMessageListenerContainer(RedisConnectionFactory, RedisMessageListener)
+     * @see com.hejz.springbootstomp.config.RedisConfig#redisMessageListenerContainer(RedisConnectionFactory, RedisMessageListener, ClusterNodeIdentity, RedisRawMessageListener)
      */
     @Test
     @Order(6)
     void testRedisMessageListenerContainerSubscribesToChannel() {
         // 執行被測試的方法：建立 RedisMessageListenerContainer Bean
         RedisMessageListenerContainer container = 
-            redisConfig.redisMessageListenerContainer(connectionFactory, redisMessageListener);
+            redisConfig.redisMessageListenerContainer(connectionFactory, redisMessageListener,
+                    new ClusterNodeIdentity("test-node"), redisRawMessageListener);
 
         // 驗證：確認容器不為 null（表示 Bean 建立成功）
         assertNotNull(container, "RedisMessageListenerContainer 不應為 null");
@@ -1,15 +1,30 @@
 package com.hejz.springbootstomp;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.hejz.springbootstomp.config.RedisConfig;
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
+import com.hejz.springbootstomp.dto.PrivateMessage;
 import com.hejz.springbootstomp.dto.ResponseMessage;
+import com.hejz.springbootstomp.service.AgentStatusRelay;
+import com.hejz.springbootstomp.service.ClusterUserRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,6 +48,10 @@ import static org.mockito.Mockito.*;
  *   <li>testPublishWithNullMessage() - 驗證 null 訊息處理</li>
  *   <li>testPublishWithEmptyString() - 驗證空字串處理</li>
  *   <li>testPublishHandlesJsonException() - 驗證 JSON 異常處理</li>
+ *   <li>testPublishPrivateMessageToRecipientNode() - 驗證私信定向發布到接收者節點</li>
+ *   <li>testPublishPrivateMessageFallsBackToBroadcast() - 驗證找不到節點時退回廣播</li>
+ *   <li>testPublishInStreamModeWritesToStream() - 驗證 Stream 模式改用 XADD 寫入</li>
+ *   <li>testAgentStatusRoundTrip() - 驗證專員狀態經實際序列化器發布後能被監聽器解析</li>
  * </ol>
  * 
  * @see com.hejz.springbootstomp.RedisMessagePublisher
@@ -50,6 +69,14 @@ class RedisMessagePublisherTests {
     @Mock
     private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
+    // 模擬叢集用戶註冊表，用於查詢私信接收者所在節點
+    @Mock
+    private ClusterUserRegistry clusterUserRegistry;
+
+    // 模擬字串 Redis 模板，用於 Stream 模式的 XADD
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
     // 要測試的 Redis 訊息發布器實例
     private RedisMessagePublisher redisMessagePublisher;
 
@@ -72,6 +99,16 @@ class RedisMessagePublisherTests {
             objectMapperField.setAccessible(true);
             // 將模擬的 objectMapper 注入到發布器中
             objectMapperField.set(redisMessagePublisher, objectMapper);
+            
+            // 使用反射機制來設定私有欄位 clusterUserRegistry
+            java.lang.reflect.Field clusterUserRegistryField = RedisMessagePublisher.class.getDeclaredField("clusterUserRegistry");
+            clusterUserRegistryField.setAccessible(true);
+            clusterUserRegistryField.set(redisMessagePublisher, clusterUserRegistry);
+            
+            // 使用反射機制來設定私有欄位 stringRedisTemplate
+            java.lang.reflect.Field stringRedisTemplateField = RedisMessagePublisher.class.getDeclaredField("stringRedisTemplate");
+            stringRedisTemplateField.setAccessible(true);
+            stringRedisTemplateField.set(redisMessagePublisher, stringRedisTemplate);
         } catch (Exception e) {
             // 如果設定失敗，拋出執行時期異常
             throw new RuntimeException("無法設置私有欄位", e);
@@ -256,4 +293,132 @@ class RedisMessagePublisherTests {
         // never() 表示這個方法不應該被呼叫
         verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
     }
+
+    /**
+     * 測試私信定向發布到接收者所在節點
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：PrivateMessage 物件（recipientId: "user2"），註冊表返回節點 "node-b"</li>
+     *   <li>透過方法：publishPrivateMessage(privateMessage)</li>
+     *   <li>預期結果：應該發布到 "/node/node-b/privateMessage" 頻道，而不是廣播頻道</li>
+     * </ul>
+     * 
+     * <p>實際場景：接收者連接在其他節點時，只有該節點會收到並反序列化這則私信。
+     * 
+     * @see com.hejz.springbootstomp.RedisMessagePublisher#publishPrivateMessage(PrivateMessage)
+     */
+    @Test
+    @Order(6)
+    void testPublishPrivateMessageToRecipientNode() throws JsonProcessingException {
+        PrivateMessage privateMessage = new PrivateMessage("private", "user2", "user1", "用戶1", "私信內容", null);
+        String jsonMessage = "{\"recipientId\":\"user2\"}";
+
+        when(objectMapper.writeValueAsString(privateMessage)).thenReturn(jsonMessage);
+        when(clusterUserRegistry.findNode("user2")).thenReturn("node-b");
+
+        redisMessagePublisher.publishPrivateMessage(privateMessage);
+
+        verify(redisTemplate, times(1)).convertAndSend(eq("/node/node-b/privateMessage"), eq(jsonMessage));
+        verify(redisTemplate, never()).convertAndSend(eq("/topic/privateMessage"), any());
+    }
+
+    /**
+     * 測試找不到接收者節點時退回廣播
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：PrivateMessage 物件（recipientId: "user2"），註冊表返回 null</li>
+     *   <li>透過方法：publishPrivateMessage(privateMessage)</li>
+     *   <li>預期結果：應該發布到 "/topic/privateMessage" 廣播頻道</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.RedisMessagePublisher#publishPrivateMessage(PrivateMessage)
+     */
+    @Test
+    @Order(7)
+    void testPublishPrivateMessageFallsBackToBroadcast() throws JsonProcessingException {
+        PrivateMessage privateMessage = new PrivateMessage("private", "user2", "user1", "用戶1", "私信內容", null);
+        String jsonMessage = "{\"recipientId\":\"user2\"}";
+
+        when(objectMapper.writeValueAsString(privateMessage)).thenReturn(jsonMessage);
+        when(clusterUserRegistry.findNode("user2")).thenReturn(null);
+
+        redisMessagePublisher.publishPrivateMessage(privateMessage);
+
+        verify(redisTemplate, times(1)).convertAndSend(eq("/topic/privateMessage"), eq(jsonMessage));
+    }
+
+    /**
+     * 測試 Stream 模式改用 XADD 寫入 Redis Stream
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：transportMode 設為 "stream"，ResponseMessage 物件（content: "測試訊息"）</li>
+     *   <li>透過方法：publish(message)</li>
+     *   <li>預期結果：應該透過 StringRedisTemplate 執行 XADD，不再呼叫 Pub/Sub 的 convertAndSend()</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.RedisMessagePublisher#publish(ResponseMessage)
+     */
+    @Test
+    @Order(8)
+    @SuppressWarnings("unchecked")
+    void testPublishInStreamModeWritesToStream() throws Exception {
+        java.lang.reflect.Field transportModeField = RedisMessagePublisher.class.getDeclaredField("transportMode");
+        transportModeField.setAccessible(true);
+        transportModeField.set(redisMessagePublisher, "stream");
+
+        ResponseMessage message = new ResponseMessage("測試訊息");
+        when(objectMapper.writeValueAsString(message)).thenReturn("{\"content\":\"測試訊息\"}");
+
+        redisMessagePublisher.publish(message);
+
+        verify(stringRedisTemplate, times(1)).execute(any(RedisCallback.class));
+        verify(redisTemplate, never()).convertAndSend(anyString(), any());
+    }
+
+    /**
+     * 測試專員狀態經實際的 RedisTemplate 序列化器往返
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：AgentStatusMessage("a", "專員A", "ONLINE", 1700000000000, 3)</li>
+     *   <li>透過方法：publishAgentStatus(message) 經 RedisConfig 的 rawRedisTemplate 發布，
+     *       再將發布的位元組交給 RedisMessageListener.onMessage()；另以 GenericJackson2JsonRedisSerializer
+     *       序列化的舊格式（JSON 字串外多一層引號）送給監聽器</li>
+     *   <li>預期結果：兩種格式都會以相同內容的 AgentStatusMessage 呼叫 AgentStatusRelay.accept()</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.RedisMessagePublisher#publishAgentStatus(AgentStatusMessage)
+     */
+    @Test
+    @Order(9)
+    void testAgentStatusRoundTrip() {
+        com.fasterxml.jackson.databind.ObjectMapper realObjectMapper = new com.fasterxml.jackson.databind.ObjectMapper();
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        ReflectionTestUtils.setField(redisMessagePublisher, "objectMapper", realObjectMapper);
+        ReflectionTestUtils.setField(redisMessagePublisher, "rawRedisTemplate", new RedisConfig().rawRedisTemplate(connectionFactory));
+
+        AgentStatusMessage message = new AgentStatusMessage("a", "專員A", "ONLINE", 1700000000000L, 3L);
+        redisMessagePublisher.publishAgentStatus(message);
+
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(connection).publish(eq(AgentStatusRelay.CHANNEL.getBytes(StandardCharsets.UTF_8)), bodyCaptor.capture());
+
+        RedisMessageListener listener = new RedisMessageListener();
+        AgentStatusRelay agentStatusRelay = mock(AgentStatusRelay.class);
+        ReflectionTestUtils.setField(listener, "objectMapper", realObjectMapper);
+        ReflectionTestUtils.setField(listener, "agentStatusRelay", agentStatusRelay);
+        byte[] channel = AgentStatusRelay.CHANNEL.getBytes(StandardCharsets.UTF_8);
+        listener.onMessage(new DefaultMessage(channel, bodyCaptor.getValue()), null);
+
+        // 舊版本以 GenericJackson2JsonRedisSerializer 發布的 JSON 字串
+        byte[] legacyBody = new GenericJackson2JsonRedisSerializer().serialize(new String(bodyCaptor.getValue(), StandardCharsets.UTF_8));
+        listener.onMessage(new DefaultMessage(channel, legacyBody), null);
+
+        verify(agentStatusRelay, times(2)).accept(message);
+    }
 }
@@ -0,0 +1,118 @@
+package com.hejz.springbootstomp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RedisRawMessageListener 單元測試類別
+ * 
+ * <p>此測試類別驗證原始位元組訊息監聽器的功能，包括：
+ * <ul>
+ *   <li>位元組 payload 原樣轉發</li>
+ *   <li>JSON content-type header</li>
+ *   <li>空訊息處理</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testOnMessageForwardsRawBytes() - 驗證位元組原樣轉發</li>
+ *   <li>testOnMessageWithEmptyBody() - 驗證空訊息不轉發</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.RedisRawMessageListener
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisRawMessageListenerTests {
+
+    // 模擬 WebSocket 訊息發送模板，用於將訊息轉發給 WebSocket 客戶端
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    // 模擬 Redis 訊息物件，代表從 Redis 收到的訊息
+    @Mock
+    private Message redisMessage;
+
+    // 要測試的原始位元組訊息監聽器實例
+    private RedisRawMessageListener redisRawMessageListener;
+
+    @BeforeEach
+    void setUp() {
+        redisRawMessageListener = new RedisRawMessageListener();
+        try {
+            // 使用反射機制來設定私有欄位 messagingTemplate
+            java.lang.reflect.Field messagingTemplateField = RedisRawMessageListener.class.getDeclaredField("messagingTemplate");
+            messagingTemplateField.setAccessible(true);
+            messagingTemplateField.set(redisRawMessageListener, messagingTemplate);
+        } catch (Exception e) {
+            throw new RuntimeException("無法設置私有欄位", e);
+        }
+    }
+
+    /**
+     * 測試位元組 payload 原樣轉發
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：Redis 訊息 body 為 {"content":"測試訊息"} 的位元組</li>
+     *   <li>透過方法：onMessage(message, pattern)</li>
+     *   <li>預期結果：應該以同一個 byte[] 發送到 /topic/chat，content-type 為 application/json</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.RedisRawMessageListener#onMessage(Message, byte[])
+     */
+    @Test
+    @Order(1)
+    @SuppressWarnings("unchecked")
+    void testOnMessageForwardsRawBytes() {
+        byte[] body = "{\"content\":\"測試訊息\"}".getBytes(StandardCharsets.UTF_8);
+        when(redisMessage.getBody()).thenReturn(body);
+
+        redisRawMessageListener.onMessage(redisMessage, null);
+
+        ArgumentCaptor<org.springframework.messaging.Message<byte[]>> captor =
+                ArgumentCaptor.forClass(org.springframework.messaging.Message.class);
+        verify(messagingTemplate, times(1)).send(eq("/topic/chat"), captor.capture());
+        // 驗證：payload 是同一個陣列，沒有經過任何轉換
+        assertSame(body, captor.getValue().getPayload());
+        assertEquals(MimeTypeUtils.APPLICATION_JSON, captor.getValue().getHeaders().get(MessageHeaders.CONTENT_TYPE));
+    }
+
+    /**
+     * 測試空訊息不轉發
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：Redis 訊息 body 為空陣列</li>
+     *   <li>透過方法：onMessage(message, pattern)</li>
+     *   <li>預期結果：不應該呼叫 messagingTemplate.send()</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.RedisRawMessageListener#onMessage(Message, byte[])
+     */
+    @Test
+    @Order(2)
+    void testOnMessageWithEmptyBody() {
+        when(redisMessage.getBody()).thenReturn(new byte[0]);
+
+        redisRawMessageListener.onMessage(redisMessage, null);
+
+        verify(messagingTemplate, never()).send(anyString(), any());
+    }
+}
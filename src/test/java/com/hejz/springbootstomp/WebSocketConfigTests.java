@@ -1,12 +1,18 @@
 package com.hejz.springbootstomp;
 
+import com.hejz.springbootstomp.config.InstrumentedChannelExecutor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.SimpleBrokerRegistration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.config.annotation.SockJsServiceRegistration;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.StompWebSocketEndpointRegistration;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,6 +34,9 @@ import static org.mockito.Mockito.*;
  *   <li>testStompEndpointConfiguration() - 驗證端點配置</li>
  *   <li>testConfigureMessageBroker() - 驗證訊息代理配置</li>
  *   <li>testMessageBrokerPrefixes() - 驗證訊息代理前綴</li>
+ *   <li>testStompHeartbeatLivenessMode() - 驗證 STOMP 原生心跳配置</li>
+ *   <li>testClientOutboundChannelExecutor() - 驗證出站通道使用有上限的執行緒池</li>
+ *   <li>testConfigureWebSocketTransport() - 驗證每個會話的出站緩衝限制</li>
  * </ol>
  * 
  * @see com.hejz.springbootstomp.WebSocketConfig
@@ -57,7 +66,8 @@ class WebSocketConfigTests {
      * <ul>
      *   <li>預期參數：endpointRegistry（模擬的端點註冊表）</li>
      *   <li>透過方法：registerStompEndpoints(endpointRegistry)</li>
-     *   <li>預期結果：應該呼叫 addEndpoint("our-websocket")、setHandshakeHandler()、withSockJS() 各 1 次</li>
+     *   <li>預期結果：addEndpoint("our-websocket-native") 和 addEndpoint("our-websocket") 各 1 次，
+     *       兩個端點都設定 Userhandshakehandler，只有 our-websocket 呼叫 withSockJS()</li>
      * </ul>
      * 
      * <p>實際場景：當 Spring Boot 啟動時，會呼叫這個方法來註冊 WebSocket 端點，
@@ -73,12 +83,18 @@ class WebSocketConfigTests {
         // 建立模擬的 SockJS 服務註冊物件，用於模擬 withSockJS() 方法的返回值
         SockJsServiceRegistration sockJsRegistration = mock(SockJsServiceRegistration.class);
         
+        // 建立模擬的原生 WebSocket 端點註冊物件
+        StompWebSocketEndpointRegistration nativeRegistration = mock(StompWebSocketEndpointRegistration.class);
+
         // 設定 Mock 行為：當呼叫 addEndpoint("our-websocket") 時，返回 registration 物件
         when(endpointRegistry.addEndpoint("our-websocket")).thenReturn(registration);
+        // 設定 Mock 行為：當呼叫 addEndpoint("our-websocket-native") 時，返回 nativeRegistration 物件
+        when(endpointRegistry.addEndpoint("our-websocket-native")).thenReturn(nativeRegistration);
         // 設定 Mock 行為：當呼叫 setHandshakeHandler() 時，接受任何 Userhandshakehandler 實例
         // 使用 any() 是因為實際程式碼中會 new Userhandshakehandler()，每次都是新實例
         // 我們無法預先知道具體的實例引用，所以用 any() 來匹配任何該類型的實例
         when(registration.setHandshakeHandler(any(Userhandshakehandler.class))).thenReturn(registration);
+        when(nativeRegistration.setHandshakeHandler(any(Userhandshakehandler.class))).thenReturn(nativeRegistration);
         // 設定 Mock 行為：當呼叫 withSockJS() 時，返回 sockJsRegistration 物件
         when(registration.withSockJS()).thenReturn(sockJsRegistration);
 
@@ -93,6 +109,10 @@ class WebSocketConfigTests {
         verify(registration, times(1)).setHandshakeHandler(any(Userhandshakehandler.class));
         // 驗證：確認 withSockJS() 被呼叫了 1 次
         verify(registration, times(1)).withSockJS();
+        // 驗證：原生端點使用同類型的握手處理器，且不啟用 SockJS
+        verify(endpointRegistry, times(1)).addEndpoint("our-websocket-native");
+        verify(nativeRegistration, times(1)).setHandshakeHandler(any(Userhandshakehandler.class));
+        verify(nativeRegistration, never()).withSockJS();
     }
 
     /**
@@ -118,11 +138,17 @@ class WebSocketConfigTests {
         org.springframework.web.socket.config.annotation.SockJsServiceRegistration sockJsRegistration = 
             mock(org.springframework.web.socket.config.annotation.SockJsServiceRegistration.class);
         
+        // 建立模擬的原生 WebSocket 端點註冊物件
+        StompWebSocketEndpointRegistration nativeRegistration = mock(StompWebSocketEndpointRegistration.class);
+
         // 設定 Mock 行為：當呼叫 addEndpoint("our-websocket") 時，返回 registration 物件
         when(endpointRegistry.addEndpoint("our-websocket")).thenReturn(registration);
+        // 設定 Mock 行為：當呼叫 addEndpoint("our-websocket-native") 時，返回 nativeRegistration 物件
+        when(endpointRegistry.addEndpoint("our-websocket-native")).thenReturn(nativeRegistration);
         // 設定 Mock 行為：當呼叫 setHandshakeHandler() 時，接受任何 Userhandshakehandler 實例
         // 使用 any() 是因為實際程式碼中會 new Userhandshakehandler()，每次都是新實例
         when(registration.setHandshakeHandler(any(Userhandshakehandler.class))).thenReturn(registration);
+        when(nativeRegistration.setHandshakeHandler(any(Userhandshakehandler.class))).thenReturn(nativeRegistration);
         // 設定 Mock 行為：當呼叫 withSockJS() 時，返回 sockJsRegistration 物件
         when(registration.withSockJS()).thenReturn(sockJsRegistration);
 
@@ -218,5 +244,87 @@ class WebSocketConfigTests {
         // 驗證前綴已正確配置：確認 setUserDestinationPrefix("/user") 被呼叫了 1 次
         verify(messageBrokerRegistry, times(1)).setUserDestinationPrefix("/user");
     }
-}
 
+    /**
+     * 測試 STOMP 原生心跳配置
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：client.status.liveness.mode=stomp，心跳間隔 10000/10000</li>
+     *   <li>透過方法：configureMessageBroker(messageBrokerRegistry)</li>
+     *   <li>預期結果：簡單代理設定 setHeartbeatValue({10000, 10000}) 和 setTaskScheduler()</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.WebSocketConfig#configureMessageBroker(MessageBrokerRegistry)
+     */
+    @Test
+    @Order(5)
+    void testStompHeartbeatLivenessMode() {
+        SimpleBrokerRegistration simpleBroker = mock(SimpleBrokerRegistration.class);
+        when(messageBrokerRegistry.enableSimpleBroker("/topic")).thenReturn(simpleBroker);
+        when(simpleBroker.setHeartbeatValue(any())).thenReturn(simpleBroker);
+        ReflectionTestUtils.setField(webSocketConfig, "livenessMode", "stomp");
+
+        webSocketConfig.configureMessageBroker(messageBrokerRegistry);
+
+        verify(simpleBroker, times(1)).setHeartbeatValue(new long[]{10000, 10000});
+        verify(simpleBroker, times(1)).setTaskScheduler(any());
+    }
+
+    /**
+     * 測試出站通道使用有上限的執行緒池
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：websocket.channel.outbound.core-pool-size=4、max-pool-size=0、queue-capacity=500、rejection-policy=ABORT</li>
+     *   <li>透過方法：configureClientOutboundChannel(registration)</li>
+     *   <li>預期結果：設定 InstrumentedChannelExecutor，核心 4、最大 8（核心 × 2）、佇列 500、拒絕策略 ABORT</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.WebSocketConfig#configureClientOutboundChannel(ChannelRegistration)
+     */
+    @Test
+    @Order(6)
+    void testClientOutboundChannelExecutor() {
+        ChannelRegistration registration = mock(ChannelRegistration.class);
+        ReflectionTestUtils.setField(webSocketConfig, "outboundCorePoolSize", 4);
+        ReflectionTestUtils.setField(webSocketConfig, "outboundQueueCapacity", 500);
+        ReflectionTestUtils.setField(webSocketConfig, "outboundRejectionPolicy",
+                InstrumentedChannelExecutor.RejectionPolicy.ABORT);
+
+        webSocketConfig.configureClientOutboundChannel(registration);
+
+        ArgumentCaptor<InstrumentedChannelExecutor> captor = ArgumentCaptor.forClass(InstrumentedChannelExecutor.class);
+        verify(registration, times(1)).taskExecutor(captor.capture());
+        InstrumentedChannelExecutor executor = captor.getValue();
+        assertEquals("clientOutboundChannel", executor.getChannelName());
+        assertEquals(4, executor.getCorePoolSize());
+        assertEquals(8, executor.getMaxPoolSize());
+        assertEquals(500, executor.getQueueCapacity());
+        assertEquals(InstrumentedChannelExecutor.RejectionPolicy.ABORT, executor.getRejectionPolicy());
+    }
+
+    /**
+     * 測試每個會話的出站緩衝限制
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：websocket.transport.send-time-limit、send-buffer-size-limit 使用預設值</li>
+     *   <li>透過方法：configureWebSocketTransport(registration)</li>
+     *   <li>預期結果：設定 setSendTimeLimit(10000) 和 setSendBufferSizeLimit(524288)</li>
+     * </ul>
+     * 
+     * @see com.hejz.springbootstomp.WebSocketConfig#configureWebSocketTransport(WebSocketTransportRegistration)
+     */
+    @Test
+    @Order(7)
+    void testConfigureWebSocketTransport() {
+        WebSocketTransportRegistration registration = mock(WebSocketTransportRegistration.class);
+        when(registration.setSendTimeLimit(anyInt())).thenReturn(registration);
+
+        webSocketConfig.configureWebSocketTransport(registration);
+
+        verify(registration, times(1)).setSendTimeLimit(10000);
+        verify(registration, times(1)).setSendBufferSizeLimit(512 * 1024);
+    }
+}
@@ -0,0 +1,138 @@
+package com.hejz.springbootstomp.config;
+
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CachingStompEncoder 單元測試類別
+ * 
+ * <p>此測試類別驗證廣播訊息只編碼一次的 STOMP 編碼器，包括：
+ * <ul>
+ *   <li>拼接後的框架與 StompEncoder 的編碼內容一致</li>
+ *   <li>同一 payload 的共用部分只編碼一次</li>
+ *   <li>非 MESSAGE 框架使用預設編碼</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testSplicedFrameMatchesStompEncoder() - 驗證各會話的框架解碼後與預設編碼相同</li>
+ *   <li>testSharedPartEncodedOnce() - 驗證同一 payload 只有第一次完整編碼</li>
+ *   <li>testNonMessageFrameUsesDefaultEncoding() - 驗證 RECEIPT 框架與 StompEncoder 輸出相同</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.config.CachingStompEncoder
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+class CachingStompEncoderTests {
+
+    // 要測試的編碼器實例
+    private final CachingStompEncoder encoder = new CachingStompEncoder();
+
+    // 用於比對的預設編碼器和解碼器
+    private final StompEncoder defaultEncoder = new StompEncoder();
+
+    private final StompDecoder decoder = new StompDecoder();
+
+    /**
+     * 測試拼接後的框架與預設編碼相同
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：同一 payload 送給兩個會話，subscription 含需要跳脫的冒號</li>
+     *   <li>透過方法：encode(headers, payload)</li>
+     *   <li>預期結果：解碼後的命令、標頭和內容都與 StompEncoder 的輸出相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testSplicedFrameMatchesStompEncoder() {
+        byte[] payload = "{\"content\":\"大家好\"}".getBytes(StandardCharsets.UTF_8);
+
+        for (String[] session : new String[][] {{"sub-0", "s1-0"}, {"sub:1", "s2-7"}}) {
+            Map<String, Object> headers = messageHeaders(session[0], session[1]);
+            Message<byte[]> expected = decode(defaultEncoder.encode(headers, payload));
+            Message<byte[]> actual = decode(encoder.encode(headers, payload));
+
+            StompHeaderAccessor expectedAccessor = StompHeaderAccessor.wrap(expected);
+            StompHeaderAccessor actualAccessor = StompHeaderAccessor.wrap(actual);
+            assertEquals(StompCommand.MESSAGE, actualAccessor.getCommand());
+            assertEquals(expectedAccessor.toNativeHeaderMap(), actualAccessor.toNativeHeaderMap());
+            assertEquals(session[0], actualAccessor.getSubscriptionId());
+            assertArrayEquals(payload, actual.getPayload());
+        }
+    }
+
+    /**
+     * 測試同一 payload 的共用部分只編碼一次
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：同一 payload 陣列送給 3 個會話，再送一則新的 payload</li>
+     *   <li>透過方法：encode(headers, payload)</li>
+     *   <li>預期結果：missCount 為 2（每個 payload 一次），hitCount 為 2</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testSharedPartEncodedOnce() {
+        byte[] payload = "hello".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < 3; i++) {
+            encoder.encode(messageHeaders("sub-" + i, "session" + i + "-0"), payload);
+        }
+        encoder.encode(messageHeaders("sub-0", "session0-1"), "world".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, encoder.getMissCount());
+        assertEquals(2, encoder.getHitCount());
+    }
+
+    /**
+     * 測試非 MESSAGE 框架使用預設編碼
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：RECEIPT 框架，receipt-id="r1"</li>
+     *   <li>透過方法：encode(headers, payload)</li>
+     *   <li>預期結果：與 StompEncoder 的輸出逐位元組相同，且不計入快取統計</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testNonMessageFrameUsesDefaultEncoding() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+        accessor.setReceiptId("r1");
+        Map<String, Object> headers = accessor.getMessageHeaders();
+
+        assertArrayEquals(defaultEncoder.encode(headers, new byte[0]), encoder.encode(headers, new byte[0]));
+        assertEquals(0, encoder.getMissCount());
+        assertEquals(0, encoder.getHitCount());
+    }
+
+    private Map<String, Object> messageHeaders(String subscriptionId, String messageId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination("/topic/chat");
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setMessageId(messageId);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return accessor.getMessageHeaders();
+    }
+
+    private Message<byte[]> decode(byte[] frame) {
+        List<Message<byte[]>> messages = decoder.decode(ByteBuffer.wrap(frame));
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+}
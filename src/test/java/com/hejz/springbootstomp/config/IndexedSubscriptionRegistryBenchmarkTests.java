@@ -0,0 +1,168 @@
+package com.hejz.springbootstomp.config;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IndexedSubscriptionRegistry 與 DefaultSubscriptionRegistry 的效能比較
+ * 
+ * <p>只在指定 -Dsubscription.benchmark=true 時執行，例如：
+ * <pre>
+ * mvn test -Dtest=IndexedSubscriptionRegistryBenchmarkTests -Dsubscription.benchmark=true
+ * </pre>
+ * 
+ * <p>每個會話有 4 個訂閱：/topic/user.{i}（每用戶）、/topic/room.{i % 房間數}（每房間，約 100 人一間）、
+ * /topic/chat，以及 /topic/agentStatus（每 100 個會話有 1 個改訂閱模式 /topic/agent/**）。
+ * 查詢隨機挑選每用戶和每房間的目的地，DefaultSubscriptionRegistry 的快取上限 1024 個目的地容納不下。
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testBenchmark10k() - 10,000 個訂閱</li>
+ *   <li>testBenchmark100k() - 100,000 個訂閱</li>
+ *   <li>testBenchmark1m() - 1,000,000 個訂閱</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.config.IndexedSubscriptionRegistry
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@EnabledIfSystemProperty(named = "subscription.benchmark", matches = "true")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class IndexedSubscriptionRegistryBenchmarkTests {
+
+    // 每個註冊表最多執行的查詢次數和時間
+    private static final int MAX_LOOKUPS = 200_000;
+
+    private static final long MAX_LOOKUP_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * 測試 10,000 個訂閱
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：2,500 個會話，每個 4 個訂閱</li>
+     *   <li>透過方法：registerSubscription(message)、findSubscriptions(message)</li>
+     *   <li>預期結果：輸出兩個實作的註冊時間和每秒查詢次數，且查詢結果的會話數相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testBenchmark10k() {
+        compare(10_000);
+    }
+
+    /**
+     * 測試 100,000 個訂閱
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：25,000 個會話，每個 4 個訂閱</li>
+     *   <li>透過方法：registerSubscription(message)、findSubscriptions(message)</li>
+     *   <li>預期結果：輸出兩個實作的註冊時間和每秒查詢次數，且查詢結果的會話數相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testBenchmark100k() {
+        compare(100_000);
+    }
+
+    /**
+     * 測試 1,000,000 個訂閱
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：250,000 個會話，每個 4 個訂閱</li>
+     *   <li>透過方法：registerSubscription(message)、findSubscriptions(message)</li>
+     *   <li>預期結果：輸出兩個實作的註冊時間和每秒查詢次數，且查詢結果的會話數相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testBenchmark1m() {
+        compare(1_000_000);
+    }
+
+    private void compare(int subscriptions) {
+        int sessions = subscriptions / 4;
+        int rooms = Math.max(1, sessions / 100);
+        List<Message<?>> lookups = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            lookups.add(IndexedSubscriptionRegistryTests.message(random.nextBoolean()
+                    ? "/topic/user." + random.nextInt(sessions)
+                    : "/topic/room." + random.nextInt(rooms)));
+        }
+
+        long[] expected = run("DefaultSubscriptionRegistry", DefaultSubscriptionRegistry::new, subscriptions, sessions, rooms, lookups);
+        long[] actual = run("IndexedSubscriptionRegistry", IndexedSubscriptionRegistry::new, subscriptions, sessions, rooms, lookups);
+
+        // 比較兩者都執行過的查詢所找到的會話總數
+        int checked = (int) Math.min(expected[0], actual[0]);
+        assertTrue(checked > 0);
+        assertEquals(countSessions(DefaultSubscriptionRegistry::new, sessions, rooms, lookups, checked),
+                countSessions(IndexedSubscriptionRegistry::new, sessions, rooms, lookups, checked));
+    }
+
+    /**
+     * @return {查詢次數, 找到的會話總數}
+     */
+    private long[] run(String name, Supplier<SubscriptionRegistry> factory, int subscriptions, int sessions, int rooms,
+                       List<Message<?>> lookups) {
+        System.gc();
+        long start = System.nanoTime();
+        SubscriptionRegistry registry = register(factory.get(), sessions, rooms);
+        long registerNanos = System.nanoTime() - start;
+
+        long found = 0;
+        int count = 0;
+        start = System.nanoTime();
+        long deadline = start + MAX_LOOKUP_NANOS;
+        while (count < MAX_LOOKUPS && System.nanoTime() < deadline) {
+            found += registry.findSubscriptions(lookups.get(count % lookups.size())).size();
+            count++;
+        }
+        long lookupNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: subscriptions=%,d, register=%,d ms, lookups=%,d, throughput=%,.0f lookups/s, avg=%,.1f us%n",
+                name, subscriptions, TimeUnit.NANOSECONDS.toMillis(registerNanos), count,
+                count * 1e9 / lookupNanos, lookupNanos / 1e3 / count);
+        return new long[] {count, found};
+    }
+
+    private long countSessions(Supplier<SubscriptionRegistry> factory, int sessions, int rooms, List<Message<?>> lookups,
+                               int count) {
+        SubscriptionRegistry registry = register(factory.get(), sessions, rooms);
+        long found = 0;
+        for (int i = 0; i < count; i++) {
+            found += registry.findSubscriptions(lookups.get(i % lookups.size())).size();
+        }
+        return found;
+    }
+
+    private static SubscriptionRegistry register(SubscriptionRegistry registry, int sessions, int rooms) {
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "session-" + i;
+            registry.registerSubscription(IndexedSubscriptionRegistryTests.subscribe(sessionId, "sub-0", "/topic/user." + i));
+            registry.registerSubscription(IndexedSubscriptionRegistryTests.subscribe(sessionId, "sub-1", "/topic/room." + (i % rooms)));
+            registry.registerSubscription(IndexedSubscriptionRegistryTests.subscribe(sessionId, "sub-2", "/topic/chat"));
+            registry.registerSubscription(IndexedSubscriptionRegistryTests.subscribe(sessionId, "sub-3",
+                    i % 100 == 0 ? "/topic/agent/**" : "/topic/agentStatus"));
+        }
+        return registry;
+    }
+}
@@ -0,0 +1,178 @@
+package com.hejz.springbootstomp.config;
+
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IndexedSubscriptionRegistry 單元測試類別
+ * 
+ * <p>此測試類別驗證以索引查詢訂閱的 SubscriptionRegistry，包括：
+ * <ul>
+ *   <li>精確目的地和萬用字元模式的查詢</li>
+ *   <li>取消訂閱和斷線清理</li>
+ *   <li>與 DefaultSubscriptionRegistry 的查詢結果一致</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testExactAndPatternSubscriptions() - 驗證精確目的地和模式訂閱都會被找到</li>
+ *   <li>testUnsubscribeAndUnregisterAll() - 驗證取消訂閱和斷線後不再被找到</li>
+ *   <li>testMatchesDefaultSubscriptionRegistry() - 驗證隨機訂閱操作後與預設實作的結果相同</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.config.IndexedSubscriptionRegistry
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+class IndexedSubscriptionRegistryTests {
+
+    // 要測試的訂閱註冊表實例
+    private final IndexedSubscriptionRegistry registry = new IndexedSubscriptionRegistry();
+
+    /**
+     * 測試精確目的地和模式訂閱
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：s1 訂閱 /topic/chat，s2 訂閱 /topic/**，s3 訂閱 /topic/room.*</li>
+     *   <li>透過方法：findSubscriptions(message)</li>
+     *   <li>預期結果：/topic/chat 找到 s1、s2；/topic/room.1 找到 s2、s3；/queue/chat 找不到</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testExactAndPatternSubscriptions() {
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/chat"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/**"));
+        registry.registerSubscription(subscribe("s3", "sub-0", "/topic/room.*"));
+
+        assertEquals(Set.of("s1", "s2"), registry.findSubscriptions(message("/topic/chat")).keySet());
+        assertEquals(Set.of("s2", "s3"), registry.findSubscriptions(message("/topic/room.1")).keySet());
+        assertTrue(registry.findSubscriptions(message("/queue/chat")).isEmpty());
+        assertEquals(3, registry.getSubscriptionCount());
+    }
+
+    /**
+     * 測試取消訂閱和斷線清理
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：s1 有兩個訂閱，取消其中一個；s2 斷線</li>
+     *   <li>透過方法：unregisterSubscription(message)、unregisterAllSubscriptions(sessionId)</li>
+     *   <li>預期結果：已取消的訂閱不再被找到，訂閱總數為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testUnsubscribeAndUnregisterAll() {
+        registry.registerSubscription(subscribe("s1", "sub-0", "/topic/chat"));
+        registry.registerSubscription(subscribe("s1", "sub-1", "/topic/agentStatus"));
+        registry.registerSubscription(subscribe("s2", "sub-0", "/topic/*"));
+
+        registry.unregisterSubscription(unsubscribe("s1", "sub-0"));
+        registry.unregisterAllSubscriptions("s2");
+
+        assertTrue(registry.findSubscriptions(message("/topic/chat")).isEmpty());
+        assertEquals(Map.of("s1", List.of("sub-1")), registry.findSubscriptions(message("/topic/agentStatus")));
+        assertEquals(1, registry.getSubscriptionCount());
+    }
+
+    /**
+     * 測試與 DefaultSubscriptionRegistry 的查詢結果一致
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：以固定亂數種子產生 2000 次訂閱、取消訂閱、斷線操作，目的地包含精確目的地和模式</li>
+     *   <li>透過方法：兩個註冊表執行相同操作後，對每個目的地呼叫 findSubscriptions(message)</li>
+     *   <li>預期結果：每個目的地找到的會話和訂閱 ID 都相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testMatchesDefaultSubscriptionRegistry() {
+        SubscriptionRegistry expected = new DefaultSubscriptionRegistry();
+        String[] destinations = {"/topic/chat", "/topic/agentStatus", "/topic/room.1", "/topic/room.2", "/topic/user/u1"};
+        String[] patterns = {"/topic/**", "/topic/room.*", "/topic/*", "/topic/user/*", "/**", "/topic/{name}"};
+        Random random = new Random(42);
+        Map<String, List<String>> active = new HashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            String sessionId = "s" + random.nextInt(50);
+            int operation = random.nextInt(10);
+            if (operation < 7) {
+                String subscriptionId = "sub-" + i;
+                String destination = random.nextInt(4) == 0
+                        ? patterns[random.nextInt(patterns.length)]
+                        : destinations[random.nextInt(destinations.length)];
+                apply(expected, subscribe(sessionId, subscriptionId, destination));
+                active.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(subscriptionId);
+            } else if (operation < 9) {
+                List<String> subscriptionIds = active.get(sessionId);
+                if (subscriptionIds != null && !subscriptionIds.isEmpty()) {
+                    String subscriptionId = subscriptionIds.remove(random.nextInt(subscriptionIds.size()));
+                    expected.unregisterSubscription(unsubscribe(sessionId, subscriptionId));
+                    registry.unregisterSubscription(unsubscribe(sessionId, subscriptionId));
+                }
+            } else {
+                active.remove(sessionId);
+                expected.unregisterAllSubscriptions(sessionId);
+                registry.unregisterAllSubscriptions(sessionId);
+            }
+        }
+
+        for (String destination : destinations) {
+            assertEquals(normalize(expected.findSubscriptions(message(destination))),
+                    normalize(registry.findSubscriptions(message(destination))), destination);
+        }
+        assertEquals(active.values().stream().mapToInt(List::size).sum(), registry.getSubscriptionCount());
+    }
+
+    private void apply(SubscriptionRegistry expected, Message<?> subscribe) {
+        expected.registerSubscription(subscribe);
+        registry.registerSubscription(subscribe);
+    }
+
+    private static Map<String, Set<String>> normalize(MultiValueMap<String, String> subscriptions) {
+        Map<String, Set<String>> result = new HashMap<>();
+        subscriptions.forEach((sessionId, subscriptionIds) -> result.put(sessionId, new HashSet<>(subscriptionIds)));
+        return result;
+    }
+
+    static Message<?> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+    }
+
+    static Message<?> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+    }
+
+    static Message<?> message(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage("", accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,169 @@
+package com.hejz.springbootstomp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InstrumentedChannelExecutor 單元測試類別
+ * 
+ * <p>此測試類別驗證帶有指標的通道執行緒池，包括：
+ * <ul>
+ *   <li>佇列等待時間和完成數的記錄</li>
+ *   <li>佇列滿時的拒絕策略和拒絕次數</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testRecordsQueueLatency() - 驗證排隊的任務記錄佇列等待時間</li>
+ *   <li>testDiscardWhenQueueFull() - 驗證 DISCARD 策略丟棄任務並計數</li>
+ *   <li>testCallerRunsWhenQueueFull() - 驗證 CALLER_RUNS 策略由提交執行緒執行</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.config.InstrumentedChannelExecutor
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+class InstrumentedChannelExecutorTests {
+
+    // 要測試的通道執行緒池實例
+    private InstrumentedChannelExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 測試排隊的任務記錄佇列等待時間
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：1 條執行緒，第 1 個任務阻塞約 50ms，第 2 個任務在佇列中等待</li>
+     *   <li>透過方法：execute(task)</li>
+     *   <li>預期結果：完成數為 2，最大佇列等待時間不小於 40ms，且讀取後重新計算</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testRecordsQueueLatency() throws Exception {
+        executor = createExecutor(10, InstrumentedChannelExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch done = new CountDownLatch(2);
+
+        executor.execute(() -> {
+            sleep(50);
+            done.countDown();
+        });
+        executor.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitForCompleted(2);
+        assertEquals(2, executor.getCompletedCount());
+        assertTrue(executor.getAndResetMaxQueueLatencyMillis() >= 40);
+        assertEquals(0, executor.getAndResetMaxQueueLatencyMillis());
+        assertTrue(executor.getAverageExecutionMillis() > 0);
+        assertEquals(0, executor.getRejectedCount());
+    }
+
+    /**
+     * 測試 DISCARD 策略：佇列滿時丟棄任務
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：1 條執行緒、佇列容量 1，執行緒和佇列都已被佔用</li>
+     *   <li>透過方法：execute(task)</li>
+     *   <li>預期結果：第 3 個任務不執行，拒絕次數為 1，佇列長度為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testDiscardWhenQueueFull() throws Exception {
+        executor = createExecutor(1, InstrumentedChannelExecutor.RejectionPolicy.DISCARD);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Boolean> discardedRan = new AtomicReference<>(false);
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+        executor.execute(() -> discardedRan.set(true));
+
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(1, executor.getActiveCount());
+        release.countDown();
+        waitForCompleted(2);
+        assertFalse(discardedRan.get());
+    }
+
+    /**
+     * 測試 CALLER_RUNS 策略：佇列滿時由提交執行緒執行
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：1 條執行緒、佇列容量 1，執行緒和佇列都已被佔用</li>
+     *   <li>透過方法：execute(task)</li>
+     *   <li>預期結果：第 3 個任務在測試執行緒上執行，拒絕次數為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testCallerRunsWhenQueueFull() throws Exception {
+        executor = createExecutor(1, InstrumentedChannelExecutor.RejectionPolicy.CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicReference<Thread> runner = new AtomicReference<>();
+
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> { });
+        executor.execute(() -> runner.set(Thread.currentThread()));
+
+        assertSame(Thread.currentThread(), runner.get());
+        assertEquals(1, executor.getRejectedCount());
+        release.countDown();
+    }
+
+    private InstrumentedChannelExecutor createExecutor(int queueCapacity, InstrumentedChannelExecutor.RejectionPolicy policy) {
+        InstrumentedChannelExecutor created = new InstrumentedChannelExecutor("testChannel", 1, 1, queueCapacity, 60, policy);
+        created.initialize();
+        return created;
+    }
+
+    private void waitForCompleted(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getCompletedCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.hejz.springbootstomp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * SlowConsumerSessionDecorator 單元測試類別
+ * 
+ * <p>此測試類別驗證依目的地處理緩衝溢出的會話裝飾器，包括：
+ * <ul>
+ *   <li>從 STOMP 框架解析目的地</li>
+ *   <li>可丟棄的目的地溢出時丟棄最舊的訊息</li>
+ *   <li>其他目的地溢出時剔除會話</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testFindDestination() - 驗證只在標頭區尋找 destination</li>
+ *   <li>testDropOldestChatMessages() - 驗證 /topic/chat 溢出時丟棄最舊的訊息</li>
+ *   <li>testEvictWhenNonDroppableOverflow() - 驗證無法丟棄時拋出 SessionLimitExceededException</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.config.SlowConsumerSessionDecorator
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+class SlowConsumerSessionDecoratorTests {
+
+    // 模擬慢速客戶端的原始會話：第一次寫入會阻塞直到 release
+    private WebSocketSession delegate;
+
+    private final CountDownLatch sending = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private final AtomicInteger evicted = new AtomicInteger();
+
+    // 要測試的會話裝飾器實例，緩衝上限 100 位元組
+    private SlowConsumerSessionDecorator decorator;
+
+    private Thread blockedSender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        delegate = mock(WebSocketSession.class);
+        when(delegate.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(delegate).sendMessage(any());
+        decorator = new SlowConsumerSessionDecorator(delegate, 60000, 100, Set.of("/topic/chat"),
+                new SlowConsumerSessionDecorator.OverflowListener() {
+                    @Override
+                    public void onDropped(WebSocketSession session, int count) {
+                        dropped.addAndGet(count);
+                    }
+
+                    @Override
+                    public void onEvicted(WebSocketSession session, String reason) {
+                        evicted.incrementAndGet();
+                    }
+                });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        if (blockedSender != null) {
+            blockedSender.join(5000);
+        }
+    }
+
+    /**
+     * 測試從 STOMP 框架解析目的地
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：MESSAGE 框架的 destination 標頭，以及內容中出現 destination: 字樣的框架</li>
+     *   <li>透過方法：findDestination(frame)</li>
+     *   <li>預期結果：返回標頭中的 /topic/chat；只在內容中出現時返回 null</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testFindDestination() {
+        assertEquals("/topic/chat", SlowConsumerSessionDecorator.findDestination(
+                bytes("MESSAGE\nsubscription:sub-0\ndestination:/topic/chat\ncontent-length:2\n\n{}\0")));
+        assertNull(SlowConsumerSessionDecorator.findDestination(
+                bytes("MESSAGE\nsubscription:sub-0\n\n\ndestination:/topic/chat\0")));
+    }
+
+    /**
+     * 測試 /topic/chat 溢出時丟棄最舊的訊息
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：正在寫入時（寫入阻塞），再發送 3 則約 60 位元組的 /topic/chat 訊息</li>
+     *   <li>透過方法：sendMessage(message)</li>
+     *   <li>預期結果：丟棄 2 則最舊的訊息，緩衝回到上限以內，會話不被剔除</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testDropOldestChatMessages() throws Exception {
+        startBlockedSend();
+
+        for (int i = 0; i < 3; i++) {
+            decorator.sendMessage(frame("/topic/chat", i));
+        }
+
+        assertEquals(2, dropped.get());
+        assertTrue(decorator.getBufferSize() <= 100);
+        assertEquals(0, evicted.get());
+    }
+
+    /**
+     * 測試其他目的地溢出時剔除會話
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：正在寫入時（寫入阻塞），發送 1 則 /topic/chat 和 2 則 /user/topic/privateMessage 訊息</li>
+     *   <li>透過方法：sendMessage(message)</li>
+     *   <li>預期結果：先丟棄 /topic/chat 訊息，私信仍超過上限時拋出 SessionLimitExceededException，剔除計數為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testEvictWhenNonDroppableOverflow() throws Exception {
+        startBlockedSend();
+
+        decorator.sendMessage(frame("/topic/chat", 0));
+        decorator.sendMessage(frame("/user/topic/privateMessage", 1));
+        assertEquals(1, dropped.get());
+        assertThrows(SessionLimitExceededException.class,
+                () -> decorator.sendMessage(frame("/user/topic/privateMessage", 2)));
+
+        assertEquals(1, evicted.get());
+    }
+
+    private void startBlockedSend() throws InterruptedException {
+        blockedSender = new Thread(() -> {
+            try {
+                decorator.sendMessage(frame("/topic/chat", -1));
+            } catch (Exception e) {
+                // 測試結束時忽略
+            }
+        });
+        blockedSender.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+    }
+
+    private static TextMessage frame(String destination, int index) {
+        String header = "MESSAGE\ndestination:" + destination + "\n\n";
+        StringBuilder frame = new StringBuilder(header).append(index);
+        while (frame.length() < 60) {
+            frame.append('x');
+        }
+        return new TextMessage(frame.append('\0').toString());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
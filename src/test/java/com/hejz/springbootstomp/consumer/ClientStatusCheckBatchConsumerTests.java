@@ -0,0 +1,108 @@
+package com.hejz.springbootstomp.consumer;
+
+import com.hejz.springbootstomp.dto.ClientStatusCheckMessage;
+import com.hejz.springbootstomp.service.ClientStatusService;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ClientStatusCheckBatchConsumer 單元測試類別
+ * 
+ * <p>此測試類別驗證客戶端狀態檢查批次消費者的功能，包括：
+ * <ul>
+ *   <li>整批訊息交給 ClientStatusService 一次檢查</li>
+ *   <li>以最後一則的 deliveryTag 一次確認或拒絕整批訊息</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testBatchAckedWithMultiple() - 驗證整批訊息以一次 multiple ACK 確認</li>
+ *   <li>testBatchNackedOnError() - 驗證處理失敗時整批拒絕並丟棄</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.consumer.ClientStatusCheckBatchConsumer
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ClientStatusCheckBatchConsumerTests {
+
+    // 模擬客戶端狀態服務，用於批次檢查逾時
+    @Mock
+    private ClientStatusService clientStatusService;
+
+    // 模擬 RabbitMQ 頻道，用於驗證確認和拒絕
+    @Mock
+    private Channel channel;
+
+    // 要測試的批次消費者實例
+    @InjectMocks
+    private ClientStatusCheckBatchConsumer consumer;
+
+    private Message<ClientStatusCheckMessage> message(String clientId, long deliveryTag) {
+        long now = System.currentTimeMillis();
+        return MessageBuilder.withPayload(new ClientStatusCheckMessage(clientId, now, now, null))
+                .setHeader(AmqpHeaders.DELIVERY_TAG, deliveryTag)
+                .build();
+    }
+
+    /**
+     * 測試整批訊息以一次 multiple ACK 確認
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：deliveryTag 為 5、6、7 的 3 則訊息</li>
+     *   <li>透過方法：handleClientStatusChecks(messages, channel)</li>
+     *   <li>預期結果：checkClientTimeouts() 收到 3 則訊息，並只呼叫一次 basicAck(7, true)</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testBatchAckedWithMultiple() throws Exception {
+        when(clientStatusService.checkClientTimeouts(anyList())).thenReturn(Collections.singletonList("client2"));
+        List<Message<ClientStatusCheckMessage>> messages = Arrays.asList(
+                message("client1", 5), message("client2", 6), message("client3", 7));
+
+        consumer.handleClientStatusChecks(messages, channel);
+
+        verify(clientStatusService, times(1)).checkClientTimeouts(argThat(list -> list.size() == 3));
+        verify(channel, times(1)).basicAck(7L, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    /**
+     * 測試處理失敗時整批拒絕並丟棄
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：deliveryTag 為 1、2 的 2 則訊息，checkClientTimeouts() 拋出例外</li>
+     *   <li>透過方法：handleClientStatusChecks(messages, channel)</li>
+     *   <li>預期結果：不呼叫 basicAck()，只呼叫一次 basicNack(2, true, false)</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testBatchNackedOnError() throws Exception {
+        when(clientStatusService.checkClientTimeouts(anyList())).thenThrow(new RuntimeException("Redis 連線失敗"));
+
+        consumer.handleClientStatusChecks(Arrays.asList(message("client1", 1), message("client2", 2)), channel);
+
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        verify(channel, times(1)).basicNack(2L, true, false);
+    }
+}
@@ -0,0 +1,117 @@
+package com.hejz.springbootstomp.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hejz.springbootstomp.service.ChatMessageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChatHistoryController 單元測試類別
+ * 
+ * <p>此測試類別驗證聊天歷史記錄控制器的串流查詢功能，包括：
+ * <ul>
+ *   <li>存儲的 JSON 原樣寫入回應</li>
+ *   <li>串流查詢的數量上限</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testStreamPublicMessagesWritesRawJson() - 驗證訊息 JSON 原樣寫入 messages 陣列</li>
+ *   <li>testStreamPrivateMessagesCapsLimit() - 驗證 limit 不超過 max-limit</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.controller.ChatHistoryController
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatHistoryControllerTests {
+
+    // 模擬聊天訊息持久化服務
+    @Mock
+    private ChatMessageService chatMessageService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 要測試的聊天歷史記錄控制器實例
+    private ChatHistoryController chatHistoryController;
+
+    @BeforeEach
+    void setUp() {
+        chatHistoryController = new ChatHistoryController();
+        ReflectionTestUtils.setField(chatHistoryController, "chatMessageService", chatMessageService);
+        ReflectionTestUtils.setField(chatHistoryController, "objectMapper", objectMapper);
+    }
+
+    private JsonNode writeBody(ResponseEntity<?> response) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(outputStream);
+        return objectMapper.readTree(outputStream.toByteArray());
+    }
+
+    /**
+     * 測試訊息 JSON 原樣寫入 messages 陣列
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：limit=20, offset=0，服務返回 2 則訊息 JSON</li>
+     *   <li>透過方法：streamPublicMessages(limit, offset)</li>
+     *   <li>預期結果：回應包含 success、limit、offset、count=2，messages 內容與存儲的 JSON 相同</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testStreamPublicMessagesWritesRawJson() throws Exception {
+        String first = "{\"senderId\":\"userA\",\"content\":\"你好\",\"timestamp\":2000}";
+        String second = "{\"senderId\":\"userB\",\"content\":\"hi\",\"timestamp\":1000}";
+        when(chatMessageService.getPublicMessageJsons(20, 0)).thenReturn(List.of(first, second));
+
+        ResponseEntity<?> response = chatHistoryController.streamPublicMessages(20, 0);
+
+        assertEquals(200, response.getStatusCode().value());
+        JsonNode body = writeBody(response);
+        assertTrue(body.get("success").asBoolean());
+        assertEquals(20, body.get("limit").asInt());
+        assertEquals(2, body.get("count").asInt());
+        assertEquals(objectMapper.readTree(first), body.get("messages").get(0));
+        assertEquals(objectMapper.readTree(second), body.get("messages").get(1));
+    }
+
+    /**
+     * 測試串流查詢的數量上限
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：limit=5000（超過預設上限 1000），指定 peerId</li>
+     *   <li>透過方法：streamPrivateMessages(userId, peerId, limit, offset)</li>
+     *   <li>預期結果：以 limit=1000 查詢對話訊息，回應包含 userId 和 peerId</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testStreamPrivateMessagesCapsLimit() throws Exception {
+        when(chatMessageService.getConversationMessageJsons("userA", "userB", 1000, 0)).thenReturn(List.of());
+
+        ResponseEntity<?> response = chatHistoryController.streamPrivateMessages("userA", "userB", 5000, 0);
+
+        JsonNode body = writeBody(response);
+        assertEquals(1000, body.get("limit").asInt());
+        assertEquals("userB", body.get("peerId").asText());
+        assertEquals(0, body.get("messages").size());
+        verify(chatMessageService).getConversationMessageJsons("userA", "userB", 1000, 0);
+    }
+}
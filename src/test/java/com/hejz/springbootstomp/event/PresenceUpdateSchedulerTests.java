@@ -0,0 +1,132 @@
+package com.hejz.springbootstomp.event;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PresenceUpdateScheduler 單元測試類別
+ * 
+ * <p>此測試類別驗證專員狀態更新排程器的功能，包括：
+ * <ul>
+ *   <li>同一個 key 等待中時不重複排程</li>
+ *   <li>等待中的任務達到容量時丟棄並計數</li>
+ *   <li>取消等待中的任務</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testSameKeyScheduledOnce() - 驗證同一用戶的多次上線更新只執行一次</li>
+ *   <li>testDropWhenCapacityReached() - 驗證容量已滿時丟棄新任務</li>
+ *   <li>testCancelPendingTask() - 驗證取消等待中的任務後不再執行</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.event.PresenceUpdateScheduler
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+class PresenceUpdateSchedulerTests {
+
+    // 要測試的排程器實例
+    private PresenceUpdateScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new PresenceUpdateScheduler();
+        ReflectionTestUtils.setField(scheduler, "threads", 1);
+        ReflectionTestUtils.setField(scheduler, "capacity", 1);
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    /**
+     * 測試同一用戶的多次上線更新只執行一次
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：key="online:user1" 在 50 毫秒內排程 4 次</li>
+     *   <li>透過方法：schedule(key, task, delay)</li>
+     *   <li>預期結果：任務只執行 1 次，略過 3 次，執行後等待數量為 0</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testSameKeyScheduledOnce() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(scheduler.schedule("online:user1", () -> {
+                runs.incrementAndGet();
+                done.countDown();
+            }, 50));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, runs.get());
+        assertEquals(3, scheduler.getDeduplicatedCount());
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(1, scheduler.getCompletedCount());
+    }
+
+    /**
+     * 測試容量已滿時丟棄新任務
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：capacity=1，排程 user1 和 user2 兩個延遲 10 秒的任務</li>
+     *   <li>透過方法：schedule(key, task, delay)</li>
+     *   <li>預期結果：第 2 個任務返回 false，等待數量為 1，丟棄數量為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testDropWhenCapacityReached() {
+        assertTrue(scheduler.schedule("online:user1", () -> { }, 10000));
+        assertFalse(scheduler.schedule("online:user2", () -> { }, 10000));
+
+        assertEquals(1, scheduler.getQueuedCount());
+        assertEquals(1, scheduler.getDroppedCount());
+    }
+
+    /**
+     * 測試取消等待中的任務後不再執行
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：capacity=1，排程 key="online:user1" 延遲 100 毫秒的任務，在執行前取消</li>
+     *   <li>透過方法：schedule(key, task, delay)、cancel(key)</li>
+     *   <li>預期結果：cancel() 返回 true，再次取消返回 false；任務不執行，等待數量為 0，
+     *       釋出的容量可以再排程 user2</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testCancelPendingTask() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        assertTrue(scheduler.schedule("online:user1", runs::incrementAndGet, 100));
+
+        assertTrue(scheduler.cancel("online:user1"));
+        assertFalse(scheduler.cancel("online:user1"));
+
+        Thread.sleep(200);
+        assertEquals(0, runs.get());
+        assertEquals(0, scheduler.getQueuedCount());
+        assertEquals(1, scheduler.getCancelledCount());
+        assertEquals(0, scheduler.getCompletedCount());
+        assertTrue(scheduler.schedule("online:user2", () -> { }, 10000));
+        assertEquals(0, scheduler.getDroppedCount());
+    }
+}
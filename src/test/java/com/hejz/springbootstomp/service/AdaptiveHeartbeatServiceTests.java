@@ -0,0 +1,122 @@
+package com.hejz.springbootstomp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.messaging.simp.user.SimpSession;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AdaptiveHeartbeatService 單元測試類別
+ * 
+ * <p>此測試類別驗證自適應心跳間隔的計算，包括：
+ * <ul>
+ *   <li>負載未超過門檻時使用預設間隔</li>
+ *   <li>負載超過門檻時依比例延長，最多 max-interval</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testBaseIntervalWhenIdle() - 驗證低負載時使用預設間隔</li>
+ *   <li>testIntervalBacksOffUnderLoad() - 驗證會話數量超過門檻時延長間隔</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.AdaptiveHeartbeatService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AdaptiveHeartbeatServiceTests {
+
+    // 模擬字串 Redis 模板，用於量測 PING 延遲
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 模擬用戶註冊表，用於計算會話數量
+    @Mock
+    private SimpUserRegistry simpUserRegistry;
+
+    // 要測試的自適應心跳間隔服務實例
+    private AdaptiveHeartbeatService adaptiveHeartbeatService;
+
+    @BeforeEach
+    void setUp() {
+        adaptiveHeartbeatService = new AdaptiveHeartbeatService();
+        ReflectionTestUtils.setField(adaptiveHeartbeatService, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(adaptiveHeartbeatService, "simpUserRegistry", simpUserRegistry);
+        ReflectionTestUtils.setField(adaptiveHeartbeatService, "sessionThreshold", 2);
+        // Redis 延遲門檻設得很大，避免測試環境的量測結果影響間隔
+        ReflectionTestUtils.setField(adaptiveHeartbeatService, "redisLatencyThreshold", 60000L);
+    }
+
+    private Set<SimpUser> usersWithSessions(int count) {
+        Set<SimpSession> sessions = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            sessions.add(mock(SimpSession.class));
+        }
+        SimpUser user = mock(SimpUser.class);
+        when(user.getSessions()).thenReturn(sessions);
+        return Collections.singleton(user);
+    }
+
+    /**
+     * 測試低負載時使用預設間隔
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：1 個會話（session-threshold=2），入站佇列為空</li>
+     *   <li>透過方法：evaluate()、getRecommendedInterval()</li>
+     *   <li>預期結果：建議間隔為 client.status.heartbeat.interval（30000 毫秒），並量測一次 Redis 延遲</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testBaseIntervalWhenIdle() {
+        Set<SimpUser> users = usersWithSessions(1);
+        when(simpUserRegistry.getUsers()).thenReturn(users);
+
+        adaptiveHeartbeatService.evaluate();
+
+        assertEquals(30000L, adaptiveHeartbeatService.getRecommendedInterval());
+        verify(stringRedisTemplate, times(1)).execute(any(RedisCallback.class));
+    }
+
+    /**
+     * 測試會話數量超過門檻時延長間隔
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：6 個會話（session-threshold=2，負載比例 3），之後 20 個會話（負載比例 10）</li>
+     *   <li>透過方法：evaluate()、getRecommendedInterval()</li>
+     *   <li>預期結果：間隔先延長為 90000 毫秒，之後以 max-interval（120000 毫秒）為上限</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testIntervalBacksOffUnderLoad() {
+        Set<SimpUser> moderate = usersWithSessions(6);
+        Set<SimpUser> heavy = usersWithSessions(20);
+        when(simpUserRegistry.getUsers()).thenReturn(moderate, heavy);
+
+        adaptiveHeartbeatService.evaluate();
+        assertEquals(90000L, adaptiveHeartbeatService.getRecommendedInterval());
+
+        adaptiveHeartbeatService.evaluate();
+        assertEquals(120000L, adaptiveHeartbeatService.getRecommendedInterval());
+    }
+}
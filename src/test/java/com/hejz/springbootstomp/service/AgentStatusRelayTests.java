@@ -0,0 +1,202 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AgentStatusRelay 單元測試類別
+ * 
+ * <p>此測試類別驗證專員狀態跨節點轉發器的功能，包括：
+ * <ul>
+ *   <li>每位專員只轉發版本號最新的狀態</li>
+ *   <li>訂閱時只對該訂閱發送狀態快照</li>
+ *   <li>local 模式下快照每次從 Redis 讀取</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testStaleStatusIsDropped() - 驗證版本號較舊的狀態不會覆蓋較新的狀態</li>
+ *   <li>testBurstIsConflated() - 驗證同一位專員的多次更新只轉發最後一筆</li>
+ *   <li>testSnapshotOnSubscribe() - 驗證訂閱時發送每位專員目前的狀態</li>
+ *   <li>testLocalModeSnapshotReadsRedis() - 驗證 local 模式下每次訂閱都讀取 Redis 中最新的狀態</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.AgentStatusRelay
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AgentStatusRelayTests {
+
+    // 模擬 WebSocket 訊息模板，用於驗證轉發
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    // 模擬專員狀態服務，快照時從 Redis 讀取尚未收到的狀態
+    @Mock
+    private AgentStatusService agentStatusService;
+
+    // 模擬 WebSocket 出站通道，用於驗證快照只發送給訂閱者
+    @Mock
+    private MessageChannel clientOutboundChannel;
+
+    // 要測試的專員狀態轉發器實例
+    private AgentStatusRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        when(messagingTemplate.getMessageConverter()).thenReturn(new MappingJackson2MessageConverter());
+        relay = new AgentStatusRelay();
+        ReflectionTestUtils.setField(relay, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(relay, "agentStatusService", agentStatusService);
+        ReflectionTestUtils.setField(relay, "clientOutboundChannel", clientOutboundChannel);
+        ReflectionTestUtils.setField(relay, "broadcastMode", AgentStatusService.BROADCAST_MODE_CLUSTER);
+        relay.init();
+    }
+
+    /**
+     * 測試版本號較舊的狀態不會覆蓋較新的狀態
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：先收到 version=2、timestamp=1000 的 ONLINE，再收到 version=1、timestamp=2000 的 OFFLINE（另一個節點的時鐘較快）</li>
+     *   <li>透過方法：accept(message) 和 flush()</li>
+     *   <li>預期結果：只轉發 ONLINE，不以時間戳判斷先後</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testStaleStatusIsDropped() {
+        relay.accept(new AgentStatusMessage("a", "專員A", "ONLINE", 1000L, 2L));
+        relay.accept(new AgentStatusMessage("a", "專員A", "OFFLINE", 2000L, 1L));
+
+        relay.flush();
+
+        ArgumentCaptor<AgentStatusMessage> captor = ArgumentCaptor.forClass(AgentStatusMessage.class);
+        verify(messagingTemplate, times(1)).convertAndSend(eq(AgentStatusRelay.CHANNEL), captor.capture());
+        assertEquals("ONLINE", captor.getValue().getStatus());
+    }
+
+    /**
+     * 測試同一位專員的多次更新只轉發最後一筆
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：專員A依序 ONLINE、OFFLINE、ONLINE，專員B OFFLINE</li>
+     *   <li>透過方法：accept(message) 和連續兩次 flush()</li>
+     *   <li>預期結果：第一次 flush() 轉發 2 筆（專員A為 version=3 的 ONLINE），第二次不再轉發</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testBurstIsConflated() {
+        relay.accept(new AgentStatusMessage("a", "專員A", "ONLINE", 1000L, 1L));
+        relay.accept(new AgentStatusMessage("a", "專員A", "OFFLINE", 2000L, 2L));
+        relay.accept(new AgentStatusMessage("a", "專員A", "ONLINE", 3000L, 3L));
+        relay.accept(new AgentStatusMessage("b", "專員B", "OFFLINE", 2500L, 1L));
+
+        relay.flush();
+        relay.flush();
+
+        ArgumentCaptor<AgentStatusMessage> captor = ArgumentCaptor.forClass(AgentStatusMessage.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq(AgentStatusRelay.CHANNEL), captor.capture());
+        AgentStatusMessage agentA = captor.getAllValues().stream()
+                .filter(message -> "a".equals(message.getAgentType())).findFirst().orElseThrow();
+        assertEquals("ONLINE", agentA.getStatus());
+        assertEquals(3L, agentA.getVersion());
+    }
+
+    /**
+     * 測試訂閱時發送每位專員目前的狀態
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：已收到專員A的 ONLINE，Redis 中專員B為 OFFLINE；sessionId="s1" 訂閱 /topic/agentStatus</li>
+     *   <li>透過方法：handleSubscribe(event)</li>
+     *   <li>預期結果：經由出站通道發送 2 則訊息，標頭帶有該訂閱的 sessionId 和 subscriptionId，不廣播</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    @SuppressWarnings("unchecked")
+    void testSnapshotOnSubscribe() {
+        relay.accept(new AgentStatusMessage("a", "專員A", "ONLINE", 1000L, 1L));
+        when(agentStatusService.getAgentStatus("b")).thenReturn("OFFLINE");
+        when(clientOutboundChannel.send(any(Message.class))).thenReturn(true);
+
+        relay.handleSubscribe(subscribeEvent("s1", "sub-0", AgentStatusRelay.CHANNEL));
+        relay.handleSubscribe(subscribeEvent("s1", "sub-1", "/topic/chat"));
+
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel, times(2)).send(captor.capture());
+        List<Message<?>> sent = captor.getAllValues();
+        for (Message<?> message : sent) {
+            assertEquals("s1", SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+            assertEquals("sub-0", SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+            assertEquals(AgentStatusRelay.CHANNEL, SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+        }
+        verify(agentStatusService, never()).getAgentStatus("a");
+        verify(messagingTemplate, never()).convertAndSend(anyString(), any(Object.class));
+    }
+
+    /**
+     * 測試 local 模式下每次訂閱都讀取 Redis 中最新的狀態
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：agent.status.broadcast.mode=local，Redis 中專員A第一次讀取為 OFFLINE、之後為 ONLINE，專員B不存在</li>
+     *   <li>透過方法：兩次 handleSubscribe(event)</li>
+     *   <li>預期結果：每次訂閱都讀取 Redis，第二次訂閱的快照為 ONLINE</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    @SuppressWarnings("unchecked")
+    void testLocalModeSnapshotReadsRedis() {
+        ReflectionTestUtils.setField(relay, "broadcastMode", AgentStatusService.BROADCAST_MODE_LOCAL);
+        when(agentStatusService.getAgentStatus("a")).thenReturn("OFFLINE", "ONLINE");
+        when(clientOutboundChannel.send(any(Message.class))).thenReturn(true);
+
+        relay.handleSubscribe(subscribeEvent("s1", "sub-0", AgentStatusRelay.CHANNEL));
+        relay.handleSubscribe(subscribeEvent("s2", "sub-0", AgentStatusRelay.CHANNEL));
+
+        verify(agentStatusService, times(2)).getAgentStatus("a");
+        ArgumentCaptor<Message<?>> captor = ArgumentCaptor.forClass(Message.class);
+        verify(clientOutboundChannel, times(2)).send(captor.capture());
+        Message<?> second = captor.getAllValues().get(1);
+        assertEquals("s2", SimpMessageHeaderAccessor.getSessionId(second.getHeaders()));
+        assertTrue(new String((byte[]) second.getPayload(), StandardCharsets.UTF_8).contains("\"status\":\"ONLINE\""));
+    }
+
+    private SessionSubscribeEvent subscribeEvent(String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new SessionSubscribeEvent(this, message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.AgentStatusMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AgentStatusService 狀態轉換單元測試類別
+ * 
+ * <p>此測試類別驗證專員狀態只在真正改變時廣播，包括：
+ * <ul>
+ *   <li>重複的上線通知不廣播</li>
+ *   <li>合併短時間內的狀態更新，只處理最後的狀態</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testBroadcastOnlyOnTransition() - 驗證只有狀態改變時才廣播</li>
+ *   <li>testCoalescedUpdatesApplyLatestState() - 驗證重新連線的多次更新只寫入最後的狀態</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.AgentStatusService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class AgentStatusServicePresenceTests {
+
+    // 模擬 Redis 模板，用於執行狀態腳本
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    // 模擬 WebSocket 訊息模板，用於驗證廣播
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    // 模擬專員ID管理服務，用於確定專員類型
+    @Mock
+    private AgentService agentService;
+
+    // 要測試的專員狀態服務實例
+    private AgentStatusService agentStatusService;
+
+    @BeforeEach
+    void setUp() {
+        agentStatusService = new AgentStatusService();
+        ReflectionTestUtils.setField(agentStatusService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(agentStatusService, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(agentStatusService, "agentService", agentService);
+        agentStatusService.init();
+        when(agentService.getAgentAId()).thenReturn("agent-a-id");
+    }
+
+    /**
+     * 測試只有狀態改變時才廣播
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：專員A連續上線 3 次，Redis 中先前的狀態依序為 null、ONLINE、ONLINE</li>
+     *   <li>透過方法：setAgentOnline(userId)</li>
+     *   <li>預期結果：每次都寫入 Redis（延長過期時間），但只廣播 1 次 ONLINE，帶有腳本返回的版本號 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    @SuppressWarnings("unchecked")
+    void testBroadcastOnlyOnTransition() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(Arrays.asList(null, 1L), Arrays.asList("ONLINE", 1L), Arrays.asList("ONLINE", 1L));
+
+        agentStatusService.setAgentOnline("agent-a-id");
+        agentStatusService.setAgentOnline("agent-a-id");
+        agentStatusService.setAgentOnline("agent-a-id");
+
+        verify(redisTemplate, times(3)).execute(any(RedisScript.class),
+                eq(Arrays.asList("agent:a:status", "agent:a:status:version")), eq("ONLINE"), eq(30));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/agentStatus"),
+                argThat((AgentStatusMessage message) -> "ONLINE".equals(message.getStatus()) && message.getVersion() == 1L));
+    }
+
+    /**
+     * 測試重新連線的多次更新只寫入最後的狀態
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：agent.status.coalesce.enabled=true，專員A離線後立即上線並訂閱 3 個頻道（上線 4 次），先前狀態為 OFFLINE</li>
+     *   <li>透過方法：setAgentOffline(userId)、setAgentOnline(userId)、flushStatuses()</li>
+     *   <li>預期結果：更新時不存取 Redis；刷新時只寫入一次 ONLINE，並廣播 1 次</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    @SuppressWarnings("unchecked")
+    void testCoalescedUpdatesApplyLatestState() {
+        ReflectionTestUtils.setField(agentStatusService, "coalesceEnabled", true);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(Arrays.asList("OFFLINE", 4L));
+
+        agentStatusService.setAgentOffline("agent-a-id");
+        for (int i = 0; i < 4; i++) {
+            agentStatusService.setAgentOnline("agent-a-id");
+        }
+        verifyNoInteractions(redisTemplate, messagingTemplate);
+
+        agentStatusService.flushStatuses();
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class),
+                eq(Arrays.asList("agent:a:status", "agent:a:status:version")), eq("ONLINE"), eq(30));
+        verify(messagingTemplate, times(1)).convertAndSend(eq("/topic/agentStatus"), any(AgentStatusMessage.class));
+    }
+}
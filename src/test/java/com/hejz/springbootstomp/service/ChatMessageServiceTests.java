@@ -0,0 +1,216 @@
+package com.hejz.springbootstomp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hejz.springbootstomp.RedisRawMessageListener;
+import com.hejz.springbootstomp.dto.ChatMessagePage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChatMessageService 單元測試類別
+ * 
+ * <p>此測試類別驗證聊天訊息持久化服務的功能，包括：
+ * <ul>
+ *   <li>對話 key 的產生規則</li>
+ *   <li>私信以對話為單位只寫入一次</li>
+ *   <li>游標分頁的游標解析和 nextCursor 產生</li>
+ *   <li>write-behind 模式下公共訊息的廣播不經過寫入佇列</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testConversationKeyIsSymmetric() - 驗證雙方得到同一個對話 key，且含冒號的 ID 不會衝突</li>
+ *   <li>testSavePrivateMessageWritesOnce() - 驗證私信只執行一次腳本</li>
+ *   <li>testCursorPageReturnsNextCursor() - 驗證滿頁時返回下一頁游標</li>
+ *   <li>testInvalidCursorIsRejected() - 驗證格式不正確的游標</li>
+ *   <li>testWriteBehindPublishesSynchronously() - 驗證 write-behind 模式下同步發布、只排入保存</li>
+ *   <li>testNextCursorFromUnparseableEntry() - 驗證最後一筆無法解析時游標仍指向它</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.ChatMessageService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatMessageServiceTests {
+
+    // 模擬字串 Redis 模板，用於執行 Lua 腳本
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 要測試的聊天訊息持久化服務實例
+    private ChatMessageService chatMessageService;
+
+    @BeforeEach
+    void setUp() {
+        chatMessageService = new ChatMessageService();
+        ReflectionTestUtils.setField(chatMessageService, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(chatMessageService, "objectMapper", new ObjectMapper());
+    }
+
+    /**
+     * 測試對話 key 與參數順序無關
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：("userB", "userA") 和 ("userA", "userB")；含冒號的 ("a:b", "c") 和 ("a", "b:c")</li>
+     *   <li>透過方法：conversationKey(userId, peerId)</li>
+     *   <li>預期結果：前兩者都返回 chat:conversation:5:userA:userB，含冒號的兩組得到不同的 key</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testConversationKeyIsSymmetric() {
+        assertEquals("chat:conversation:5:userA:userB", ChatMessageService.conversationKey("userA", "userB"));
+        assertEquals("chat:conversation:5:userA:userB", ChatMessageService.conversationKey("userB", "userA"));
+        assertNotEquals(ChatMessageService.conversationKey("a:b", "c"), ChatMessageService.conversationKey("a", "b:c"));
+    }
+
+    /**
+     * 測試私信只寫入一次
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：senderId="userB", recipientId="userA"</li>
+     *   <li>透過方法：savePrivateMessage(senderId, senderName, recipientId, content)</li>
+     *   <li>預期結果：只執行一次腳本，KEYS 為對話 key 和雙方的對話索引 key</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    @SuppressWarnings("unchecked")
+    void testSavePrivateMessageWritesOnce() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(1L);
+
+        Long count = chatMessageService.savePrivateMessage("userB", "用戶B", "userA", "私信內容");
+
+        assertEquals(1L, count);
+        ArgumentCaptor<List<String>> keysCaptor = ArgumentCaptor.forClass(List.class);
+        verify(stringRedisTemplate, times(1)).execute(any(RedisScript.class), keysCaptor.capture(), any(Object[].class));
+        assertEquals(Arrays.asList(
+                "chat:conversation:5:userA:userB",
+                "chat:conversations:userB",
+                "chat:conversations:userA"
+        ), keysCaptor.getValue());
+    }
+
+    /**
+     * 測試游標分頁滿頁時返回下一頁游標
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：cursor="1700000002000_m3", limit=2，腳本返回 2 筆訊息和最後一筆的（分數, messageId）</li>
+     *   <li>透過方法：getPublicMessagesByCursor(cursor, limit)</li>
+     *   <li>預期結果：腳本參數為 "1700000002000"、"m3"、"2"，nextCursor 為最後一筆的 "1700000001000_m1"</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    @SuppressWarnings("unchecked")
+    void testCursorPageReturnsNextCursor() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(Arrays.asList(
+                Arrays.asList(
+                        "{\"senderId\":\"userA\",\"timestamp\":1700000002000,\"messageId\":\"m2\"}",
+                        "{\"senderId\":\"userB\",\"timestamp\":1700000001000,\"messageId\":\"m1\"}"
+                ),
+                Arrays.asList("1700000001000", "m1")
+        ));
+
+        ChatMessagePage page = chatMessageService.getPublicMessagesByCursor("1700000002000_m3", 2);
+
+        assertEquals(2, page.getMessages().size());
+        assertEquals("1700000001000_m1", page.getNextCursor());
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("chat:messages:public")),
+                eq("1700000002000"), eq("m3"), eq("2"));
+    }
+
+    /**
+     * 測試格式不正確的游標
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：cursor="abc_m1" 和 cursor="1700000000000"</li>
+     *   <li>透過方法：getPublicMessagesByCursor(cursor, limit)</li>
+     *   <li>預期結果：拋出 IllegalArgumentException，且不會查詢 Redis</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    void testInvalidCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> chatMessageService.getPublicMessagesByCursor("abc_m1", 20));
+        assertThrows(IllegalArgumentException.class, () -> chatMessageService.getPublicMessagesByCursor("1700000000000", 20));
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    /**
+     * 測試 write-behind 模式下公共訊息同步發布
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：已設置 ChatMessageWriteBehindBuffer，content="大家好"</li>
+     *   <li>透過方法：publishAndSavePublicMessage(senderId, senderName, content)</li>
+     *   <li>預期結果：立即 PUBLISH 到 /raw/topic/chat，寫入佇列只收到一筆保存腳本，返回 -1</li>
+     * </ul>
+     */
+    @Test
+    @Order(5)
+    void testWriteBehindPublishesSynchronously() {
+        ChatMessageWriteBehindBuffer writeBehindBuffer = mock(ChatMessageWriteBehindBuffer.class);
+        ReflectionTestUtils.setField(chatMessageService, "writeBehindBuffer", writeBehindBuffer);
+
+        Long count = chatMessageService.publishAndSavePublicMessage("userA", "用戶A", "大家好");
+
+        assertEquals(-1L, count);
+        verify(stringRedisTemplate).convertAndSend(eq(RedisRawMessageListener.RAW_CHAT_CHANNEL), contains("大家好"));
+        verify(writeBehindBuffer, times(1)).enqueue(any(), eq(List.of("chat:messages:public")), any(String[].class));
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+
+    /**
+     * 測試最後一筆訊息無法解析時的游標
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：cursor=null, limit=2，腳本返回 1 筆正常訊息、1 筆無法解析的訊息，最後一筆為（1700000001000, ""）</li>
+     *   <li>透過方法：getPublicMessagesByCursor(cursor, limit)，再以返回的 nextCursor 取下一頁</li>
+     *   <li>預期結果：本頁只有 1 筆訊息，nextCursor 為 "1700000001000_"，下一頁的腳本參數為 "1700000001000"、""、"2"</li>
+     * </ul>
+     */
+    @Test
+    @Order(6)
+    @SuppressWarnings("unchecked")
+    void testNextCursorFromUnparseableEntry() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(Arrays.asList(
+                Arrays.asList(
+                        "{\"senderId\":\"userA\",\"timestamp\":1700000002000,\"messageId\":\"m2\"}",
+                        "not-json"
+                ),
+                Arrays.asList("1700000001000", "")
+        ));
+
+        ChatMessagePage page = chatMessageService.getPublicMessagesByCursor(null, 2);
+
+        assertEquals(1, page.getMessages().size());
+        assertEquals("1700000001000_", page.getNextCursor());
+
+        chatMessageService.getPublicMessagesByCursor(page.getNextCursor(), 2);
+
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("chat:messages:public")),
+                eq("1700000001000"), eq(""), eq("2"));
+    }
+}
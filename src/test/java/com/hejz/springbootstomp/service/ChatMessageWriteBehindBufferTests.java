@@ -0,0 +1,181 @@
+package com.hejz.springbootstomp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChatMessageWriteBehindBuffer 單元測試類別
+ * 
+ * <p>此測試類別驗證 Write-Behind 寫入緩衝的功能，包括：
+ * <ul>
+ *   <li>佇列滿時的處理策略</li>
+ *   <li>關閉時刷新剩餘寫入</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testCallerRunsWhenQueueFull() - 驗證 CALLER_RUNS 策略同步寫入</li>
+ *   <li>testDropNewestWhenQueueFull() - 驗證 DROP_NEWEST 策略丟棄並計數</li>
+ *   <li>testDropOldestWhenQueueFull() - 驗證 DROP_OLDEST 策略保留新寫入</li>
+ *   <li>testStopFlushesRemainingWrites() - 驗證關閉時以 Pipeline 刷新剩餘寫入</li>
+ *   <li>testFailedBatchIsCounted() - 驗證批次寫入失敗時計入寫入失敗數</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.ChatMessageWriteBehindBuffer
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ChatMessageWriteBehindBufferTests {
+
+    // 模擬字串 Redis 模板，用於執行腳本和 Pipeline
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 要測試的 Write-Behind 寫入緩衝實例
+    @InjectMocks
+    private ChatMessageWriteBehindBuffer buffer;
+
+    // 測試用的 Lua 腳本
+    private final DefaultRedisScript<Long> script = new DefaultRedisScript<>("return 1", Long.class);
+
+    @BeforeEach
+    void setUp() {
+        // 容量為 1，方便觸發佇列滿的情況；不啟動背景執行緒，由測試控制刷新時機
+        ReflectionTestUtils.setField(buffer, "capacity", 1);
+        ReflectionTestUtils.setField(buffer, "batchSize", 10);
+        ReflectionTestUtils.setField(buffer, "flushInterval", 50L);
+        buffer.init();
+    }
+
+    /**
+     * 測試 CALLER_RUNS 策略：佇列滿時由呼叫執行緒同步寫入
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：容量 1 的佇列，連續放入 2 筆寫入</li>
+     *   <li>透過方法：enqueue(script, keys, args)</li>
+     *   <li>預期結果：第 2 筆直接透過 stringRedisTemplate.execute() 寫入，不丟棄</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testCallerRunsWhenQueueFull() {
+        ReflectionTestUtils.setField(buffer, "overflowPolicy", ChatMessageWriteBehindBuffer.OverflowPolicy.CALLER_RUNS);
+
+        buffer.enqueue(script, Collections.singletonList("k1"), "m1", "1", "1000");
+        buffer.enqueue(script, Collections.singletonList("k2"), "m2", "2", "1000");
+
+        assertEquals(1, buffer.getQueueSize());
+        assertEquals(0, buffer.getDroppedCount());
+        verify(stringRedisTemplate, times(1)).execute(eq(script), eq(Collections.singletonList("k2")), any(Object[].class));
+    }
+
+    /**
+     * 測試 DROP_NEWEST 策略：佇列滿時丟棄目前這筆寫入
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：容量 1 的佇列，連續放入 2 筆寫入</li>
+     *   <li>透過方法：enqueue(script, keys, args)</li>
+     *   <li>預期結果：佇列仍只有 1 筆，丟棄計數為 1，且不會同步寫入 Redis</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testDropNewestWhenQueueFull() {
+        ReflectionTestUtils.setField(buffer, "overflowPolicy", ChatMessageWriteBehindBuffer.OverflowPolicy.DROP_NEWEST);
+
+        buffer.enqueue(script, Collections.singletonList("k1"), "m1", "1", "1000");
+        buffer.enqueue(script, Collections.singletonList("k2"), "m2", "2", "1000");
+
+        assertEquals(1, buffer.getQueueSize());
+        assertEquals(1, buffer.getDroppedCount());
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    /**
+     * 測試 DROP_OLDEST 策略：佇列滿時丟棄最舊的寫入
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：容量 1 的佇列，連續放入 2 筆寫入</li>
+     *   <li>透過方法：enqueue(script, keys, args)</li>
+     *   <li>預期結果：佇列保留第 2 筆，丟棄計數為 1</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testDropOldestWhenQueueFull() {
+        ReflectionTestUtils.setField(buffer, "overflowPolicy", ChatMessageWriteBehindBuffer.OverflowPolicy.DROP_OLDEST);
+
+        buffer.enqueue(script, Collections.singletonList("k1"), "m1", "1", "1000");
+        buffer.enqueue(script, Collections.singletonList("k2"), "m2", "2", "1000");
+
+        assertEquals(1, buffer.getQueueSize());
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    /**
+     * 測試關閉時刷新剩餘寫入
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：佇列中有 1 筆尚未刷新的寫入</li>
+     *   <li>透過方法：stop()</li>
+     *   <li>預期結果：應該以 executePipelined() 寫入 Redis，佇列清空</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    void testStopFlushesRemainingWrites() {
+        ReflectionTestUtils.setField(buffer, "overflowPolicy", ChatMessageWriteBehindBuffer.OverflowPolicy.CALLER_RUNS);
+        buffer.enqueue(script, Collections.singletonList("k1"), "m1", "1", "1000");
+
+        buffer.stop();
+
+        assertEquals(0, buffer.getQueueSize());
+        verify(stringRedisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    /**
+     * 測試批次寫入失敗時計入寫入失敗數
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：佇列中有 1 筆寫入，executePipelined() 拋出非 NOSCRIPT 的異常</li>
+     *   <li>透過方法：stop()</li>
+     *   <li>預期結果：不重試，寫入失敗計數為 1，丟棄計數仍為 0</li>
+     * </ul>
+     */
+    @Test
+    @Order(5)
+    void testFailedBatchIsCounted() {
+        ReflectionTestUtils.setField(buffer, "overflowPolicy", ChatMessageWriteBehindBuffer.OverflowPolicy.CALLER_RUNS);
+        when(stringRedisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("連線中斷"));
+        buffer.enqueue(script, Collections.singletonList("k1"), "m1", "1", "1000");
+
+        buffer.stop();
+
+        assertEquals(1, buffer.getFailedCount());
+        assertEquals(0, buffer.getDroppedCount());
+        verify(stringRedisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+}
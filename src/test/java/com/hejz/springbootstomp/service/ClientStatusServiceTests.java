@@ -0,0 +1,214 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.ClientStatusCheckMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ClientStatusService 單元測試類別
+ * 
+ * <p>此測試類別驗證客戶端狀態服務的心跳合併寫入功能，包括：
+ * <ul>
+ *   <li>心跳先放入緩衝，刷新時以 Pipeline 批次寫入</li>
+ *   <li>逾時檢查和狀態查詢先查看緩衝</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testCoalescedHeartbeatsFlushOnce() - 驗證多次心跳只批次寫入一次</li>
+ *   <li>testTimeoutCheckUsesPendingHeartbeat() - 驗證緩衝中的心跳不需查詢 Redis</li>
+ *   <li>testBatchTimeoutCheckUsesSingleMultiGet() - 驗證批次逾時檢查只執行一次 MGET</li>
+ *   <li>testTimeoutCheckHonorsClientInterval() - 驗證逾時檢查依客戶端的心跳間隔判斷</li>
+ *   <li>testDisconnectAfterHeartbeatStaysOffline() - 驗證心跳後斷線不會被刷新寫回 ONLINE</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.ClientStatusService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ClientStatusServiceTests {
+
+    // 模擬 Redis 模板，用於寫入心跳和狀態
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    // 模擬字串 Redis 模板，用於心跳索引
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 要測試的客戶端狀態服務實例
+    private ClientStatusService clientStatusService;
+
+    @BeforeEach
+    void setUp() {
+        clientStatusService = new ClientStatusService();
+        ReflectionTestUtils.setField(clientStatusService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(clientStatusService, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(clientStatusService, "coalesceEnabled", true);
+        ReflectionTestUtils.setField(clientStatusService, "heartbeatInterval", 30000L);
+        ReflectionTestUtils.setField(clientStatusService, "checkDelay", 60000L);
+    }
+
+    /**
+     * 測試多次心跳只批次寫入一次
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：client1 連續發送 3 次心跳，client2 發送 1 次</li>
+     *   <li>透過方法：recordHeartbeat(clientId)、flushHeartbeats()</li>
+     *   <li>預期結果：心跳時不寫入 Redis；刷新時只執行一次 executePipelined()，之後緩衝清空</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testCoalescedHeartbeatsFlushOnce() {
+        clientStatusService.recordHeartbeat("client1");
+        clientStatusService.recordHeartbeat("client1");
+        clientStatusService.recordHeartbeat("client1");
+        clientStatusService.recordHeartbeat("client2");
+        verifyNoInteractions(redisTemplate);
+
+        clientStatusService.flushHeartbeats();
+        clientStatusService.flushHeartbeats();
+
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    /**
+     * 測試緩衝中的心跳不需查詢 Redis
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：client1 剛發送心跳，尚未刷新</li>
+     *   <li>透過方法：checkClientTimeout(clientId, expectedLastHeartbeatTime)、getClientStatus(clientId)</li>
+     *   <li>預期結果：未超時且狀態為 ONLINE，不讀取 Redis</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testTimeoutCheckUsesPendingHeartbeat() {
+        Long time = clientStatusService.recordHeartbeat("client1");
+
+        assertFalse(clientStatusService.checkClientTimeout("client1", time));
+        assertEquals("ONLINE", clientStatusService.getClientStatus("client1"));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    /**
+     * 測試批次逾時檢查只執行一次 MGET
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：client1（剛有心跳）、client2（心跳已超過 heartbeatInterval）、client3（無心跳記錄），client1 重複 2 則</li>
+     *   <li>透過方法：checkClientTimeouts(messages)</li>
+     *   <li>預期結果：只以 3 個 key 執行一次 multiGet()，返回 ["client2", "client3"]，並以一次 Pipeline 更新為 OFFLINE</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    @SuppressWarnings("unchecked")
+    void testBatchTimeoutCheckUsesSingleMultiGet() {
+        long now = System.currentTimeMillis();
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(now, now - 60000, null));
+
+        List<String> timedOut = clientStatusService.checkClientTimeouts(Arrays.asList(
+                new ClientStatusCheckMessage("client1", now, now, null),
+                new ClientStatusCheckMessage("client2", now - 60000, now, null),
+                new ClientStatusCheckMessage("client1", now, now, null),
+                new ClientStatusCheckMessage("client3", now - 60000, now, null)
+        ));
+
+        assertEquals(Arrays.asList("client2", "client3"), timedOut);
+        verify(valueOperations, times(1)).multiGet(
+                Arrays.asList("client:heartbeat:client1", "client:heartbeat:client2", "client:heartbeat:client3"));
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    /**
+     * 測試逾時檢查依客戶端的心跳間隔判斷
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：client1 最後心跳在 60 秒前，建議間隔為 90000 毫秒（預設 30000 毫秒）</li>
+     *   <li>透過方法：checkClientTimeout(clientId, expectedLastHeartbeatTime, interval)、getCheckDelay(interval)</li>
+     *   <li>預期結果：以 90000 毫秒判斷時仍在線，以預設間隔判斷時超時；檢查延遲依比例延長為 180000 毫秒</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    @SuppressWarnings("unchecked")
+    void testTimeoutCheckHonorsClientInterval() {
+        long last = System.currentTimeMillis() - 60000;
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("client:heartbeat:client1")).thenReturn(last);
+
+        assertFalse(clientStatusService.checkClientTimeout("client1", last, 90000L));
+        assertTrue(clientStatusService.checkClientTimeout("client1", last, null));
+        assertEquals(60000L, clientStatusService.getCheckDelay(30000L));
+        assertEquals(180000L, clientStatusService.getCheckDelay(90000L));
+    }
+
+    /**
+     * 測試心跳後斷線不會被刷新寫回 ONLINE
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：sweeper 模式，client1 發送心跳（尚未刷新）後斷線</li>
+     *   <li>透過方法：recordHeartbeat(clientId)、markOffline(clientIds)、flushHeartbeats()、getClientStatus(clientId)</li>
+     *   <li>預期結果：markOffline() 丟棄緩衝中的心跳，並在同一個 Pipeline 中寫入 OFFLINE 和 ZREM 心跳索引；
+     *       之後的刷新不再寫入，狀態為 OFFLINE</li>
+     * </ul>
+     */
+    @Test
+    @Order(5)
+    @SuppressWarnings("unchecked")
+    void testDisconnectAfterHeartbeatStaysOffline() {
+        ReflectionTestUtils.setField(clientStatusService, "timeoutMode", ClientStatusService.TIMEOUT_MODE_SWEEPER);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.score(ClientStatusService.HEARTBEAT_INDEX_KEY, "client1")).thenReturn(null);
+        when(valueOperations.get("client:status:client1")).thenReturn("OFFLINE");
+        clientStatusService.recordHeartbeat("client1");
+
+        clientStatusService.markOffline(List.of("client1"));
+        clientStatusService.flushHeartbeats();
+
+        ArgumentCaptor<SessionCallback<Object>> captor = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate, times(1)).executePipelined(captor.capture());
+        verify(zSetOperations, never()).add(anyString(), anySet());
+        assertEquals("OFFLINE", clientStatusService.getClientStatus("client1"));
+
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        ValueOperations<String, Object> pipelinedValues = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelinedValues);
+        captor.getValue().execute(operations);
+        verify(pipelinedValues).set(eq("client:status:client1"), eq("OFFLINE"), anyLong(), any());
+        verify(operations, times(1)).execute(any(RedisCallback.class));
+    }
+}
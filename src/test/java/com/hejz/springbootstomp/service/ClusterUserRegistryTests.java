@@ -0,0 +1,95 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ClusterUserRegistry 單元測試類別
+ * 
+ * <p>此測試類別驗證叢集用戶註冊表的 TTL 刷新，包括：
+ * <ul>
+ *   <li>只以條件式腳本延長仍指向本節點的記錄，不直接覆寫</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testRefreshOnlyExtendsOwnRecords() - 驗證刷新使用條件式腳本而不是無條件 SET</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.ClusterUserRegistry
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class ClusterUserRegistryTests {
+
+    // 模擬 Redis 模板，用於執行刷新腳本
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    // 模擬節點識別，提供目前節點 ID
+    @Mock
+    private ClusterNodeIdentity clusterNodeIdentity;
+
+    // 要測試的叢集用戶註冊表實例
+    private ClusterUserRegistry clusterUserRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clusterUserRegistry = new ClusterUserRegistry();
+        ReflectionTestUtils.setField(clusterUserRegistry, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(clusterUserRegistry, "clusterNodeIdentity", clusterNodeIdentity);
+        clusterUserRegistry.init();
+    }
+
+    /**
+     * 測試刷新使用條件式腳本而不是無條件 SET
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：本節點為 node-1，有 user1（2 個會話）和 user2 兩個在線用戶，ttl=90000</li>
+     *   <li>透過方法：registerSession(sessionId, userId)、refreshLocalUsers()</li>
+     *   <li>預期結果：以一次 refresh_user_node.lua 處理兩個用戶的 key，
+     *       參數為與記錄相同序列化格式的節點 ID（"\"node-1\""）和 "90000"；不執行 executePipelined()</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    @SuppressWarnings("unchecked")
+    void testRefreshOnlyExtendsOwnRecords() {
+        when(clusterNodeIdentity.getNodeId()).thenReturn("node-1");
+        when(redisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+        doReturn(new GenericJackson2JsonRedisSerializer()).when(redisTemplate).getValueSerializer();
+        clusterUserRegistry.registerSession("s1", "user1");
+        clusterUserRegistry.registerSession("s2", "user1");
+        clusterUserRegistry.registerSession("s3", "user2");
+
+        clusterUserRegistry.refreshLocalUsers();
+
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), any(RedisSerializer.class),
+                any(RedisSerializer.class), keys.capture(), eq("\"node-1\""), eq("90000"));
+        assertEquals(2, keys.getValue().size());
+        assertTrue(keys.getValue().containsAll(List.of("cluster:user:node:user1", "cluster:user:node:user2")));
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+}
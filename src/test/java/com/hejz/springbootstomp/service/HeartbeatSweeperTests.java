@@ -0,0 +1,116 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.config.ClusterNodeIdentity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * HeartbeatSweeper 單元測試類別
+ * 
+ * <p>此測試類別驗證心跳索引清掃器的功能，包括：
+ * <ul>
+ *   <li>領導者節點批次清掃過期客戶端</li>
+ *   <li>非領導者節點不清掃</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testLeaderSweepsInBatches() - 驗證滿批時繼續清掃，不滿批時停止</li>
+ *   <li>testNonLeaderSkipsSweep() - 驗證無法取得或續約領導權時不清掃</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.HeartbeatSweeper
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class HeartbeatSweeperTests {
+
+    // 模擬客戶端狀態服務，提供批次移除和批次更新狀態
+    @Mock
+    private ClientStatusService clientStatusService;
+
+    // 模擬字串 Redis 模板，用於領導者選舉
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 模擬字串值操作
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    // 要測試的心跳清掃器實例
+    private HeartbeatSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        sweeper = new HeartbeatSweeper();
+        ReflectionTestUtils.setField(sweeper, "clientStatusService", clientStatusService);
+        ReflectionTestUtils.setField(sweeper, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(sweeper, "clusterNodeIdentity", new ClusterNodeIdentity("node-1"));
+        ReflectionTestUtils.setField(sweeper, "batchSize", 2);
+        sweeper.init();
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    /**
+     * 測試領導者批次清掃過期客戶端
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：batchSize=2，第一批返回 2 個客戶端（滿批），第二批返回 1 個</li>
+     *   <li>透過方法：sweep()</li>
+     *   <li>預期結果：清掃兩批，每批都以 markExpired() 一次更新狀態</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testLeaderSweepsInBatches() {
+        when(valueOperations.setIfAbsent(eq("client:heartbeats:sweeper:leader"), eq("node-1"), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .thenReturn(true);
+        when(clientStatusService.removeExpiredHeartbeats(anyLong(), eq(2)))
+                .thenReturn(List.of("c1", "c2"))
+                .thenReturn(List.of("c3"));
+
+        sweeper.sweep();
+
+        verify(clientStatusService, times(2)).removeExpiredHeartbeats(anyLong(), eq(2));
+        verify(clientStatusService).markExpired(List.of("c1", "c2"));
+        verify(clientStatusService).markExpired(List.of("c3"));
+    }
+
+    /**
+     * 測試非領導者節點不清掃
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：SET NX 失敗，續約腳本返回 0（領導權屬於其他節點）</li>
+     *   <li>透過方法：sweep()</li>
+     *   <li>預期結果：不呼叫 removeExpiredHeartbeats()</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    @SuppressWarnings("unchecked")
+    void testNonLeaderSkipsSweep() {
+        when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(false);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(0L);
+
+        sweeper.sweep();
+
+        verify(clientStatusService, never()).removeExpiredHeartbeats(anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,173 @@
+package com.hejz.springbootstomp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * HeartbeatTimingWheel 單元測試類別
+ * 
+ * <p>此測試類別驗證心跳逾時時間輪的功能，包括：
+ * <ul>
+ *   <li>到期後才檢查客戶端逾時</li>
+ *   <li>心跳重新排程後延後到期</li>
+ *   <li>到期時間超過一圈的客戶端</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testExpiresAfterCheckDelay() - 驗證到期前不檢查、到期後檢查一次</li>
+ *   <li>testHeartbeatReschedules() - 驗證新心跳延後到期時間</li>
+ *   <li>testDeadlineBeyondOneRotation() - 驗證超過一圈的到期時間不會提早觸發</li>
+ *   <li>testConcurrentScheduleAndExpiry() - 驗證心跳和到期同時進行時每個客戶端只有一個節點</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.HeartbeatTimingWheel
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class HeartbeatTimingWheelTests {
+
+    // 模擬客戶端狀態服務，到期時呼叫 checkClientTimeout()
+    @Mock
+    private ClientStatusService clientStatusService;
+
+    // 要測試的時間輪實例（不啟動背景執行緒，由測試推進時間）
+    private HeartbeatTimingWheel wheel;
+
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HeartbeatTimingWheel();
+        ReflectionTestUtils.setField(wheel, "clientStatusService", clientStatusService);
+        ReflectionTestUtils.setField(wheel, "checkDelay", 5000L);
+        ReflectionTestUtils.setField(wheel, "tickDuration", 1000L);
+        ReflectionTestUtils.setField(wheel, "wheelSize", 4);
+        wheel.init();
+        start = (long) ReflectionTestUtils.getField(wheel, "startTime");
+    }
+
+    /**
+     * 測試到期前不檢查、到期後檢查一次
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：checkDelay=5000ms，客戶端在起始時間發送心跳</li>
+     *   <li>透過方法：schedule(clientId, time)、advanceTo(now)</li>
+     *   <li>預期結果：4 秒時未檢查；5 秒時呼叫一次 checkClientTimeout()，並停止追蹤</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testExpiresAfterCheckDelay() {
+        when(clientStatusService.checkClientTimeout("client1", start)).thenReturn(true);
+        wheel.schedule("client1", start);
+
+        wheel.advanceTo(start + 4000);
+        verify(clientStatusService, never()).checkClientTimeout(anyString(), anyLong());
+
+        wheel.advanceTo(start + 5000);
+        verify(clientStatusService, times(1)).checkClientTimeout("client1", start);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * 測試新心跳延後到期時間
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：起始時間和 3 秒時各有一次心跳</li>
+     *   <li>透過方法：schedule(clientId, time)、advanceTo(now)</li>
+     *   <li>預期結果：5 秒時不檢查；8 秒時以第二次心跳時間檢查</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testHeartbeatReschedules() {
+        wheel.schedule("client1", start);
+        wheel.advanceTo(start + 3000);
+        wheel.schedule("client1", start + 3000);
+
+        wheel.advanceTo(start + 5000);
+        verify(clientStatusService, never()).checkClientTimeout(anyString(), anyLong());
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(start + 8000);
+        verify(clientStatusService, times(1)).checkClientTimeout("client1", start + 3000);
+    }
+
+    /**
+     * 測試超過一圈的到期時間不會提早觸發
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：4 格的時間輪、checkDelay=5000ms（超過一圈 4 秒）</li>
+     *   <li>透過方法：schedule(clientId, time)、advanceTo(now)</li>
+     *   <li>預期結果：經過同一格的第 1 秒不觸發，第 5 秒才觸發</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testDeadlineBeyondOneRotation() {
+        wheel.schedule("client1", start);
+        wheel.schedule("client2", start + 1000);
+
+        wheel.advanceTo(start + 1000);
+        verify(clientStatusService, never()).checkClientTimeout(anyString(), anyLong());
+
+        wheel.advanceTo(start + 6000);
+        verify(clientStatusService).checkClientTimeout("client1", start);
+        verify(clientStatusService).checkClientTimeout("client2", start + 1000);
+    }
+
+    /**
+     * 測試心跳和到期同時進行時每個客戶端只有一個節點
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：一個執行緒不斷以起始時間為 client1 排程（每個 tick 都會到期），另一個執行緒推進 20000 個 tick</li>
+     *   <li>透過方法：schedule(clientId, time)、advanceTo(now)</li>
+     *   <li>預期結果：結束後輪上 client1 的節點數與追蹤中的數量相同（最多 1 個），不會有脫離追蹤的節點</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    void testConcurrentScheduleAndExpiry() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        Thread heartbeats = new Thread(() -> {
+            while (!done.get()) {
+                wheel.schedule("client1", start);
+            }
+        });
+        heartbeats.start();
+        try {
+            for (int tick = 1; tick <= 20000; tick++) {
+                wheel.advanceTo(start + tick * 1000L);
+            }
+        } finally {
+            done.set(true);
+            heartbeats.join();
+        }
+
+        int linked = 0;
+        for (Object head : (Object[]) ReflectionTestUtils.getField(wheel, "buckets")) {
+            for (Object entry = head; entry != null; entry = ReflectionTestUtils.getField(entry, "next")) {
+                linked++;
+            }
+        }
+        assertEquals(wheel.size(), linked);
+        assertTrue(linked <= 1);
+    }
+}
@@ -0,0 +1,117 @@
+package com.hejz.springbootstomp.service;
+
+import com.hejz.springbootstomp.dto.PresenceSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PresenceService 單元測試類別
+ * 
+ * <p>此測試類別驗證批次在線狀態查詢服務的功能，包括：
+ * <ul>
+ *   <li>專員和客戶端的狀態以一次 MGET 讀取</li>
+ *   <li>可直接判定為在線的客戶端不讀取狀態 key</li>
+ *   <li>客戶端數量上限</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testSnapshotUsesSingleMultiGet() - 驗證只執行一次 MGET 並正確對應結果</li>
+ *   <li>testTooManyClientsIsRejected() - 驗證超過上限時拋出例外且不查詢 Redis</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.PresenceService
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTests {
+
+    // 模擬 Redis 模板，用於驗證 MGET
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    // 模擬 Redis 字串操作
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+
+    // 模擬客戶端狀態服務，用於判定緩衝中的在線客戶端
+    @Mock
+    private ClientStatusService clientStatusService;
+
+    // 要測試的批次在線狀態查詢服務實例
+    private PresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        presenceService = new PresenceService();
+        ReflectionTestUtils.setField(presenceService, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(presenceService, "clientStatusService", clientStatusService);
+    }
+
+    /**
+     * 測試專員和客戶端的狀態以一次 MGET 讀取
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：agentTypes=["B", "x"]，clientIds=["c1", "c2", "c3", "c1"]，c2 在緩衝中有心跳</li>
+     *   <li>透過方法：getSnapshot(agentTypes, clientIds)</li>
+     *   <li>預期結果：只執行一次 MGET（專員B的 ID、狀態，以及 c1、c3 的狀態），
+     *       c2 為 ONLINE，沒有記錄的 c3 為 OFFLINE，不正確的專員類型被忽略</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testSnapshotUsesSingleMultiGet() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(clientStatusService.findOnlineClients(anyCollection())).thenReturn(Set.of("c2"));
+        List<String> expectedKeys = Arrays.asList("agent:b:id", "agent:b:status", "client:status:c1", "client:status:c3");
+        when(valueOperations.multiGet(expectedKeys)).thenReturn(Arrays.asList("agent-b-id", "ONLINE", "OFFLINE", null));
+
+        PresenceSnapshot snapshot = presenceService.getSnapshot(Arrays.asList("B", "x"), Arrays.asList("c1", "c2", "c3", "c1"));
+
+        verify(valueOperations, times(1)).multiGet(anyCollection());
+        assertEquals(Set.of("b"), snapshot.getAgents().keySet());
+        assertEquals("agent-b-id", snapshot.getAgents().get("b").getAgentId());
+        assertEquals("ONLINE", snapshot.getAgents().get("b").getStatus());
+        assertEquals(Arrays.asList("c1", "c2", "c3"), List.copyOf(snapshot.getClients().keySet()));
+        assertEquals("OFFLINE", snapshot.getClients().get("c1"));
+        assertEquals("ONLINE", snapshot.getClients().get("c2"));
+        assertEquals("OFFLINE", snapshot.getClients().get("c3"));
+    }
+
+    /**
+     * 測試客戶端數量超過上限
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：max-clients=2，clientIds=["c1", "c2", "c3"]</li>
+     *   <li>透過方法：getSnapshot(agentTypes, clientIds)</li>
+     *   <li>預期結果：拋出 IllegalArgumentException，且不會查詢 Redis</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testTooManyClientsIsRejected() {
+        ReflectionTestUtils.setField(presenceService, "maxClients", 2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> presenceService.getSnapshot(null, Arrays.asList("c1", "c2", "c3")));
+        verifyNoInteractions(redisTemplate, clientStatusService);
+    }
+}
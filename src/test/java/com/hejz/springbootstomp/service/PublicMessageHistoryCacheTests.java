@@ -0,0 +1,225 @@
+package com.hejz.springbootstomp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hejz.springbootstomp.dto.ChatMessage;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PublicMessageHistoryCache 單元測試類別
+ * 
+ * <p>此測試類別驗證公共訊息記憶體歷史緩衝的功能，包括：
+ * <ul>
+ *   <li>從 Redis 預熱並合併預熱期間收到的訊息</li>
+ *   <li>緩衝涵蓋範圍內由記憶體返回，超出範圍返回 null</li>
+ *   <li>堆外存儲模式</li>
+ *   <li>重新訂閱後重新預熱</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testWarmUpMergesPendingMessages() - 驗證預熱後去重補入暫存訊息</li>
+ *   <li>testEvictsOldestWhenFull() - 驗證緩衝滿時淘汰最舊訊息並回退到 Redis</li>
+ *   <li>testDirectStorage() - 驗證堆外存儲讀寫與超長訊息處理</li>
+ *   <li>testSameTimestampOrderedByMessageId() - 驗證同一時間戳的訊息依 messageId 排序</li>
+ *   <li>testRewarmAfterResubscribe() - 驗證重新訂閱後從 Redis 重新預熱</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.PublicMessageHistoryCache
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class PublicMessageHistoryCacheTests {
+
+    // 模擬字串 Redis 模板，用於預熱
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    // 模擬 Sorted Set 操作
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private PublicMessageHistoryCache createCache(int capacity, String storage) {
+        PublicMessageHistoryCache cache = new PublicMessageHistoryCache();
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(cache, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(cache, "capacity", capacity);
+        ReflectionTestUtils.setField(cache, "storage", storage);
+        ReflectionTestUtils.setField(cache, "slotSize", 256);
+        cache.init();
+        return cache;
+    }
+
+    private String json(String messageId, long timestamp, String content) throws Exception {
+        return objectMapper.writeValueAsString(
+                new ChatMessage("user1", "用戶1", content, timestamp, "public", null, messageId));
+    }
+
+    private void givenRedisHistory(String... jsons) {
+        Set<String> newestFirst = new LinkedHashSet<>(List.of(jsons));
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.reverseRange(eq("chat:messages:public"), eq(0L), anyLong())).thenReturn(newestFirst);
+    }
+
+    /**
+     * 測試預熱後去重補入暫存訊息
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：Redis 有 m2、m1；預熱前收到 m2（重複）和 m3</li>
+     *   <li>透過方法：append(json)、warmUp()、getMessages(limit, offset)</li>
+     *   <li>預期結果：緩衝為 m3、m2、m1（最新的在前），Redis 訊息少於容量時任何範圍都由緩衝返回</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testWarmUpMergesPendingMessages() throws Exception {
+        PublicMessageHistoryCache cache = createCache(10, PublicMessageHistoryCache.STORAGE_HEAP);
+        givenRedisHistory(json("m2", 2000L, "二"), json("m1", 1000L, "一"));
+
+        cache.append(json("m2", 2000L, "二"));
+        cache.append(json("m3", 3000L, "三"));
+        assertNull(cache.getMessages(10, 0));
+
+        cache.warmUp();
+
+        assertEquals(3, cache.size());
+        List<ChatMessage> page = cache.getMessages(2, 0);
+        assertEquals(List.of("m3", "m2"), page.stream().map(ChatMessage::getMessageId).toList());
+        assertEquals(1, cache.getMessages(50, 2).size());
+    }
+
+    /**
+     * 測試緩衝滿時淘汰最舊訊息並回退到 Redis
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：容量 2，Redis 為空，依序加入 m1、m3、m2（m2 晚到但時間戳較舊）</li>
+     *   <li>透過方法：append(json)、getMessages(limit, offset)</li>
+     *   <li>預期結果：保留 m3、m2（依時間戳排序），超出緩衝的範圍返回 null</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testEvictsOldestWhenFull() throws Exception {
+        PublicMessageHistoryCache cache = createCache(2, PublicMessageHistoryCache.STORAGE_HEAP);
+        givenRedisHistory();
+        cache.warmUp();
+
+        cache.append(json("m1", 1000L, "一"));
+        cache.append(json("m3", 3000L, "三"));
+        cache.append(json("m2", 2000L, "二"));
+
+        List<ChatMessage> page = cache.getMessages(2, 0);
+        assertEquals(List.of("m3", "m2"), page.stream().map(ChatMessage::getMessageId).toList());
+        assertNull(cache.getMessages(2, 1));
+    }
+
+    /**
+     * 測試堆外存儲讀寫與超長訊息處理
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：storage=direct、slot-size=256，加入 2 則訊息後再加入一則超過 slot-size 的訊息</li>
+     *   <li>透過方法：append(json)、getMessages(limit, offset)</li>
+     *   <li>預期結果：先能讀出原始內容；超長訊息使緩衝清空，之後的查詢返回 null</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testDirectStorage() throws Exception {
+        PublicMessageHistoryCache cache = createCache(4, PublicMessageHistoryCache.STORAGE_DIRECT);
+        givenRedisHistory(json("m1", 1000L, "一"));
+        cache.warmUp();
+        cache.append(json("m2", 2000L, "二"));
+
+        List<ChatMessage> page = cache.getMessages(2, 0);
+        assertEquals("二", page.get(0).getContent());
+        assertEquals("一", page.get(1).getContent());
+
+        cache.append(json("m3", 3000L, "長".repeat(200)));
+
+        assertEquals(0, cache.size());
+        assertNull(cache.getMessages(1, 0));
+    }
+
+    /**
+     * 測試同一時間戳的訊息依 messageId 排序
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：容量 3，依序加入 b、c、a（同一時間戳 1000），再加入 d（時間戳 1000，緩衝已滿）</li>
+     *   <li>透過方法：append(json)、getMessages(limit, offset)</li>
+     *   <li>預期結果：與 get_messages_by_cursor.lua 相同，最新的在前時 messageId 由大到小：d、c、b（a 被淘汰）</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    void testSameTimestampOrderedByMessageId() throws Exception {
+        PublicMessageHistoryCache cache = createCache(3, PublicMessageHistoryCache.STORAGE_HEAP);
+        givenRedisHistory();
+        cache.warmUp();
+
+        cache.append(json("b", 1000L, "B"));
+        cache.append(json("c", 1000L, "C"));
+        cache.append(json("a", 1000L, "A"));
+        assertEquals(List.of("c", "b", "a"),
+                cache.getMessages(3, 0).stream().map(ChatMessage::getMessageId).toList());
+
+        cache.append(json("d", 1000L, "D"));
+
+        assertEquals(List.of("d", "c", "b"),
+                cache.getMessages(3, 0).stream().map(ChatMessage::getMessageId).toList());
+    }
+
+    /**
+     * 測試重新訂閱後從 Redis 重新預熱
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：預熱時 Redis 有 m1；訂閱中斷期間 Redis 新增 m2（本節點未收到），重新訂閱後收到 m3</li>
+     *   <li>透過方法：requestRewarm()、append(json)、rewarmIfRequested()、getMessages(limit, offset)</li>
+     *   <li>預期結果：要求重新預熱後查詢返回 null（回退到 Redis）；重新預熱後緩衝為 m3、m2、m1，
+     *       之後的 rewarmIfRequested() 不再讀取 Redis</li>
+     * </ul>
+     */
+    @Test
+    @Order(5)
+    void testRewarmAfterResubscribe() throws Exception {
+        PublicMessageHistoryCache cache = createCache(10, PublicMessageHistoryCache.STORAGE_HEAP);
+        givenRedisHistory(json("m1", 1000L, "一"));
+        cache.warmUp();
+        cache.rewarmIfRequested();
+        assertEquals(1, cache.size());
+
+        when(zSetOperations.reverseRange(eq("chat:messages:public"), eq(0L), anyLong()))
+                .thenReturn(new LinkedHashSet<>(List.of(json("m2", 2000L, "二"), json("m1", 1000L, "一"))));
+        cache.requestRewarm();
+        cache.append(json("m3", 3000L, "三"));
+        assertNull(cache.getMessages(1, 0));
+
+        cache.rewarmIfRequested();
+        cache.rewarmIfRequested();
+
+        assertEquals(List.of("m3", "m2", "m1"),
+                cache.getMessages(3, 0).stream().map(ChatMessage::getMessageId).toList());
+        verify(zSetOperations, times(2)).reverseRange(eq("chat:messages:public"), eq(0L), anyLong());
+    }
+}
@@ -0,0 +1,199 @@
+package com.hejz.springbootstomp.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SessionActivityTracker 單元測試類別
+ * 
+ * <p>此測試類別驗證會話活動追蹤器的功能，包括：
+ * <ul>
+ *   <li>任何入站訊框（包括心跳）都會更新會話活動時間</li>
+ *   <li>定期回報在線用戶、移除逾時會話</li>
+ *   <li>逾時時間依 CONNECT 協商的心跳間隔計算，不發送心跳的會話不做逾時判斷</li>
+ * </ul>
+ * 
+ * <p>測試執行順序：
+ * <ol>
+ *   <li>testHeartbeatFrameKeepsUserOnline() - 驗證心跳訊框讓用戶保持在線</li>
+ *   <li>testIdleSessionMarkedOffline() - 驗證逾時會話的用戶被更新為離線</li>
+ *   <li>testDisconnectKeepsUserWithOtherSession() - 驗證用戶仍有其他會話時斷開不更新為離線</li>
+ *   <li>testTimeoutFollowsNegotiatedHeartbeat() - 驗證逾時時間依協商的心跳間隔計算</li>
+ * </ol>
+ * 
+ * @see com.hejz.springbootstomp.service.SessionActivityTracker
+ * @author Spring Boot STOMP WebSocket Team
+ * @version 1.0
+ */
+@ExtendWith(MockitoExtension.class)
+class SessionActivityTrackerTests {
+
+    // 模擬客戶端狀態服務，用於回報在線和離線
+    @Mock
+    private ClientStatusService clientStatusService;
+
+    // 要測試的會話活動追蹤器實例
+    private SessionActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SessionActivityTracker();
+        ReflectionTestUtils.setField(tracker, "clientStatusService", clientStatusService);
+    }
+
+    private Message<byte[]> frame(SimpMessageType type, String sessionId, String userId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setUser(() -> userId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> connect(String sessionId, String userId, long clientSendInterval) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        accessor.setUser(() -> userId);
+        accessor.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[]{clientSendInterval, 10000});
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    /**
+     * 將會話的最後活動時間設為指定時間，模擬會話已閒置
+     */
+    @SuppressWarnings("unchecked")
+    private void idleSince(String sessionId, long lastActivity) {
+        Map<String, SessionActivityTracker.SessionActivity> sessions =
+                (Map<String, SessionActivityTracker.SessionActivity>) ReflectionTestUtils.getField(tracker, "sessions");
+        sessions.get(sessionId).lastActivity = lastActivity;
+    }
+
+    private SessionDisconnectEvent disconnect(String sessionId) {
+        return new SessionDisconnectEvent(this, frame(SimpMessageType.DISCONNECT, sessionId, "user1"),
+                sessionId, CloseStatus.NORMAL);
+    }
+
+    /**
+     * 測試心跳訊框讓用戶保持在線
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：session1（user1）送出一個 HEARTBEAT 訊框</li>
+     *   <li>透過方法：preSend(message, channel)、evaluate()</li>
+     *   <li>預期結果：追蹤 1 個會話，evaluate() 以 recordHeartbeat("user1") 回報在線</li>
+     * </ul>
+     */
+    @Test
+    @Order(1)
+    void testHeartbeatFrameKeepsUserOnline() {
+        tracker.preSend(frame(SimpMessageType.HEARTBEAT, "session1", "user1"), null);
+
+        tracker.evaluate();
+
+        assertEquals(1, tracker.getSessionCount());
+        assertTrue(tracker.hasActiveSession("user1"));
+        verify(clientStatusService).recordHeartbeat("user1");
+        verify(clientStatusService, never()).markOffline(anyList());
+    }
+
+    /**
+     * 測試逾時會話的用戶被更新為離線
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：session1（user1）以 heart-beat:10000,10000 連接後送出一個 MESSAGE 訊框，最後活動時間設為 0</li>
+     *   <li>透過方法：preSend(message, channel)、evaluate()</li>
+     *   <li>預期結果：移除會話，並以 markOffline(["user1"]) 更新為離線</li>
+     * </ul>
+     */
+    @Test
+    @Order(2)
+    void testIdleSessionMarkedOffline() {
+        tracker.preSend(connect("session1", "user1", 10000), null);
+        tracker.preSend(frame(SimpMessageType.MESSAGE, "session1", "user1"), null);
+        idleSince("session1", 0);
+
+        tracker.evaluate();
+
+        assertEquals(0, tracker.getSessionCount());
+        verify(clientStatusService).markOffline(List.of("user1"));
+        verify(clientStatusService, never()).recordHeartbeat(anyString());
+    }
+
+    /**
+     * 測試用戶仍有其他會話時斷開不更新為離線
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：user1 有 session1、session2 兩個會話，依序斷開</li>
+     *   <li>透過方法：preSend(message, channel)、handleSessionDisconnect(event)</li>
+     *   <li>預期結果：斷開 session1 後 user1 仍有活躍會話、不呼叫 markOffline()；
+     *       斷開 session2 後以 markOffline(["user1"]) 更新為離線</li>
+     * </ul>
+     */
+    @Test
+    @Order(3)
+    void testDisconnectKeepsUserWithOtherSession() {
+        tracker.preSend(frame(SimpMessageType.CONNECT, "session1", "user1"), null);
+        tracker.preSend(frame(SimpMessageType.CONNECT, "session2", "user1"), null);
+        tracker.preSend(frame(SimpMessageType.HEARTBEAT, "session2", "user1"), null);
+
+        tracker.handleSessionDisconnect(disconnect("session1"));
+        assertTrue(tracker.hasActiveSession("user1"));
+        verify(clientStatusService, never()).markOffline(anyList());
+
+        tracker.handleSessionDisconnect(disconnect("session2"));
+        tracker.handleSessionDisconnect(disconnect("session2"));
+        assertFalse(tracker.hasActiveSession("user1"));
+        assertEquals(0, tracker.getSessionCount());
+        verify(clientStatusService, times(1)).markOffline(List.of("user1"));
+    }
+
+    /**
+     * 測試逾時時間依協商的心跳間隔計算
+     * 
+     * <p>範例說明：
+     * <ul>
+     *   <li>預期參數：timeout=30000；session1（user1）以 heart-beat:0,0 連接、最後活動時間為 0；
+     *       session2（user2）以 heart-beat:60000,10000 連接、100 秒前最後活動</li>
+     *   <li>透過方法：preSend(message, channel)、evaluate()</li>
+     *   <li>預期結果：兩個會話都不逾時（session1 不做逾時判斷，session2 的逾時時間為 180 秒），
+     *       兩個用戶都以 recordHeartbeat() 回報在線；session1 斷開後才以 markOffline(["user1"]) 更新為離線</li>
+     * </ul>
+     */
+    @Test
+    @Order(4)
+    void testTimeoutFollowsNegotiatedHeartbeat() {
+        tracker.preSend(connect("session1", "user1", 0), null);
+        tracker.preSend(connect("session2", "user2", 60000), null);
+        idleSince("session1", 0);
+        idleSince("session2", System.currentTimeMillis() - 100000);
+
+        tracker.evaluate();
+
+        assertEquals(2, tracker.getSessionCount());
+        verify(clientStatusService).recordHeartbeat("user1");
+        verify(clientStatusService).recordHeartbeat("user2");
+        verify(clientStatusService, never()).markOffline(anyList());
+
+        tracker.handleSessionDisconnect(disconnect("session1"));
+
+        verify(clientStatusService).markOffline(List.of("user1"));
+    }
+}